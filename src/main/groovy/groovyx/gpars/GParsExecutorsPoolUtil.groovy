@@ -17,14 +17,14 @@
 package groovyx.gpars
 
 import groovy.time.Duration
+import groovyx.gpars.util.Granularity
 import java.util.concurrent.Callable
 import java.util.concurrent.ConcurrentHashMap
 import java.util.concurrent.ConcurrentLinkedQueue
 import java.util.concurrent.ExecutorService
 import java.util.concurrent.Future
-import java.util.concurrent.Semaphore
 import java.util.concurrent.atomic.AtomicBoolean
-import java.util.concurrent.atomic.AtomicReference
+import java.util.concurrent.atomic.AtomicInteger
 import static groovyx.gpars.util.PAGroovyUtils.createCollection
 import static groovyx.gpars.util.PAUtils.buildClosureForMaps
 import static groovyx.gpars.util.PAUtils.buildClosureForMapsWithIndex
@@ -105,7 +105,7 @@ public class GParsExecutorsPoolUtil {
 
     /**
      * Iterates over a collection/object with the <i>each()</i> method using an asynchronous variant of the supplied closure
-     * to evaluate each collection's element. A Semaphore is used to make the calling thread wait for all the results.
+     * to evaluate each collection's element. The elements are processed in chunks, each chunk being a single task for the pool, and the calling thread waits for all of them.
      * After this method returns, all the closures have been finished and all the potential shared resources have been updated
      * by the threads.
      * It's important to protect any shared resources used by the supplied closure from race conditions caused by multi-threaded access.
@@ -122,25 +122,8 @@ public class GParsExecutorsPoolUtil {
      *}* @throws AsyncException If any of the collection's elements causes the closure to throw an exception. The original exceptions will be stored in the AsyncException's concurrentExceptions field.
      */
     public static def eachParallel(Object collection, Closure cl) {
-        final List<Throwable> exceptions = Collections.synchronizedList(new ArrayList<Throwable>())
-        final Semaphore semaphore = new Semaphore(0)
-        Closure code = async({Object... args ->
-            try {
-                cl(* args)
-            } catch (Throwable e) {
-                exceptions.add(e)
-            } finally {
-                semaphore.release()
-            }
-        })
-        int count = 0
-        for (element in collection) {
-            count += 1
-            code.call(element)
-        }
-        semaphore.acquire(count)
-        if (exceptions.empty) return collection
-        else throw new AsyncException("Some asynchronous operations failed. ${exceptions}", exceptions)
+        processInChunks(collection, cl, Granularity.AUTO, false)
+        return collection
     }
 
     /**
@@ -151,9 +134,28 @@ public class GParsExecutorsPoolUtil {
         return collection
     }
 
+    /**
+     * Iterates over a collection/object just like eachParallel(Closure cl).
+     * The <i>grain</i> option specifies the number of elements to process by a single task submitted to the pool,
+     * overriding the task size otherwise derived from the measured cost of the closure.
+     * Example:
+     *      GParsExecutorsPool.withPool(5) {*          hugeList.eachParallel(grain: 1000) {number -> process(number)}*}*/
+    public static def eachParallel(Object collection, Map options, Closure cl) {
+        processInChunks(collection, cl, Granularity.grain(options), false)
+        return collection
+    }
+
+    /**
+     * Does parallel each on maps with the <i>grain</i> option
+     */
+    public static Object eachParallel(Map collection, Map options, Closure cl) {
+        eachParallel(createCollection(collection), options, buildClosureForMaps(cl))
+        return collection
+    }
+
     /**
      * Iterates over a collection/object with the <i>eachWithIndex()</i> method using an asynchronous variant of the supplied closure
-     * to evaluate each collection's element. A Semaphore is used to make the calling thread wait for all the results.
+     * to evaluate each collection's element. The elements are processed in chunks, each chunk being a single task for the pool, and the calling thread waits for all of them.
      * After this method returns, all the closures have been finished and all the potential shared resources have been updated
      * by the threads.
      * It's important to protect any shared resources used by the supplied closure from race conditions caused by multi-threaded access.
@@ -170,25 +172,8 @@ public class GParsExecutorsPoolUtil {
      *}* @throws AsyncException If any of the collection's elements causes the closure to throw an exception. The original exceptions will be stored in the AsyncException's concurrentExceptions field.
      */
     public static def eachWithIndexParallel(Object collection, Closure cl) {
-        final List<Throwable> exceptions = Collections.synchronizedList(new ArrayList<Throwable>())
-        final Semaphore semaphore = new Semaphore(0)
-        Closure code = async({Object element, int index ->
-            try {
-                cl(element, index)
-            } catch (Throwable e) {
-                exceptions.add(e)
-            } finally {
-                semaphore.release()
-            }
-        })
-        int count = 0
-        for (element in collection) {
-            code.call(element, count)
-            count += 1
-        }
-        semaphore.acquire(count)
-        if (exceptions.empty) return collection
-        else throw new AsyncException("Some asynchronous operations failed. ${exceptions}", exceptions)
+        processInChunks(collection, cl, Granularity.AUTO, true)
+        return collection
     }
 
     /**
@@ -214,7 +199,7 @@ public class GParsExecutorsPoolUtil {
      *}* @throws AsyncException If any of the collection's elements causes the closure to throw an exception. The original exceptions will be stored in the AsyncException's concurrentExceptions field.
      */
     public static def collectParallel(Object collection, Closure cl) {
-        return processResult(collection.collect(async(cl)))
+        return processInChunks(collection, cl, Granularity.AUTO, false)
     }
 
     /**
@@ -224,6 +209,24 @@ public class GParsExecutorsPoolUtil {
         return collectParallel(createCollection(collection), buildClosureForMaps(cl))
     }
 
+    /**
+     * Iterates over a collection/object with the <i>collect()</i> method just like collectParallel(Closure cl).
+     * The <i>grain</i> option specifies the number of elements to process by a single task submitted to the pool,
+     * overriding the task size otherwise derived from the measured cost of the closure.
+     * Example:
+     *     GParsExecutorsPool.withPool(5) {*         def result = hugeList.collectParallel(grain: 1000) {Number number -> number * 10}*}* @throws AsyncException If any of the collection's elements causes the closure to throw an exception. The original exceptions will be stored in the AsyncException's concurrentExceptions field.
+     */
+    public static def collectParallel(Object collection, Map options, Closure cl) {
+        return processInChunks(collection, cl, Granularity.grain(options), false)
+    }
+
+    /**
+     * Does parallel collect on a map with the <i>grain</i> option
+     */
+    public static Collection<Object> collectParallel(Map collection, Map options, Closure cl) {
+        return collectParallel(createCollection(collection), options, buildClosureForMaps(cl))
+    }
+
     /**
      * Performs the <i>findAll()</i> operation using an asynchronous variant of the supplied closure
      * to evaluate each collection's/object's element.
@@ -291,7 +294,8 @@ public class GParsExecutorsPoolUtil {
      *}* @throws AsyncException If any of the collection's elements causes the closure to throw an exception. The original exceptions will be stored in the AsyncException's concurrentExceptions field.
      */
     public static def findParallel(Object collection, Closure cl) {
-        collectParallel(collection, {if (cl(it)) return it else return null}).find {it != null}
+        final AtomicInteger limit = new AtomicInteger(Integer.MAX_VALUE)
+        processInChunks(collection, {value, index -> if (cl(value)) {lowerLimit(limit, index); return value} else return null}, Granularity.AUTO, true, limit).find {it != null}
     }
 
     /**
@@ -319,8 +323,8 @@ public class GParsExecutorsPoolUtil {
      *}* @throws AsyncException If any of the collection's elements causes the closure to throw an exception. The original exceptions will be stored in the AsyncException's concurrentExceptions field.
      */
     public static def findAnyParallel(Object collection, Closure cl) {
-        final AtomicReference result = new AtomicReference(null)
-        collectParallel(collection, {if ((result.get() == null) && cl(it)) {result.set(it); return it} else return null}).find {it != null}
+        final AtomicInteger limit = new AtomicInteger(Integer.MAX_VALUE)
+        processInChunks(collection, {if (cl(it)) {limit.set(0); return it} else return null}, Granularity.AUTO, false, limit).find {it != null}
     }
 
     /**
@@ -344,7 +348,8 @@ public class GParsExecutorsPoolUtil {
      */
     public static boolean everyParallel(Object collection, Closure cl) {
         final AtomicBoolean flag = new AtomicBoolean(true)
-        eachParallel(collection, {value -> if (!cl(value)) flag.set(false)})
+        final AtomicInteger limit = new AtomicInteger(Integer.MAX_VALUE)
+        processInChunks(collection, {value -> if (!cl(value)) {flag.set(false); limit.set(0)}}, Granularity.AUTO, false, limit)
         return flag.get()
     }
 
@@ -371,7 +376,8 @@ public class GParsExecutorsPoolUtil {
      */
     public static boolean anyParallel(Object collection, Closure cl) {
         final AtomicBoolean flag = new AtomicBoolean(false)
-        eachParallel(collection, {if ((!flag.get()) && cl(it)) flag.set(true)})
+        final AtomicInteger limit = new AtomicInteger(Integer.MAX_VALUE)
+        processInChunks(collection, {if (cl(it)) {flag.set(true); limit.set(0)}}, Granularity.AUTO, false, limit)
         return flag.get()
     }
 
@@ -405,6 +411,78 @@ public class GParsExecutorsPoolUtil {
         return map
     }
 
+    /**
+     * Invokes the closure on all elements, submitting chunks of consecutive elements to the pool as single tasks.
+     * Unless the grain is specified, the cost of the closure is measured on the first few elements, which the calling thread processes itself,
+     * and the chunk size is chosen so that each task runs for roughly Granularity.TARGET_LEAF_NANOS,
+     * while no more than Granularity.OVERSUBSCRIPTION chunks per pool thread get submitted.
+     * Short-circuiting operations pass in a limit, which the closure lowers once the elements at and beyond the limit need no processing.
+     * Such elements are then skipped and chunks starting beyond the limit get cancelled, unless already running.
+     * Exceptions thrown by the closure are gathered and re-thrown wrapped in an AsyncException after all elements have been processed.
+     * @return The results of the closure in the order of the elements, nulls for the skipped elements
+     */
+    private static List<Object> processInChunks(final Object collection, final Closure cl, final int grain, final boolean withIndex, final AtomicInteger limit = null) {
+        final ExecutorService pool = GParsExecutorsPool.retrieveCurrentPool()
+        if (!pool) throw new IllegalStateException("No ExecutorService available for the current thread.")
+        final List elements = collection instanceof List && collection instanceof RandomAccess ? (List) collection : (List) createCollection(collection)
+        final int size = elements.size()
+        final Object[] results = new Object[size]
+        final Collection<Throwable> exceptions = new ConcurrentLinkedQueue<Throwable>()
+
+        int sampled = 0
+        int chunkSize = grain
+        if (grain == Granularity.AUTO) {
+            final int parallelism = Granularity.parallelismOf(pool)
+            final long start = System.nanoTime()
+            while (Granularity.keepSampling(sampled, size, start) && withinLimit(sampled, limit)) {
+                results[sampled] = invokeSafely(cl, elements, sampled, withIndex, exceptions)
+                sampled++
+            }
+            chunkSize = Granularity.leafSize(System.nanoTime() - start, sampled, size - sampled, parallelism)
+            chunkSize = Granularity.boundedChunkSize(chunkSize, size - sampled, parallelism)
+        }
+
+        final List<Future> futures = []
+        final List<Integer> starts = []
+        for (int from = sampled; from < size && withinLimit(from, limit); from += chunkSize) {
+            final int chunkStart = from
+            final int chunkEnd = Math.min(size, from + chunkSize)
+            starts << chunkStart
+            futures << pool.submit({
+                for (int i = chunkStart; i < chunkEnd && withinLimit(i, limit); i++) {
+                    results[i] = invokeSafely(cl, elements, i, withIndex, exceptions)
+                }
+            } as Callable)
+        }
+        for (int i = 0; i < futures.size(); i++) {
+            if (withinLimit(starts[i], limit) || !futures[i].cancel(false)) futures[i].get()
+        }
+
+        if (exceptions.empty) return new ArrayList<Object>(Arrays.asList(results))
+        else throw new AsyncException("Some asynchronous operations failed. ${exceptions}", new ArrayList(exceptions))
+    }
+
+    private static boolean withinLimit(final int index, final AtomicInteger limit) {
+        return limit == null || index < limit.get()
+    }
+
+    /**
+     * Lowers the limit to the given index, unless a lower index has already been set
+     */
+    private static void lowerLimit(final AtomicInteger limit, final int index) {
+        int current = limit.get()
+        while (index < current && !limit.compareAndSet(current, index)) current = limit.get()
+    }
+
+    private static Object invokeSafely(final Closure cl, final List elements, final int index, final boolean withIndex, final Collection<Throwable> exceptions) {
+        try {
+            return withIndex ? cl(elements.get(index), index) : cl(elements.get(index))
+        } catch (Throwable e) {
+            exceptions.add(e)
+            return e
+        }
+    }
+
     static List<Object> processResult(List<Future<Object>> futures) {
         final Collection<Throwable> exceptions = new ConcurrentLinkedQueue<Throwable>()
 
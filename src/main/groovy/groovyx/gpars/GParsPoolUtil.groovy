@@ -17,31 +17,39 @@
 package groovyx.gpars
 
 import groovy.time.Duration
-import groovyx.gpars.memoize.LRUProtectionStorage
-import groovyx.gpars.memoize.NullProtectionStorage
-import groovyx.gpars.memoize.NullValue
+import groovyx.gpars.dataflow.DataFlow
+import groovyx.gpars.dataflow.DataFlowVariable
+import groovyx.gpars.group.PGroup
+import groovyx.gpars.memoize.MemoizeCache
+import groovyx.gpars.memoize.MemoizeFunction
+import groovyx.gpars.memoize.MemoizeKey
 import groovyx.gpars.pa.CallClosure
-import groovyx.gpars.pa.ClosureMapper
 import groovyx.gpars.pa.ClosurePredicate
 import groovyx.gpars.pa.ClosureReducer
+import groovyx.gpars.pa.DoublePAWrapper
+import groovyx.gpars.pa.FusedPipeline
+import groovyx.gpars.pa.LongPAWrapper
+import groovyx.gpars.pa.ParallelFile
+import groovyx.gpars.pa.ParallelIteration
+import groovyx.gpars.pa.ParallelSort
 import groovyx.gpars.pa.SumClosure
+import groovyx.gpars.util.Granularity
 import groovyx.gpars.util.PAUtils
-import java.lang.ref.ReferenceQueue
-import java.lang.ref.SoftReference
-import java.util.concurrent.ConcurrentHashMap
+import java.nio.charset.Charset
 import java.util.concurrent.Future
 import jsr166y.forkjoin.ForkJoinExecutor
 import jsr166y.forkjoin.ForkJoinPool
 import jsr166y.forkjoin.Ops.Mapper
 import jsr166y.forkjoin.Ops.Procedure
 import jsr166y.forkjoin.ParallelArray
+import jsr166y.forkjoin.ParallelDoubleArray
+import jsr166y.forkjoin.ParallelLongArray
 import jsr166y.forkjoin.RecursiveTask
 import static groovyx.gpars.util.PAGroovyUtils.createCollection
 import static groovyx.gpars.util.PAUtils.buildClosureForMaps
 import static groovyx.gpars.util.PAUtils.buildClosureForMapsWithIndex
 import static groovyx.gpars.util.PAUtils.buildResultMap
 import static groovyx.gpars.util.PAUtils.createComparator
-import static groovyx.gpars.util.PAUtils.createGroupByClosure
 
 /**
  * This class forms the core of the DSL initialized by <i>GParsPool</i>. The static methods of <i>GParsPoolUtil</i>
@@ -55,8 +63,6 @@ import static groovyx.gpars.util.PAUtils.createGroupByClosure
  */
 public class GParsPoolUtil {
 
-    final static def MEMOIZE_NULL = new NullValue()
-
     /**
      * Allows timeouts for async operations
      */
@@ -130,16 +136,14 @@ public class GParsPoolUtil {
      * Whenever the closure is called, the mapping between the parameters and the return value is preserved in cache
      * making subsequent calls with the same arguments fast.
      * This variant will keep all values forever, i.e. till the closure gets garbage-collected.
-     * The returned function can be safely used concurrently from multiple threads, however, the implementation
-     * values high average-scenario performance and so concurrent calls on the memoized function with identical argument values
-     * may not necessarily be able to benefit from each other's cached return value. With this having been mentioned,
-     * the performance trade-off still makes concurrent use of memoized functions safe and highly recommended.
+     * The returned function can be safely used concurrently from multiple threads. Concurrent calls with identical argument values
+     * share a single invocation of the original closure, the other callers wait for its result. Cache hits do not block.
      *
      * The cache gets garbage-collected together with the memoized closure.
      * @return A new function forwarding to the original one while caching the results
      */
     public static Closure memoize(final Closure cl) {
-        return buildMemoizeFunction([:] as ConcurrentHashMap, cl)
+        return buildMemoizeFunction(new MemoizeCache(MemoizeCache.UNBOUNDED), cl)
     }
 
     /**
@@ -147,11 +151,9 @@ public class GParsPoolUtil {
      * Whenever the closure is called, the mapping between the parameters and the return value is preserved in cache
      * making subsequent calls with the same arguments fast.
      * This variant will keep all values until the upper size limit is reached. Then the values in the cache start rotating
-     * using the LRU (Last Recently Used) strategy.
-     * The returned function can be safely used concurrently from multiple threads, however, the implementation
-     * values high average-scenario performance and so concurrent calls on the memoized function with identical argument values
-     * may not necessarily be able to benefit from each other's cached return value. With this having been mentioned,
-     * the performance trade-off still makes concurrent use of memoized functions safe and highly recommended.
+     * using an approximation of the LRU (Last Recently Used) strategy, which gives recently used values a second chance.
+     * The returned function can be safely used concurrently from multiple threads. Concurrent calls with identical argument values
+     * share a single invocation of the original closure, the other callers wait for its result. Cache hits do not block.
      *
      * The cache gets garbage-collected together with the memoized closure.
      * @param maxCacheSize The maximum size the cache can grow to
@@ -160,20 +162,11 @@ public class GParsPoolUtil {
     public static Closure memoizeAtMost(final Closure cl, int maxCacheSize) {
         if (maxCacheSize < 0) throw new IllegalArgumentException("A non-negative number is required as the maxCacheSize parameter for memoizeAtMost.")
 
-        return buildMemoizeFunction(new LRUProtectionStorage(maxCacheSize).asSynchronized(), cl)
+        return buildMemoizeFunction(new MemoizeCache(maxCacheSize), cl)
     }
 
-    private static def buildMemoizeFunction(cache, Closure cl) {
-        return {Object... args ->
-            final def key = args?.toList() ?: []
-            Object result = cache[key]
-            if (result == null) {
-                result = cl.call(* args)
-                //noinspection GroovyConditionalCanBeElvis
-                cache[key] = result != null ? result : MEMOIZE_NULL
-            }
-            result == MEMOIZE_NULL ? null : result
-        }
+    private static def buildMemoizeFunction(MemoizeCache cache, Closure cl) {
+        return new MemoizeFunction(cache, cl)
     }
 
     /**
@@ -187,18 +180,16 @@ public class GParsPoolUtil {
      * the LRU (Last Recently Used) strategy.
      * Given the non-deterministic nature of garbage collector, the actual cache size may grow well beyond the limits
      * set by the user if memory is plentiful.
-     * The returned function can be safely used concurrently from multiple threads, however, the implementation
-     * values high average-scenario performance and so concurrent calls on the memoized function with identical argument values
-     * may not necessarily be able to benefit from each other's cached return value. Also the protectedCacheSize parameter
-     * might not be respected accurately in such scenarios for some periods of time. With this having been mentioned,
-     * the performance trade-off still makes concurrent use of memoized functions safe and highly recommended.
+     * The returned function can be safely used concurrently from multiple threads. Concurrent calls with identical argument values
+     * share a single invocation of the original closure, the other callers wait for its result. Cache hits do not block.
+     * The protectedCacheSize parameter might not be respected accurately under concurrent access for short periods of time.
      *
      * The cache gets garbage-collected together with the memoized closure.
      */
     public static Closure memoizeAtLeast(final Closure cl, int protectedCacheSize) {
         if (protectedCacheSize < 0) throw new IllegalArgumentException("A non-negative number is required as the protectedCacheSize parameter for memoizeAtLeast.")
 
-        return buildSoftReferenceMemoizeFunction(protectedCacheSize, [:] as ConcurrentHashMap, cl)
+        return buildMemoizeFunction(new MemoizeCache(MemoizeCache.UNBOUNDED, true, protectedCacheSize), cl)
     }
 
     /**
@@ -214,11 +205,9 @@ public class GParsPoolUtil {
      * size limits set by the user, if memory is plentiful.
      * Also, this variant will never exceed in size the upper size limit. Once the upper size limit has been reached,
      * the values in the cache start rotating using the LRU (Last Recently Used) strategy.
-     * The returned function can be safely used concurrently from multiple threads, however, the implementation
-     * values high average-scenario performance and so concurrent calls on the memoized function with identical argument values
-     * may not necessarily be able to benefit from each other's cached return value. Also the protectedCacheSize parameter
-     * might not be respected accurately in such scenarios for some periods of time. With this having been mentioned,
-     * the performance trade-off still makes concurrent use of memoized functions safe and highly recommended.
+     * The returned function can be safely used concurrently from multiple threads. Concurrent calls with identical argument values
+     * share a single invocation of the original closure, the other callers wait for its result. Cache hits do not block.
+     * The protectedCacheSize parameter might not be respected accurately under concurrent access for short periods of time.
      *
      * The cache gets garbage-collected together with the memoized closure.
      */
@@ -227,37 +216,163 @@ public class GParsPoolUtil {
         if (maxCacheSize < 0) throw new IllegalArgumentException("A non-negative number is required as the maxCacheSize parameter for memoizeBetween.")
         if (protectedCacheSize > maxCacheSize) throw new IllegalArgumentException("The maxCacheSize parameter to memoizeBetween is required to be greater or equal to the protectedCacheSize parameter.")
 
-        return buildSoftReferenceMemoizeFunction(protectedCacheSize, new LRUProtectionStorage(maxCacheSize).asSynchronized(), cl)
+        return buildMemoizeFunction(new MemoizeCache(maxCacheSize, true, protectedCacheSize), cl)
+    }
+
+    /**
+     * Creates a caching variant of the supplied closure, whose values expire or get refreshed after some time.
+     * The options map accepts the following keys, with the values given either in milliseconds or as a Duration:
+     * <ul>
+     * <li>expireAfterWrite - the values expire the given time after they have been calculated</li>
+     * <li>expireAfterAccess - the values expire the given time after they have been last retrieved</li>
+     * <li>refreshAfter - the values retrieved the given time after they have been calculated get recalculated in the background,
+     * while the callers keep getting the current value, so frequently used values never expire</li>
+     * </ul>
+     * Expired values are removed by a timer shared by all memoized functions.
+     * Statistics can be enabled as well:
+     * <ul>
+     * <li>recordStats - if true, hits, misses, evictions and the time spent in the original closure get recorded
+     * and are available through the stats() method of the returned function</li>
+     * <li>jmxName - records statistics and registers them with JMX as groovyx.gpars:type=Memoize,name=&lt;jmxName&gt;</li>
+     * </ul>
+     * The cache is unbounded like in memoize().
+     *
+     * @param options The expiry, refresh and statistics options
+     * @return A new function forwarding to the original one while caching the results
+     */
+    public static Closure memoize(final Closure cl, final Map options) {
+        return buildMemoizeFunction(MemoizeCache.create(MemoizeCache.UNBOUNDED, false, 0, options), cl)
+    }
+
+    /**
+     * Creates a caching variant of the supplied closure with upper limit on the cache size,
+     * whose values expire or get refreshed after some time.
+     * Combines memoizeAtMost() with the options of memoize(Map).
+     *
+     * @param options The expiry, refresh and statistics options
+     * @return A new function forwarding to the original one while caching the results
+     */
+    public static Closure memoizeAtMost(final Closure cl, final Map options, final int maxCacheSize) {
+        if (maxCacheSize < 0) throw new IllegalArgumentException("A non-negative number is required as the maxCacheSize parameter for memoizeAtMost.")
+
+        return buildMemoizeFunction(MemoizeCache.create(maxCacheSize, false, 0, options), cl)
+    }
+
+    /**
+     * Creates a caching variant of the supplied closure with automatic cache size adjustment and lower limit on the cache size,
+     * whose values expire or get refreshed after some time.
+     * Combines memoizeAtLeast() with the options of memoize(Map).
+     *
+     * @param options The expiry, refresh and statistics options
+     * @return A new function forwarding to the original one while caching the results
+     */
+    public static Closure memoizeAtLeast(final Closure cl, final Map options, final int protectedCacheSize) {
+        if (protectedCacheSize < 0) throw new IllegalArgumentException("A non-negative number is required as the protectedCacheSize parameter for memoizeAtLeast.")
+
+        return buildMemoizeFunction(MemoizeCache.create(MemoizeCache.UNBOUNDED, true, protectedCacheSize, options), cl)
+    }
+
+    /**
+     * Creates a caching variant of the supplied closure with automatic cache size adjustment and lower and upper limits
+     * on the cache size, whose values expire or get refreshed after some time.
+     * Combines memoizeBetween() with the options of memoize(Map).
+     *
+     * @param options The expiry, refresh and statistics options
+     * @return A new function forwarding to the original one while caching the results
+     */
+    public static Closure memoizeBetween(final Closure cl, final Map options, final int protectedCacheSize, final int maxCacheSize) {
+        if (protectedCacheSize < 0) throw new IllegalArgumentException("A non-negative number is required as the protectedCacheSize parameter for memoizeBetween.")
+        if (maxCacheSize < 0) throw new IllegalArgumentException("A non-negative number is required as the maxCacheSize parameter for memoizeBetween.")
+        if (protectedCacheSize > maxCacheSize) throw new IllegalArgumentException("The maxCacheSize parameter to memoizeBetween is required to be greater or equal to the protectedCacheSize parameter.")
+
+        return buildMemoizeFunction(MemoizeCache.create(maxCacheSize, true, protectedCacheSize, options), cl)
+    }
+
+    /**
+     * Creates an asynchronous caching variant of the supplied closure.
+     * The returned function returns a DataFlowVariable immediately and calculates the value in the supplied parallel group,
+     * by default the current dataflow group. The DataFlowVariables are cached, so concurrent callers with identical argument values
+     * get the same DataFlowVariable and share a single invocation of the original closure, even before its value is known.
+     * Failed calculations get removed from the cache, so that the next call tries again.
+     * This variant will keep all values forever, i.e. till the closure gets garbage-collected.
+     *
+     * @param group The parallel group to calculate the values in
+     * @return A new function returning DataFlowVariables with the results of the original one
+     */
+    public static Closure memoizeAsync(final Closure cl, final PGroup group = DataFlow.retrieveCurrentDFPGroup()) {
+        return buildAsyncMemoizeFunction(new MemoizeCache(MemoizeCache.UNBOUNDED), group, cl)
+    }
+
+    /**
+     * Creates an asynchronous caching variant of the supplied closure with upper limit on the cache size.
+     * Behaves like memoizeAsync() with the cache size limited like in memoizeAtMost().
+     *
+     * @param group The parallel group to calculate the values in
+     * @return A new function returning DataFlowVariables with the results of the original one
+     */
+    public static Closure memoizeAsyncAtMost(final Closure cl, final int maxCacheSize, final PGroup group = DataFlow.retrieveCurrentDFPGroup()) {
+        if (maxCacheSize < 0) throw new IllegalArgumentException("A non-negative number is required as the maxCacheSize parameter for memoizeAsyncAtMost.")
+
+        return buildAsyncMemoizeFunction(new MemoizeCache(maxCacheSize), group, cl)
     }
 
-    private static def buildSoftReferenceMemoizeFunction(int protectedCacheSize, cache, Closure cl) {
-        def lruProtectionStorage = protectedCacheSize > 0 ?
-            new LRUProtectionStorage(protectedCacheSize) :
-            new NullProtectionStorage() //Nothing should be done when no elements need protection against eviction
+    /**
+     * Creates an asynchronous caching variant of the supplied closure with automatic cache size adjustment and lower limit
+     * on the cache size.
+     * Behaves like memoizeAsync() with the cache size managed like in memoizeAtLeast().
+     *
+     * @param group The parallel group to calculate the values in
+     * @return A new function returning DataFlowVariables with the results of the original one
+     */
+    public static Closure memoizeAsyncAtLeast(final Closure cl, final int protectedCacheSize, final PGroup group = DataFlow.retrieveCurrentDFPGroup()) {
+        if (protectedCacheSize < 0) throw new IllegalArgumentException("A non-negative number is required as the protectedCacheSize parameter for memoizeAsyncAtLeast.")
 
-        final ReferenceQueue queue = new ReferenceQueue()
+        return buildAsyncMemoizeFunction(new MemoizeCache(MemoizeCache.UNBOUNDED, true, protectedCacheSize), group, cl)
+    }
 
-        return {Object... args ->
-            if (queue.poll() != null) cleanUpNullReferences(cache, queue)  //if something has been evicted, do a clean-up
-            final def key = args?.toList() ?: []
-            def result = cache[key]?.get()
-            if (result == null) {
-                result = cl.call(* args)
-                if (result == null) {
-                    result = MEMOIZE_NULL
+    /**
+     * Creates an asynchronous caching variant of the supplied closure with automatic cache size adjustment and lower and upper limits
+     * on the cache size.
+     * Behaves like memoizeAsync() with the cache size managed like in memoizeBetween().
+     *
+     * @param group The parallel group to calculate the values in
+     * @return A new function returning DataFlowVariables with the results of the original one
+     */
+    public static Closure memoizeAsyncBetween(final Closure cl, final int protectedCacheSize, final int maxCacheSize, final PGroup group = DataFlow.retrieveCurrentDFPGroup()) {
+        if (protectedCacheSize < 0) throw new IllegalArgumentException("A non-negative number is required as the protectedCacheSize parameter for memoizeAsyncBetween.")
+        if (maxCacheSize < 0) throw new IllegalArgumentException("A non-negative number is required as the maxCacheSize parameter for memoizeAsyncBetween.")
+        if (protectedCacheSize > maxCacheSize) throw new IllegalArgumentException("The maxCacheSize parameter to memoizeAsyncBetween is required to be greater or equal to the protectedCacheSize parameter.")
+
+        return buildAsyncMemoizeFunction(new MemoizeCache(maxCacheSize, true, protectedCacheSize), group, cl)
+    }
+
+    /**
+     * Caches DataFlowVariables, which get bound by tasks running in the supplied group.
+     * A failed task evicts its variable from the cache before binding the error.
+     */
+    private static def buildAsyncMemoizeFunction(MemoizeCache cache, PGroup group, Closure cl) {
+        final Closure calculation = {Object... args ->
+            final def key = MemoizeKey.of(args)
+            final DataFlowVariable result = new DataFlowVariable()
+            group.threadPool.execute {->
+                DataFlow.activeParallelGroup.set group
+                try {
+                    def value
+                    try {
+                        value = cl.call(* args)
+                    } catch (Throwable e) {
+                        cache.evict(key, result)
+                        result.bindError e
+                        return
+                    }
+                    result.bind value
+                } finally {
+                    DataFlow.activeParallelGroup.remove()
                 }
-                cache[key] = new SoftReference(result, queue)
             }
-            lruProtectionStorage.touch(key, result)
-            result == MEMOIZE_NULL ? null : result
+            return result
         }
-    }
-
-    private static void cleanUpNullReferences(final cache, final queue) {
-        //noinspection GroovyEmptyStatementBody
-        while (queue.poll() != null) {
-        }  //empty the reference queue
-        cache.findAllParallel({entry -> entry.value.get() == null}).eachParallel {entry -> cache.remove entry.key}
+        return new MemoizeFunction(cache, calculation)
     }
 
     @SuppressWarnings("GroovyMultipleReturnPointsPerMethod")
@@ -283,12 +398,27 @@ public class GParsPoolUtil {
         return createPAFromCollection(createCollection(collection), pool)
     }
 
+    /**
+     * The array returned from toArray() is already a copy, so it can be handed over to the ParallelArray directly
+     */
     private static <T> ParallelArray<T> createPAFromCollection(final def collection, final ForkJoinExecutor pool) {
-        return ParallelArray.createFromCopy(collection.toArray(new T[collection.size()]), pool)
+        return ParallelArray.createUsingHandoff(collection.toArray(), pool)
     }
 
+    /**
+     * Wraps the array without copying. All operations creating new collections leave the original array intact.
+     */
     private static <T> ParallelArray<T> createPAFromArray(final T[] array, final ForkJoinExecutor pool) {
-        return ParallelArray.createFromCopy(array, pool)
+        return ParallelArray.createUsingHandoff(array, pool)
+    }
+
+    /**
+     * Random-access lists and arrays can be split by index directly without building a ParallelArray first
+     */
+    private static List asRandomAccessList(final Object collection) {
+        if (collection instanceof Object[]) return Arrays.asList((Object[]) collection)
+        if (collection instanceof List && collection instanceof RandomAccess) return (List) collection
+        return null
     }
 
     /**
@@ -325,7 +455,7 @@ public class GParsPoolUtil {
      *}* Note that the <i>result</i> variable is synchronized to prevent race conditions between multiple threads.
      */
     public static <T> Collection<T> eachParallel(Collection<T> collection, Closure cl) {
-        eachParallelPA(createPAFromCollection(collection, retrievePool()), cl)
+        eachImpl(collection, cl, Granularity.AUTO)
         return collection
     }
 
@@ -343,7 +473,7 @@ public class GParsPoolUtil {
      *}* Note that the <i>result</i> variable is synchronized to prevent race conditions between multiple threads.
      */
     public static Object eachParallel(Object collection, Closure cl) {
-        eachParallelPA(createPA(collection, retrievePool()), cl)
+        eachImpl(collection, cl, Granularity.AUTO)
         return collection
     }
 
@@ -361,10 +491,54 @@ public class GParsPoolUtil {
      *}* Note that the <i>result</i> variable is synchronized to prevent race conditions between multiple threads.
      */
     public static Object eachParallel(Map collection, Closure cl) {
-        eachParallelPA(createPA(collection, retrievePool()), buildClosureForMaps(cl))
+        ParallelIteration.each(Arrays.asList(PAUtils.createArray(collection)), buildClosureForMaps(cl), retrievePool())
         return collection
     }
 
+    /**
+     * Invokes the supplied closure concurrently on all elements of the collection/object, just like eachParallel(Closure cl).
+     * The <i>grain</i> option specifies the number of elements to process sequentially by a single task,
+     * overriding the task size otherwise derived from the measured cost of the closure.
+     * Example:
+     * GParsPool.withPool {*     hugeList.eachParallel(grain: 10000) {number -> process(number)}*}*/
+    public static <T> Collection<T> eachParallel(Collection<T> collection, Map options, Closure cl) {
+        eachImpl(collection, cl, Granularity.grain(options))
+        return collection
+    }
+
+    /**
+     * Invokes the supplied closure concurrently on all elements of the collection/object, just like eachParallel(Closure cl).
+     * The <i>grain</i> option specifies the number of elements to process sequentially by a single task,
+     * overriding the task size otherwise derived from the measured cost of the closure.
+     * Example:
+     * GParsPool.withPool {*     hugeList.eachParallel(grain: 10000) {number -> process(number)}*}*/
+    public static Object eachParallel(Object collection, Map options, Closure cl) {
+        eachImpl(collection, cl, Granularity.grain(options))
+        return collection
+    }
+
+    /**
+     * Invokes the supplied closure concurrently on all entries of the map, just like eachParallel(Closure cl).
+     * The <i>grain</i> option specifies the number of entries to process sequentially by a single task,
+     * overriding the task size otherwise derived from the measured cost of the closure.
+     */
+    public static Object eachParallel(Map collection, Map options, Closure cl) {
+        ParallelIteration.each(Arrays.asList(PAUtils.createArray(collection)), buildClosureForMaps(cl), retrievePool(), Granularity.grain(options))
+        return collection
+    }
+
+    /**
+     * Random-access lists and arrays are processed in place, iterators and plain iterables get streamed in chunks,
+     * other objects are turned into an array first
+     */
+    private static void eachImpl(final Object collection, final Closure cl, final int grain) {
+        final List list = asRandomAccessList(collection)
+        if (list != null) ParallelIteration.each(list, cl, retrievePool(), grain)
+        else if (collection instanceof Iterator) ParallelIteration.eachStreamed((Iterator) collection, cl, retrievePool(), grain)
+        else if (collection instanceof Iterable && !collection.respondsTo('toArray')) ParallelIteration.eachStreamed(((Iterable) collection).iterator(), cl, retrievePool(), grain)
+        else ParallelIteration.each(createPA(collection, retrievePool()).asList(), cl, retrievePool(), grain)
+    }
+
     private static <T> void eachParallelPA(ParallelArray<T> pa, Closure cl) {
         pa.apply({cl(it)} as Procedure)
     }
@@ -431,7 +605,7 @@ public class GParsPoolUtil {
      * GParsPool.withPool {*     def result = [1, 2, 3, 4, 5].collectParallel {Number number -> number * 10}*     assertEquals(new HashSet([10, 20, 30, 40, 50]), result)
      *}*/
     public static <T> Collection<T> collectParallel(Collection<T> collection, Closure cl) {
-        createPAFromCollection(collection, retrievePool()).withMapping(new ClosureMapper(new CallClosure(cl))).all().asList()
+        collectImpl(collection, cl, Granularity.AUTO)
     }
 
     /**
@@ -446,7 +620,7 @@ public class GParsPoolUtil {
      * GParsPool.withPool {*     def result = [1, 2, 3, 4, 5].collectParallel {Number number -> number * 10}*     assertEquals(new HashSet([10, 20, 30, 40, 50]), result)
      *}*/
     public static Collection<Object> collectParallel(Object collection, Closure cl) {
-        createPA(collection, retrievePool()).withMapping(new ClosureMapper(new CallClosure(cl))).all().asList()
+        collectImpl(collection, cl, Granularity.AUTO)
     }
 
     /**
@@ -461,7 +635,41 @@ public class GParsPoolUtil {
      * GParsPool.withPool {*     def result = [1, 2, 3, 4, 5].collectParallel {Number number -> number * 10}*     assertEquals(new HashSet([10, 20, 30, 40, 50]), result)
      *}*/
     public static Collection<Object> collectParallel(Map collection, Closure cl) {
-        createPA(collection, retrievePool()).withMapping(new ClosureMapper(buildClosureForMaps(cl))).all().asList()
+        ParallelIteration.collect(Arrays.asList(PAUtils.createArray(collection)), buildClosureForMaps(cl), retrievePool())
+    }
+
+    /**
+     * Transforms concurrently all elements of the collection/object, just like collectParallel(Closure cl).
+     * The <i>grain</i> option specifies the number of elements to process sequentially by a single task,
+     * overriding the task size otherwise derived from the measured cost of the closure.
+     * Example:
+     * GParsPool.withPool {*     def result = hugeList.collectParallel(grain: 10000) {Number number -> number * 10}*}*/
+    public static <T> Collection<T> collectParallel(Collection<T> collection, Map options, Closure cl) {
+        collectImpl(collection, cl, Granularity.grain(options))
+    }
+
+    /**
+     * Transforms concurrently all elements of the collection/object, just like collectParallel(Closure cl).
+     * The <i>grain</i> option specifies the number of elements to process sequentially by a single task,
+     * overriding the task size otherwise derived from the measured cost of the closure.
+     * Example:
+     * GParsPool.withPool {*     def result = hugeList.collectParallel(grain: 10000) {Number number -> number * 10}*}*/
+    public static Collection<Object> collectParallel(Object collection, Map options, Closure cl) {
+        collectImpl(collection, cl, Granularity.grain(options))
+    }
+
+    /**
+     * Transforms concurrently all entries of the map, just like collectParallel(Closure cl).
+     * The <i>grain</i> option specifies the number of entries to process sequentially by a single task,
+     * overriding the task size otherwise derived from the measured cost of the closure.
+     */
+    public static Collection<Object> collectParallel(Map collection, Map options, Closure cl) {
+        ParallelIteration.collect(Arrays.asList(PAUtils.createArray(collection)), buildClosureForMaps(cl), retrievePool(), Granularity.grain(options))
+    }
+
+    private static List<Object> collectImpl(final Object collection, final Closure cl, final int grain) {
+        final List list = asRandomAccessList(collection)
+        ParallelIteration.collect(list != null ? list : createPA(collection, retrievePool()).asList(), new CallClosure(cl), retrievePool(), grain)
     }
 
     /**
@@ -870,10 +1078,7 @@ public class GParsPoolUtil {
     }
 
     private static <T> Map groupByParallelPA(ParallelArray<T> pa, Closure cl) {
-        final def map = new ConcurrentHashMap()
-        eachParallelPA(pa, createGroupByClosure(cl, map))
-        return map
-
+        new FusedPipeline(pa.array, pa.size(), (ForkJoinPool) pa.executor).groupBy(cl)
     }
 
     /**
@@ -929,6 +1134,9 @@ public class GParsPoolUtil {
      * have a new <i>min(Closure cl)</i> method, which delegates to the <i>GParsPoolUtil</i> class.
      */
     public static Object minParallel(Object collection) {
+        if (collection instanceof int[]) return minParallel((int[]) collection)
+        if (collection instanceof long[]) return minParallel((long[]) collection)
+        if (collection instanceof double[]) return minParallel((double[]) collection)
         createPA(collection, retrievePool()).min()
     }
 
@@ -985,9 +1193,250 @@ public class GParsPoolUtil {
      * have a new <i>min(Closure cl)</i> method, which delegates to the <i>GParsPoolUtil</i> class.
      */
     public static Object maxParallel(Object collection) {
+        if (collection instanceof int[]) return maxParallel((int[]) collection)
+        if (collection instanceof long[]) return maxParallel((long[]) collection)
+        if (collection instanceof double[]) return maxParallel((double[]) collection)
         createPA(collection, retrievePool()).max()
     }
 
+    /**
+     * Sorts the elements of the collection/object in parallel using their natural ordering.
+     * A parallel merge sort is used, which keeps the original order of equal elements. The original collection is not modified.
+     * Alternatively a DSL can be used to simplify the code. All collections/objects within the <i>withPool</i> block
+     * have a new <i>sortParallel()</i> method, which delegates to the <i>GParsPoolUtil</i> class.
+     * @return A new list holding the sorted elements
+     */
+    public static <T> List<T> sortParallel(Collection<T> collection) {
+        sortImpl(collection.toArray(), ParallelSort.ordering((Closure) null))
+    }
+
+    /**
+     * Sorts the elements of the collection/object in parallel using their natural ordering.
+     * A parallel merge sort is used, which keeps the original order of equal elements. The original collection is not modified.
+     * Alternatively a DSL can be used to simplify the code. All collections/objects within the <i>withPool</i> block
+     * have a new <i>sortParallel()</i> method, which delegates to the <i>GParsPoolUtil</i> class.
+     * @return A new list holding the sorted elements
+     */
+    public static List sortParallel(Object collection) {
+        sortImpl(createPA(collection, retrievePool()), ParallelSort.ordering((Closure) null))
+    }
+
+    /**
+     * Sorts the elements of the collection/object in parallel.
+     * If the supplied closure takes two arguments it is used directly as a comparator.
+     * If the supplied closure takes one argument, it is invoked only once for each element and the returned values are compared by the implicit comparator.
+     * A parallel merge sort is used, which keeps the original order of equal elements. The original collection is not modified.
+     * Alternatively a DSL can be used to simplify the code. All collections/objects within the <i>withPool</i> block
+     * have a new <i>sortParallel(Closure cl)</i> method, which delegates to the <i>GParsPoolUtil</i> class.
+     * @param cl A one or two-argument closure
+     * @return A new list holding the sorted elements
+     */
+    public static <T> List<T> sortParallel(Collection<T> collection, Closure cl) {
+        sortImpl(collection.toArray(), ParallelSort.ordering(cl))
+    }
+
+    /**
+     * Sorts the elements of the collection/object in parallel.
+     * If the supplied closure takes two arguments it is used directly as a comparator.
+     * If the supplied closure takes one argument, it is invoked only once for each element and the returned values are compared by the implicit comparator.
+     * A parallel merge sort is used, which keeps the original order of equal elements. The original collection is not modified.
+     * Alternatively a DSL can be used to simplify the code. All collections/objects within the <i>withPool</i> block
+     * have a new <i>sortParallel(Closure cl)</i> method, which delegates to the <i>GParsPoolUtil</i> class.
+     * @param cl A one or two-argument closure
+     * @return A new list holding the sorted elements
+     */
+    public static List sortParallel(Object collection, Closure cl) {
+        sortImpl(createPA(collection, retrievePool()), ParallelSort.ordering(cl))
+    }
+
+    /**
+     * Sorts the elements of the collection/object in parallel using the supplied comparator.
+     * A parallel merge sort is used, which keeps the original order of equal elements. The original collection is not modified.
+     * @param comparator The comparator to use
+     * @return A new list holding the sorted elements
+     */
+    public static <T> List<T> sortParallel(Collection<T> collection, Comparator comparator) {
+        sortImpl(collection.toArray(), ParallelSort.ordering(comparator))
+    }
+
+    /**
+     * Sorts the elements of the collection/object in parallel using the supplied comparator.
+     * A parallel merge sort is used, which keeps the original order of equal elements. The original collection is not modified.
+     * @param comparator The comparator to use
+     * @return A new list holding the sorted elements
+     */
+    public static List sortParallel(Object collection, Comparator comparator) {
+        sortImpl(createPA(collection, retrievePool()), ParallelSort.ordering(comparator))
+    }
+
+    /**
+     * Finds in parallel the k largest elements of the collection/object using their natural ordering.
+     * Each thread only keeps the k largest elements it has seen so far, the whole collection never gets sorted.
+     * Alternatively a DSL can be used to simplify the code. All collections/objects within the <i>withPool</i> block
+     * have a new <i>topKParallel(int k)</i> method, which delegates to the <i>GParsPoolUtil</i> class.
+     * @param k The number of elements to return
+     * @return A list of at most k elements, starting with the largest one
+     */
+    public static <T> List<T> topKParallel(Collection<T> collection, int k) {
+        selectImpl(collection.toArray(), k, ParallelSort.ordering((Closure) null), true)
+    }
+
+    /**
+     * Finds in parallel the k largest elements of the collection/object using their natural ordering.
+     * Each thread only keeps the k largest elements it has seen so far, the whole collection never gets sorted.
+     * Alternatively a DSL can be used to simplify the code. All collections/objects within the <i>withPool</i> block
+     * have a new <i>topKParallel(int k)</i> method, which delegates to the <i>GParsPoolUtil</i> class.
+     * @param k The number of elements to return
+     * @return A list of at most k elements, starting with the largest one
+     */
+    public static List topKParallel(Object collection, int k) {
+        selectImpl(createPA(collection, retrievePool()), k, ParallelSort.ordering((Closure) null), true)
+    }
+
+    /**
+     * Finds in parallel the k largest elements of the collection/object.
+     * If the supplied closure takes two arguments it is used directly as a comparator.
+     * If the supplied closure takes one argument, it is invoked only once for each element and the returned values are compared by the implicit comparator.
+     * Each thread only keeps the k largest elements it has seen so far, the whole collection never gets sorted.
+     * Alternatively a DSL can be used to simplify the code. All collections/objects within the <i>withPool</i> block
+     * have a new <i>topKParallel(int k, Closure cl)</i> method, which delegates to the <i>GParsPoolUtil</i> class.
+     * @param k The number of elements to return
+     * @param cl A one or two-argument closure
+     * @return A list of at most k elements, starting with the largest one
+     */
+    public static <T> List<T> topKParallel(Collection<T> collection, int k, Closure cl) {
+        selectImpl(collection.toArray(), k, ParallelSort.ordering(cl), true)
+    }
+
+    /**
+     * Finds in parallel the k largest elements of the collection/object.
+     * If the supplied closure takes two arguments it is used directly as a comparator.
+     * If the supplied closure takes one argument, it is invoked only once for each element and the returned values are compared by the implicit comparator.
+     * Each thread only keeps the k largest elements it has seen so far, the whole collection never gets sorted.
+     * Alternatively a DSL can be used to simplify the code. All collections/objects within the <i>withPool</i> block
+     * have a new <i>topKParallel(int k, Closure cl)</i> method, which delegates to the <i>GParsPoolUtil</i> class.
+     * @param k The number of elements to return
+     * @param cl A one or two-argument closure
+     * @return A list of at most k elements, starting with the largest one
+     */
+    public static List topKParallel(Object collection, int k, Closure cl) {
+        selectImpl(createPA(collection, retrievePool()), k, ParallelSort.ordering(cl), true)
+    }
+
+    /**
+     * Finds in parallel the k largest elements of the collection/object using the supplied comparator.
+     * Each thread only keeps the k largest elements it has seen so far, the whole collection never gets sorted.
+     * @param k The number of elements to return
+     * @param comparator The comparator to use
+     * @return A list of at most k elements, starting with the largest one
+     */
+    public static <T> List<T> topKParallel(Collection<T> collection, int k, Comparator comparator) {
+        selectImpl(collection.toArray(), k, ParallelSort.ordering(comparator), true)
+    }
+
+    /**
+     * Finds in parallel the k largest elements of the collection/object using the supplied comparator.
+     * Each thread only keeps the k largest elements it has seen so far, the whole collection never gets sorted.
+     * @param k The number of elements to return
+     * @param comparator The comparator to use
+     * @return A list of at most k elements, starting with the largest one
+     */
+    public static List topKParallel(Object collection, int k, Comparator comparator) {
+        selectImpl(createPA(collection, retrievePool()), k, ParallelSort.ordering(comparator), true)
+    }
+
+    /**
+     * Finds in parallel the k smallest elements of the collection/object using their natural ordering.
+     * Each thread only keeps the k smallest elements it has seen so far, the whole collection never gets sorted.
+     * Alternatively a DSL can be used to simplify the code. All collections/objects within the <i>withPool</i> block
+     * have a new <i>bottomKParallel(int k)</i> method, which delegates to the <i>GParsPoolUtil</i> class.
+     * @param k The number of elements to return
+     * @return A list of at most k elements, starting with the smallest one
+     */
+    public static <T> List<T> bottomKParallel(Collection<T> collection, int k) {
+        selectImpl(collection.toArray(), k, ParallelSort.ordering((Closure) null), false)
+    }
+
+    /**
+     * Finds in parallel the k smallest elements of the collection/object using their natural ordering.
+     * Each thread only keeps the k smallest elements it has seen so far, the whole collection never gets sorted.
+     * Alternatively a DSL can be used to simplify the code. All collections/objects within the <i>withPool</i> block
+     * have a new <i>bottomKParallel(int k)</i> method, which delegates to the <i>GParsPoolUtil</i> class.
+     * @param k The number of elements to return
+     * @return A list of at most k elements, starting with the smallest one
+     */
+    public static List bottomKParallel(Object collection, int k) {
+        selectImpl(createPA(collection, retrievePool()), k, ParallelSort.ordering((Closure) null), false)
+    }
+
+    /**
+     * Finds in parallel the k smallest elements of the collection/object.
+     * If the supplied closure takes two arguments it is used directly as a comparator.
+     * If the supplied closure takes one argument, it is invoked only once for each element and the returned values are compared by the implicit comparator.
+     * Each thread only keeps the k smallest elements it has seen so far, the whole collection never gets sorted.
+     * Alternatively a DSL can be used to simplify the code. All collections/objects within the <i>withPool</i> block
+     * have a new <i>bottomKParallel(int k, Closure cl)</i> method, which delegates to the <i>GParsPoolUtil</i> class.
+     * @param k The number of elements to return
+     * @param cl A one or two-argument closure
+     * @return A list of at most k elements, starting with the smallest one
+     */
+    public static <T> List<T> bottomKParallel(Collection<T> collection, int k, Closure cl) {
+        selectImpl(collection.toArray(), k, ParallelSort.ordering(cl), false)
+    }
+
+    /**
+     * Finds in parallel the k smallest elements of the collection/object.
+     * If the supplied closure takes two arguments it is used directly as a comparator.
+     * If the supplied closure takes one argument, it is invoked only once for each element and the returned values are compared by the implicit comparator.
+     * Each thread only keeps the k smallest elements it has seen so far, the whole collection never gets sorted.
+     * Alternatively a DSL can be used to simplify the code. All collections/objects within the <i>withPool</i> block
+     * have a new <i>bottomKParallel(int k, Closure cl)</i> method, which delegates to the <i>GParsPoolUtil</i> class.
+     * @param k The number of elements to return
+     * @param cl A one or two-argument closure
+     * @return A list of at most k elements, starting with the smallest one
+     */
+    public static List bottomKParallel(Object collection, int k, Closure cl) {
+        selectImpl(createPA(collection, retrievePool()), k, ParallelSort.ordering(cl), false)
+    }
+
+    /**
+     * Finds in parallel the k smallest elements of the collection/object using the supplied comparator.
+     * Each thread only keeps the k smallest elements it has seen so far, the whole collection never gets sorted.
+     * @param k The number of elements to return
+     * @param comparator The comparator to use
+     * @return A list of at most k elements, starting with the smallest one
+     */
+    public static <T> List<T> bottomKParallel(Collection<T> collection, int k, Comparator comparator) {
+        selectImpl(collection.toArray(), k, ParallelSort.ordering(comparator), false)
+    }
+
+    /**
+     * Finds in parallel the k smallest elements of the collection/object using the supplied comparator.
+     * Each thread only keeps the k smallest elements it has seen so far, the whole collection never gets sorted.
+     * @param k The number of elements to return
+     * @param comparator The comparator to use
+     * @return A list of at most k elements, starting with the smallest one
+     */
+    public static List bottomKParallel(Object collection, int k, Comparator comparator) {
+        selectImpl(createPA(collection, retrievePool()), k, ParallelSort.ordering(comparator), false)
+    }
+
+    private static List sortImpl(final Object[] array, final ParallelSort.Ordering ordering) {
+        ParallelSort.sort(array, array.length, ordering, retrievePool())
+    }
+
+    private static List sortImpl(final ParallelArray pa, final ParallelSort.Ordering ordering) {
+        ParallelSort.sort(pa.array, pa.size(), ordering, retrievePool())
+    }
+
+    private static List selectImpl(final Object[] array, final int k, final ParallelSort.Ordering ordering, final boolean largest) {
+        ParallelSort.select(array, array.length, k, ordering, largest, retrievePool())
+    }
+
+    private static List selectImpl(final ParallelArray pa, final int k, final ParallelSort.Ordering ordering, final boolean largest) {
+        ParallelSort.select(pa.array, pa.size(), k, ordering, largest, retrievePool())
+    }
+
     /**
      * Creates a Parallel Array out of the supplied collection/object and summarizes its elements using the foldParallel()
      * method with the + operator and the reduction operation.
@@ -1009,6 +1458,9 @@ public class GParsPoolUtil {
      * have a new <i>min(Closure cl)</i> method, which delegates to the <i>GParsPoolUtil</i> class.
      */
     public static Object sumParallel(Object collection) {
+        if (collection instanceof int[]) return sumParallel((int[]) collection)
+        if (collection instanceof long[]) return sumParallel((long[]) collection)
+        if (collection instanceof double[]) return sumParallel((double[]) collection)
         foldParallel(collection, SumClosure.instance)
     }
 
@@ -1070,6 +1522,96 @@ public class GParsPoolUtil {
         pa.reduce(new ClosureReducer(cl), null)
     }
 
+    /**
+     * Summarizes in parallel the elements of an int array without boxing them.
+     * The sum is calculated as a long to prevent overflows, so unlike in earlier versions a Long is returned for int arrays, not an Integer.
+     */
+    public static long sumParallel(int[] collection) {
+        PAUtils.createParallelLongArray(collection, retrievePool()).sum()
+    }
+
+    /**
+     * Summarizes in parallel the elements of a long array without boxing them.
+     */
+    public static long sumParallel(long[] collection) {
+        createPLA(collection, retrievePool()).sum()
+    }
+
+    /**
+     * Summarizes in parallel the elements of a double array without boxing them.
+     */
+    public static double sumParallel(double[] collection) {
+        createPDA(collection, retrievePool()).sum()
+    }
+
+    /**
+     * Finds in parallel the minimum of an int array without boxing the elements.
+     * Returns null for an empty array, like the variants for collections do.
+     */
+    public static Integer minParallel(int[] collection) {
+        if (collection.length == 0) return null
+        (int) PAUtils.createParallelLongArray(collection, retrievePool()).min()
+    }
+
+    /**
+     * Finds in parallel the minimum of a long array without boxing the elements.
+     * Returns null for an empty array, like the variants for collections do.
+     */
+    public static Long minParallel(long[] collection) {
+        if (collection.length == 0) return null
+        createPLA(collection, retrievePool()).min()
+    }
+
+    /**
+     * Finds in parallel the minimum of a double array without boxing the elements.
+     * Returns null for an empty array, like the variants for collections do.
+     */
+    public static Double minParallel(double[] collection) {
+        if (collection.length == 0) return null
+        createPDA(collection, retrievePool()).min()
+    }
+
+    /**
+     * Finds in parallel the maximum of an int array without boxing the elements.
+     * Returns null for an empty array, like the variants for collections do.
+     */
+    public static Integer maxParallel(int[] collection) {
+        if (collection.length == 0) return null
+        (int) PAUtils.createParallelLongArray(collection, retrievePool()).max()
+    }
+
+    /**
+     * Finds in parallel the maximum of a long array without boxing the elements.
+     * Returns null for an empty array, like the variants for collections do.
+     */
+    public static Long maxParallel(long[] collection) {
+        if (collection.length == 0) return null
+        createPLA(collection, retrievePool()).max()
+    }
+
+    /**
+     * Finds in parallel the maximum of a double array without boxing the elements.
+     * Returns null for an empty array, like the variants for collections do.
+     */
+    public static Double maxParallel(double[] collection) {
+        if (collection.length == 0) return null
+        createPDA(collection, retrievePool()).max()
+    }
+
+    /**
+     * The original array is wrapped without copying. All operations creating new collections leave the original array intact.
+     */
+    private static ParallelLongArray createPLA(final long[] array, final ForkJoinExecutor pool) {
+        ParallelLongArray.createUsingHandoff(array, pool)
+    }
+
+    /**
+     * The original array is wrapped without copying. All operations creating new collections leave the original array intact.
+     */
+    private static ParallelDoubleArray createPDA(final double[] array, final ForkJoinExecutor pool) {
+        ParallelDoubleArray.createUsingHandoff(array, pool)
+    }
+
     /**
      * Creates a PAWrapper around a ParallelArray wrapping the elements of the original collection.
      * This allows further parallel processing operations on the collection to chain and so effectively leverage the underlying
@@ -1083,11 +1625,37 @@ public class GParsPoolUtil {
      * Creates a PAWrapper around a ParallelArray wrapping the elements of the original collection.
      * This allows further parallel processing operations on the collection to chain and so effectively leverage the underlying
      * ParallelArray implementation.
+     * The elements of primitive arrays get boxed. Groovy resolves the <i>parallel</i> property of primitive arrays to this method,
+     * so the unboxed wrappers need <i>getParallel()</i> to be called explicitly.
      */
     public static PAWrapper getParallel(Object collection) {
         new PAWrapper(createPA(collection, retrievePool()))
     }
 
+    /**
+     * Creates a LongPAWrapper around a ParallelLongArray holding the elements of the original int array widened to long.
+     * The map/filter/reduce operations chained on the wrapper keep the elements unboxed.
+     */
+    public static LongPAWrapper getParallel(int[] collection) {
+        new LongPAWrapper(PAUtils.createParallelLongArray(collection, retrievePool()))
+    }
+
+    /**
+     * Creates a LongPAWrapper around a ParallelLongArray wrapping the original array without copying.
+     * The map/filter/reduce operations chained on the wrapper keep the elements unboxed.
+     */
+    public static LongPAWrapper getParallel(long[] collection) {
+        new LongPAWrapper(createPLA(collection, retrievePool()))
+    }
+
+    /**
+     * Creates a DoublePAWrapper around a ParallelDoubleArray wrapping the original array without copying.
+     * The map/filter/reduce operations chained on the wrapper keep the elements unboxed.
+     */
+    public static DoublePAWrapper getParallel(double[] collection) {
+        new DoublePAWrapper(createPDA(collection, retrievePool()))
+    }
+
     /**
      * Creates a ParallelArray wrapping the elements of the original collection.
      */
@@ -1098,10 +1666,49 @@ public class GParsPoolUtil {
 
     /**
      * Creates a ParallelArray wrapping the elements of the original collection.
+     * The elements of primitive arrays get boxed, call <i>getParallelArray()</i> explicitly on them to get an unboxed parallel array.
      */
     public static ParallelArray getParallelArray(Object collection) {
+        if (collection instanceof Object[]) return ParallelArray.createFromCopy((Object[]) collection, retrievePool())
         createPA(collection, retrievePool())
     }
+
+    /**
+     * Creates a ParallelLongArray holding the elements of the original int array widened to long.
+     */
+    public static ParallelLongArray getParallelArray(int[] collection) {
+        PAUtils.createParallelLongArray(collection, retrievePool())
+    }
+
+    /**
+     * Creates a ParallelLongArray sharing the original long array.
+     */
+    public static ParallelLongArray getParallelArray(long[] collection) {
+        createPLA(collection, retrievePool())
+    }
+
+    /**
+     * Creates a ParallelDoubleArray sharing the original double array.
+     */
+    public static ParallelDoubleArray getParallelArray(double[] collection) {
+        createPDA(collection, retrievePool())
+    }
+
+    /**
+     * Creates a ParallelFile to process the lines of a file in the platform default encoding in parallel.
+     * The file is not loaded into memory, the chained map/filter/groupBy/combine operations run on memory-mapped line-aligned ranges of the file.
+     */
+    public static ParallelFile getParallelLines(File file) {
+        new ParallelFile(file, Charset.defaultCharset(), retrievePool())
+    }
+
+    /**
+     * Creates a ParallelFile to process the lines of a file in the given encoding in parallel.
+     * The file is not loaded into memory, the chained map/filter/groupBy/combine operations run on memory-mapped line-aligned ranges of the file.
+     */
+    public static ParallelFile parallelLines(File file, String charset) {
+        new ParallelFile(file, Charset.forName(charset), retrievePool())
+    }
 }
 
 /**
@@ -1114,11 +1721,24 @@ abstract class AbstractPAWrapper<T> {
      */
     final def pa
 
+    /**
+     * The map and filter stages to apply to the elements of the wrapped ParallelArray, null if there are none
+     */
+    final FusedPipeline pipeline
+
     /**
      * Creates an instance wrapping the supplied instance of ParallelArray
      */
     def AbstractPAWrapper(final pa) {
+        this(pa, null)
+    }
+
+    /**
+     * Creates an instance applying the stages of the supplied pipeline lazily to the elements of the wrapped ParallelArray
+     */
+    def AbstractPAWrapper(final pa, final FusedPipeline pipeline) {
         this.pa = pa
+        this.pipeline = pipeline
     }
 
     /**
@@ -1126,6 +1746,7 @@ abstract class AbstractPAWrapper<T> {
      * @return A collection containing all elements of the wrapped ParallelArray
      */
     public final Object getCollection() {
+        if (pipeline) return pipeline.collect() as ArrayList
         this.pa.all().asList() as ArrayList
     }
 
@@ -1135,6 +1756,7 @@ abstract class AbstractPAWrapper<T> {
      * @return The product of reduction
      */
     public final T reduce(Closure cl) {
+        if (pipeline) return pipeline.reduce(cl)
         pa.all().reduce(new ClosureReducer(cl), null)
     }
 
@@ -1144,6 +1766,10 @@ abstract class AbstractPAWrapper<T> {
      * @return The product of reduction
      */
     public final T reduce(seed, Closure cl) {
+        if (pipeline) {
+            final def result = pipeline.reduce(cl)
+            return result == null ? seed : cl(result, seed)
+        }
         final def newPA = pa.all()
         newPA.appendElement(seed)
         newPA.reduce(new ClosureReducer(cl), null)
@@ -1162,6 +1788,7 @@ abstract class AbstractPAWrapper<T> {
      * @return The number of elements in the collection
      */
     public final int size() {
+        if (pipeline) return pipeline.count()
         pa.size()
     }
 
@@ -1170,6 +1797,7 @@ abstract class AbstractPAWrapper<T> {
      * @return The minimum element of the collection
      */
     public final T min() {
+        if (pipeline) return pipeline.min(createComparator({it}))
         pa.min()
     }
 
@@ -1181,6 +1809,7 @@ abstract class AbstractPAWrapper<T> {
      * @return The minimum element of the collection
      */
     public final T min(Closure cl) {
+        if (pipeline) return pipeline.min(createComparator(cl))
         return pa.min(createComparator(cl))
     }
 
@@ -1189,6 +1818,7 @@ abstract class AbstractPAWrapper<T> {
      * @return The maximum element of the collection
      */
     public final T max() {
+        if (pipeline) return pipeline.max(createComparator({it}))
         pa.max()
     }
 
@@ -1200,6 +1830,7 @@ abstract class AbstractPAWrapper<T> {
      * @return The maximum element of the collection
      */
     public final T max(Closure cl) {
+        if (pipeline) return pipeline.max(createComparator(cl))
         pa.max(createComparator(cl))
     }
 
@@ -1207,13 +1838,14 @@ abstract class AbstractPAWrapper<T> {
      * Returns a sorted parallel collection
      * If the supplied closure takes two arguments it is used directly as a comparator.
      * If the supplied closure takes one argument, the values returned by the supplied closure for individual elements are used for comparison by the implicit comparator.
+     * The closure is then invoked only once for each element. Elements with equal values keep their original order.
      * @param cl A one or two-argument closure
      * @return A sorted collection holding all the elements
      */
     public final AbstractPAWrapper sort(Closure cl = {it}) {
-        def npa = pa.all()
-        npa.sort(createComparator(cl))
-        return new PAWrapper(npa)
+        final ParallelArray source = pipeline ? ParallelArray.createUsingHandoff(pipeline.collect().toArray(), pa.executor) : (pa instanceof ParallelArray ? pa : pa.all())
+        final ForkJoinPool pool = (ForkJoinPool) source.executor
+        return new PAWrapper(ParallelArray.createUsingHandoff(ParallelSort.sortedArray(source.array, source.size(), ParallelSort.ordering(cl), pool), pool))
     }
 
     /**
@@ -1226,7 +1858,7 @@ abstract class AbstractPAWrapper<T> {
      * @return A map following the Groovy specification for groupBy
      */
     public Map groupBy(Closure cl) {
-        return combineImpl(cl, {it}, {[]}, {list, item -> list << item})
+        currentPipeline().groupBy(cl)
     }
 
     /**
@@ -1262,84 +1894,62 @@ abstract class AbstractPAWrapper<T> {
         }
     }
 
+    /**
+     * Performs a parallel combine operation, just like combine(initialValue, accumulation) does.
+     * Additionally the caller provides a function to merge two accumulators for the same key, calculated from different parts of the collection.
+     * E.g. [['he', 1], ['she', 2], ['he', 2]].parallel.combine(0, {sum, value -> sum + value}, {sum1, sum2 -> sum1 + sum2})
+     * @param initialValue The initial value for an accumulator. Since it will be used repeatedly, it should be either an unmodifiable value, a cloneable instance or a closure returning a fresh initial/empty accumulator each time requested
+     * @param accumulation A two-argument closure, first argument being the accumulator and second holding the currently processed value. The closure is supposed to returned a modified accumulator after accumulating the value.
+     * @param merge A two-argument closure merging two accumulators, the first one calculated from elements preceding the elements of the second one
+     * @return A map holding the final accumulated values for each unique key in the original collection of tuples.
+     */
+    public Map combine(Object initialValue, Closure accumulation, Closure merge) {
+        switch (initialValue) {
+            case Closure: return combineImpl({it[0]}, {it[1]}, (Closure) initialValue, accumulation, merge)
+            case Cloneable: return combineImpl({it[0]}, {it[1]}, {initialValue.clone()}, accumulation, merge)
+            default: return combineImpl({it[0]}, {it[1]}, {initialValue}, accumulation, merge)
+        }
+    }
+
     public Map combineImpl(Closure initialValue, Closure accumulation) {
         combineImpl({it[0]}, {it[1]}, initialValue, accumulation)
     }
 
-    public Map combineImpl(extractKey, extractValue, Closure initialValue, Closure accumulation) {
-
-        def result = reduce {a, b ->
-            if (a in CombineHolder) {
-                if (b in CombineHolder) return a.merge(b, accumulation, initialValue)
-                else return a.addToMap(extractKey(b), extractValue(b), accumulation, initialValue)
-            } else {
-                def aKey = extractKey(a)
-                final Object aValue = extractValue(a)
-                if (b in CombineHolder) return b.addToMap(aKey, aValue, accumulation, initialValue)
-                else {
-                    def bKey = extractKey(b)
-                    final Object bValue = extractValue(b)
-
-                    if (aKey == bKey) {
-                        def c = accumulation(accumulation(initialValue(), aValue), bValue)
-                        return [(aKey): c] as CombineHolder
-                    }
-                    else {
-                        def c = accumulation(initialValue(), aValue)
-                        def holder = [(aKey): c] as CombineHolder
-                        return holder.addToMap(bKey, bValue, accumulation, initialValue)
-                    }
-                }
-            }
-        }
-        return result.getContent()
+    /**
+     * Each thread accumulates into its own hash map and the maps get merged in a parallel tree reduction.
+     * Without a merge closure, the values held by an accumulator get accumulated one by one into the other accumulator for the same key.
+     */
+    public Map combineImpl(extractKey, extractValue, Closure initialValue, Closure accumulation, Closure merge = null) {
+        currentPipeline().combine(extractKey as Closure, extractValue as Closure, initialValue, accumulation, merge)
     }
 
     /**
      * Applies concurrently the supplied function to all elements in the collection, returning a collection containing
      * the transformed values.
+     * The operation is lazy, the function is only applied once a terminal operation, like reduce(), sum() or getCollection(), is invoked.
+     * Consecutive map() and filter() operations get fused so that each element passes through all of them in a single parallel pass.
      * @param A closure calculating a transformed value from the original one
      * @return A collection holding the new values
      */
     public final AbstractPAWrapper map(Closure cl) {
-        new MappedPAWrapper(pa.withMapping(new ClosureMapper(new CallClosure(cl))))
+        new PAWrapper(pa, currentPipeline().map(cl))
     }
 
     /**
      * Filters concurrently elements in the collection based on the outcome of the supplied function on each of the elements.
+     * The operation is lazy, the function is only applied once a terminal operation, like reduce(), sum() or getCollection(), is invoked.
+     * Consecutive map() and filter() operations get fused so that each element passes through all of them in a single parallel pass.
      * @param A closure indicating whether to propagate the given element into the filtered collection
      * @return A collection holding the allowed values
      */
-    public AbstractPAWrapper filter(Closure cl) {
-//        new PAWrapper(pa.withFilter({cl(it)} as Predicate))
-        new PAWrapper(pa.withFilter(new ClosurePredicate(new CallClosure(cl))))
-    }
-}
-
-/**
- * Holds a temporary reduce result for groupBy
- */
-private class CombineHolder {
-
-    @Delegate final Map content
-
-    def CombineHolder(final content) {
-        this.content = content;
-    }
-
-    final CombineHolder merge(CombineHolder other, final Closure accumulation, final Closure initialValue) {
-        for (item in other.entrySet()) {
-            for (value in item.value) {
-                addToMap(item.key, value, accumulation, initialValue)
-            }
-        }
-        return this
+    public final AbstractPAWrapper filter(Closure cl) {
+        new PAWrapper(pa, currentPipeline().filter(cl))
     }
 
-    def CombineHolder addToMap(final Object key, final Object item, final Closure accumulation, final Closure initialValue) {
-        def currentValue = content[key] ?: initialValue()
-        content[key] = accumulation(currentValue, item)
-        return this
+    private FusedPipeline currentPipeline() {
+        if (pipeline) return pipeline
+        final ParallelArray source = pa instanceof ParallelArray ? pa : pa.all()
+        new FusedPipeline(source.array, source.size(), (ForkJoinPool) source.executor)
     }
 }
 
@@ -1348,23 +1958,6 @@ private class CombineHolder {
  */
 final class PAWrapper<T> extends AbstractPAWrapper {
     def PAWrapper(final pa) { super(pa) }
-}
-
-/**
- * The ParallelArray wrapper used after the map() operation
- */
-final class MappedPAWrapper<T> extends AbstractPAWrapper {
-
-    def MappedPAWrapper(final ParallelArray.WithMapping pa) {
-        super(pa)
-    }
 
-    /**
-     * Filters concurrently elements in the collection based on the outcome of the supplied function on each of the elements.
-     * @param A closure indicating whether to propagate the given element into the filtered collection
-     * @return A collection holding the allowed values
-     */
-    public final AbstractPAWrapper filter(Closure cl) {
-        new PAWrapper(pa.all().withFilter(new ClosurePredicate(new CallClosure(cl))))
-    }
+    def PAWrapper(final pa, final FusedPipeline pipeline) { super(pa, pipeline) }
 }
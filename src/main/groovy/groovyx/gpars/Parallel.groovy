@@ -249,6 +249,82 @@ final class Parallel {
         }
     }
 
+    /**
+     * Sorts the elements of the collection/object in parallel, keeping the original order of equal elements.
+     * The natural ordering of the elements is used.
+     * @return A new list holding the sorted elements
+     */
+    public def sortParallel() {
+        GParsPool.ensurePool(ParallelEnhancer.threadPool.forkJoinPool) {
+            GParsPoolUtil.sortParallel(getRealSelf())
+        }
+    }
+
+    /**
+     * Sorts the elements of the collection/object in parallel, keeping the original order of equal elements.
+     * If the supplied closure takes two arguments it is used directly as a comparator.
+     * If the supplied closure takes one argument, it is invoked only once for each element and the returned values are compared by the implicit comparator.
+     * @param cl A one or two-argument closure
+     * @return A new list holding the sorted elements
+     */
+    public def sortParallel(Closure cl) {
+        GParsPool.ensurePool(ParallelEnhancer.threadPool.forkJoinPool) {
+            GParsPoolUtil.sortParallel(getRealSelf(), cl)
+        }
+    }
+
+    /**
+     * Finds in parallel the k largest elements of the collection/object without sorting the whole collection.
+     * The natural ordering of the elements is used.
+     * @param k The number of elements to return
+     * @return A list of at most k elements, starting with the largest one
+     */
+    public def topKParallel(int k) {
+        GParsPool.ensurePool(ParallelEnhancer.threadPool.forkJoinPool) {
+            GParsPoolUtil.topKParallel(getRealSelf(), k)
+        }
+    }
+
+    /**
+     * Finds in parallel the k largest elements of the collection/object without sorting the whole collection.
+     * If the supplied closure takes two arguments it is used directly as a comparator.
+     * If the supplied closure takes one argument, it is invoked only once for each element and the returned values are compared by the implicit comparator.
+     * @param k The number of elements to return
+     * @param cl A one or two-argument closure
+     * @return A list of at most k elements, starting with the largest one
+     */
+    public def topKParallel(int k, Closure cl) {
+        GParsPool.ensurePool(ParallelEnhancer.threadPool.forkJoinPool) {
+            GParsPoolUtil.topKParallel(getRealSelf(), k, cl)
+        }
+    }
+
+    /**
+     * Finds in parallel the k smallest elements of the collection/object without sorting the whole collection.
+     * The natural ordering of the elements is used.
+     * @param k The number of elements to return
+     * @return A list of at most k elements, starting with the smallest one
+     */
+    public def bottomKParallel(int k) {
+        GParsPool.ensurePool(ParallelEnhancer.threadPool.forkJoinPool) {
+            GParsPoolUtil.bottomKParallel(getRealSelf(), k)
+        }
+    }
+
+    /**
+     * Finds in parallel the k smallest elements of the collection/object without sorting the whole collection.
+     * If the supplied closure takes two arguments it is used directly as a comparator.
+     * If the supplied closure takes one argument, it is invoked only once for each element and the returned values are compared by the implicit comparator.
+     * @param k The number of elements to return
+     * @param cl A one or two-argument closure
+     * @return A list of at most k elements, starting with the smallest one
+     */
+    public def bottomKParallel(int k, Closure cl) {
+        GParsPool.ensurePool(ParallelEnhancer.threadPool.forkJoinPool) {
+            GParsPoolUtil.bottomKParallel(getRealSelf(), k, cl)
+        }
+    }
+
     /**
      * Creates a Parallel Array out of the supplied collection/object and summarizes its elements using the foldParallel()
      * method with the + operator and the reduction operation.
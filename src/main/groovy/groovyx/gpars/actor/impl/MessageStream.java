@@ -280,9 +280,19 @@ public abstract class MessageStream extends WithSerialId {
             return message;
         }
 
+        /**
+         * Keeps the messages to the same target in order
+         *
+         * @return The target message stream
+         */
+        @Override
+        public Object getOrderingKey() {
+            return to;
+        }
+
         @Override
         public void execute(final RemoteConnection conn) {
-            to.send(message);
+            conn.deliver(to, message);
         }
     }
 }
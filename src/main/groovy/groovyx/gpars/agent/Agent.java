@@ -75,6 +75,18 @@ public class Agent<T> extends AgentBase<T> {
         super(data, copy);
     }
 
+    /**
+     * Creates a new Agent around the supplied modifiable object
+     * Snapshot agents publish a copy of the internal state after each processed message and serve getInstantVal() from it without locking.
+     *
+     * @param data      The object to use for storing the internal state of the variable
+     * @param copy      A closure to use to create a copy of the internal state when publishing a snapshot, or null to publish the state itself
+     * @param snapshots True, if reads should be served from lock-free snapshots
+     */
+    public Agent(final T data, final Closure copy, final boolean snapshots) {
+        super(data, copy, snapshots);
+    }
+
     /**
      * Dynamically dispatches the method call
      */
@@ -136,4 +148,58 @@ public class Agent<T> extends AgentBase<T> {
     public static <T> Agent<T> fairAgent(final T state, final Closure copy) {
         return Actors.defaultActorPGroup.fairAgent(state, copy);
     }
+
+    /**
+     * Creates an agent instance initialized with the given state, which serves instant reads from lock-free snapshots.
+     * The state should be immutable, since the very same instance is handed to all readers.
+     * The instance will use the default thread pool.
+     *
+     * @param state The initial internal state of the new Agent instance
+     * @return The created instance
+     */
+    @SuppressWarnings({"unchecked"})
+    public static <T> Agent<T> snapshotAgent(final T state) {
+        return Actors.defaultActorPGroup.snapshotAgent(state);
+    }
+
+    /**
+     * Creates an agent instance initialized with the given state, which serves instant reads from lock-free snapshots.
+     * The copy closure is invoked once per processed message to create the snapshot shared by all subsequent readers.
+     * The instance will use the default thread pool.
+     *
+     * @param state The initial internal state of the new Agent instance
+     * @param copy  A closure to use to create a copy of the internal state when publishing a snapshot
+     * @return The created instance
+     */
+    @SuppressWarnings({"unchecked"})
+    public static <T> Agent<T> snapshotAgent(final T state, final Closure copy) {
+        return Actors.defaultActorPGroup.snapshotAgent(state, copy);
+    }
+
+    /**
+     * Creates an agent instance initialized with the given state, which applies all pending messages in batches
+     * and runs validators and listeners once per batch.
+     * The instance will use the default thread pool.
+     *
+     * @param state The initial internal state of the new Agent instance
+     * @return The created instance
+     */
+    @SuppressWarnings({"unchecked"})
+    public static <T> BatchingAgent<T> batchingAgent(final T state) {
+        return Actors.defaultActorPGroup.batchingAgent(state);
+    }
+
+    /**
+     * Creates an agent instance initialized with the given state, which applies all pending messages in batches
+     * and runs validators and listeners once per batch.
+     * The instance will use the default thread pool.
+     *
+     * @param state    The initial internal state of the new Agent instance
+     * @param coalesce A two-argument closure merging adjacent pending messages into one or returning null to keep them apart
+     * @return The created instance
+     */
+    @SuppressWarnings({"unchecked"})
+    public static <T> BatchingAgent<T> batchingAgent(final T state, final Closure coalesce) {
+        return Actors.defaultActorPGroup.batchingAgent(state, coalesce);
+    }
 }
@@ -18,6 +18,7 @@ package groovyx.gpars.agent;
 
 import groovy.lang.Closure;
 import groovyx.gpars.dataflow.DataFlowVariable;
+import org.codehaus.groovy.runtime.InvokerInvocationException;
 import org.codehaus.groovy.runtime.NullObject;
 
 import java.util.Collection;
@@ -60,6 +61,26 @@ abstract class AgentBase<T> extends AgentCore {
      */
     private final Collection<Closure> validators = new CopyOnWriteArrayList<Closure>();
 
+    /**
+     * Indicates, whether the state is published to readers through the snapshot field instead of being guarded by the lock
+     */
+    private final boolean snapshots;
+
+    /**
+     * Holds the most recently published copy of the internal state, read without locking by getInstantVal()
+     */
+    private volatile T snapshot;
+
+    /**
+     * Set while a batch of messages is being processed to defer validation and notification till the end of the batch
+     */
+    private boolean batchInProgress = false;
+
+    /**
+     * Indicates, whether the internal state has been set by a message of the batch in progress
+     */
+    private boolean batchUpdated = false;
+
     AgentBase(final T data) {
         this(data, null);
     }
@@ -71,8 +92,32 @@ abstract class AgentBase<T> extends AgentCore {
      * @param copy A closure to use to create a copy of the internal state when sending the internal state out
      */
     AgentBase(final T data, final Closure copy) {
+        this(data, copy, false);
+    }
+
+    /**
+     * Creates a new Agent around the supplied modifiable object
+     * Snapshot agents publish a copy of the internal state through a volatile reference after each processed message.
+     * Reads through getInstantVal() then never lock, since updates remain serialized by the agent's message queue.
+     *
+     * @param data      The object to use for storing the internal state of the variable
+     * @param copy      A closure to use to create a copy of the internal state when sending the internal state out
+     * @param snapshots True, if the state should be published to readers as snapshots instead of being guarded by a lock
+     */
+    AgentBase(final T data, final Closure copy, final boolean snapshots) {
         this.data = data;
         this.copy = copy;
+        this.snapshots = snapshots;
+        if (snapshots) publishSnapshot();
+    }
+
+    /**
+     * Indicates, whether reads of the agent's state are served from lock-free snapshots
+     *
+     * @return True for snapshot agents
+     */
+    public final boolean isSnapshotting() {
+        return snapshots;
     }
 
     /**
@@ -81,6 +126,11 @@ abstract class AgentBase<T> extends AgentCore {
      * @param obj The received message
      */
     final void onMessage(final NullObject obj) {
+        if (snapshots) {
+            updateValue(null);
+            publishSnapshot();
+            return;
+        }
         lock.readLock().lock();
         try {
             updateValue(null);
@@ -95,6 +145,15 @@ abstract class AgentBase<T> extends AgentCore {
      * @param code The received message
      */
     final void onMessage(final Closure code) {
+        if (snapshots) {
+            try {
+                code.setDelegate(this);
+                code.call(copy != null ? copy.call(data) : data);
+            } finally {
+                publishSnapshot();
+            }
+            return;
+        }
         lock.writeLock().lock();
         try {
             code.setDelegate(this);
@@ -110,6 +169,11 @@ abstract class AgentBase<T> extends AgentCore {
      * @param message The received message
      */
     final void onMessage(final T message) {
+        if (snapshots) {
+            updateValue(message);
+            publishSnapshot();
+            return;
+        }
         lock.writeLock().lock();
         try {
             updateValue(message);
@@ -124,34 +188,99 @@ abstract class AgentBase<T> extends AgentCore {
      *
      * @param newValue The value to set the internal state to
      */
-    @SuppressWarnings({"unchecked", "CatchGenericClass"})
+    @SuppressWarnings({"unchecked"})
     public final void updateValue(final T newValue) {
+        if (batchInProgress) {
+            data = newValue;
+            batchUpdated = true;
+            return;
+        }
         final T oldValue = copy != null ? (T) copy.call(data) : data;
-        boolean validated = false;
+        if (validate(oldValue, newValue)) {
+            data = newValue;
+            notifyListeners(oldValue, newValue);
+        }
+    }
+
+    /**
+     * Processes a batch of messages taken from the message queue under a single lock acquisition.
+     * The messages are applied in order, validators and listeners are run only once for the whole batch with the state
+     * before the first and after the last message. If validation fails, the state is reverted to the value held before the batch.
+     *
+     * @param messages The messages to process
+     */
+    @SuppressWarnings({"unchecked", "CatchGenericClass", "ChainOfInstanceofChecks"})
+    final void onBatch(final Iterable<Object> messages) {
+        if (!snapshots) lock.writeLock().lock();
+        try {
+            final T oldValue = copy != null ? (T) copy.call(data) : data;
+            batchInProgress = true;
+            batchUpdated = false;
+            try {
+                for (final Object message : messages) {
+                    try {
+                        if (message instanceof Closure) {
+                            final Closure code = (Closure) message;
+                            code.setDelegate(this);
+                            code.call(copy != null ? copy.call(data) : data);
+                        } else if (message instanceof NullObject) updateValue(null);
+                        else updateValue((T) message);
+                    } catch (InvokerInvocationException e) {
+                        registerError((Exception) e.getCause());
+                    } catch (Exception e) {
+                        registerError(e);
+                    }
+                }
+            } finally {
+                batchInProgress = false;
+            }
+            if (batchUpdated) {
+                final T newValue = data;
+                if (validate(oldValue, newValue)) notifyListeners(oldValue, newValue);
+                else data = oldValue;
+            }
+            if (snapshots) publishSnapshot();
+        } finally {
+            if (!snapshots) lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Runs all validators against the proposed state change
+     *
+     * @param oldValue The current state
+     * @param newValue The proposed state
+     * @return True, if no validator rejected the change
+     */
+    @SuppressWarnings({"CatchGenericClass"})
+    private boolean validate(final T oldValue, final T newValue) {
         try {
             for (final Closure validator : validators) {
                 validator.call(new Object[]{oldValue, newValue});
             }
-            validated = true;
+            return true;
         } catch (Exception e) {
             registerError(e);
+            return false;
         }
-        if (validated) {
-            data = newValue;
-            for (final Closure listener : listeners) {
-                listener.call(new Object[]{oldValue, newValue});
-            }
+    }
+
+    private void notifyListeners(final T oldValue, final T newValue) {
+        for (final Closure listener : listeners) {
+            listener.call(new Object[]{oldValue, newValue});
         }
     }
 
     /**
      * A shorthand method for safe message-based retrieval of the internal state.
      * Retrieves the internal state immediately by-passing the queue of tasks waiting to be processed.
+     * Snapshot agents return the most recently published snapshot without locking, which must not be modified by the caller.
      *
      * @return The current value of the actor's state
      */
     @SuppressWarnings({"unchecked"})
     public final T getInstantVal() {
+        if (snapshots) return snapshot;
         lock.readLock().lock();
         try {
             return copy != null ? (T) copy.call(data) : data;
@@ -160,6 +289,15 @@ abstract class AgentBase<T> extends AgentCore {
         }
     }
 
+    /**
+     * Makes the current internal state visible to lock-free readers.
+     * Only ever called from the thread processing the agent's messages.
+     */
+    @SuppressWarnings({"unchecked"})
+    private void publishSnapshot() {
+        snapshot = copy != null ? (T) copy.call(data) : data;
+    }
+
     /**
      * A shorthand method for safe message-based retrieval of the internal state.
      * The request to retrieve a value is put into the message queue, so will wait for all messages delivered earlier to complete.
@@ -178,7 +316,7 @@ abstract class AgentBase<T> extends AgentCore {
      * @param callback A closure to invoke with the internal state as a parameter
      */
     public final void valAsync(final Closure callback) {
-        send(new Closure(this) {
+        send(new ReplyClosure(this) {
             private static final long serialVersionUID = 27598476470091452L;
 
             @Override
@@ -200,7 +338,7 @@ abstract class AgentBase<T> extends AgentCore {
     @SuppressWarnings({"unchecked"})
     final T sendAndWait(final Closure message) throws InterruptedException {
         final DataFlowVariable<Object> result = new DataFlowVariable<Object>();
-        this.send(new Closure(message.getOwner()) {
+        this.send(new ReplyClosure(message.getOwner()) {
             private static final long serialVersionUID = -4637623342002266534L;
 
             @Override
@@ -261,6 +399,17 @@ abstract class AgentBase<T> extends AgentCore {
 
     private static final Closure awaitClosure = new AwaitClosure();
 
+    /**
+     * Messages handing the agent's state over to a reader, which must not observe a partially applied batch of updates
+     */
+    abstract static class ReplyClosure extends Closure {
+        private static final long serialVersionUID = -6380153215329408651L;
+
+        ReplyClosure(final Object owner) {
+            super(owner);
+        }
+    }
+
     /**
      * Returns the current value of the Agent's state
      */
@@ -120,6 +120,15 @@ public abstract class AgentCore {
         send(message);
     }
 
+    /**
+     * Removes the next message from the agent's message queue without processing it
+     *
+     * @return The head message, or null, if the message queue is empty
+     */
+    final Object sweepNextMessage() {
+        return core.sweepNextMessage();
+    }
+
     /**
      * Dynamically dispatches the method call
      *
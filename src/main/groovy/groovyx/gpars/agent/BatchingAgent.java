@@ -0,0 +1,122 @@
+// GPars - Groovy Parallel Systems
+//
+// Copyright © 2008-10  The original author or authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package groovyx.gpars.agent;
+
+import groovy.lang.Closure;
+import org.codehaus.groovy.runtime.NullObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An agent, which drains all messages pending in its message queue and applies them in a single pass.
+ * The whole batch is processed under one lock acquisition and validators and listeners are run only once per batch
+ * with the state before the first and after the last message of the batch.
+ * Should a validator reject the final state, the whole batch gets reverted.
+ * Requests for the agent's state, such as val, await() or valAsync(), start a new batch and so never observe a batch
+ * before its validation.
+ * An optional coalescing closure can merge adjacent pending messages before they are applied. It receives two messages
+ * in the order they were sent and returns either a single message replacing both or null to keep them apart.
+ * Batching agents suit counters and aggregations receiving many small updates, which need not be observed individually.
+ */
+public class BatchingAgent<T> extends Agent<T> {
+
+    /**
+     * Limits the number of messages processed in one batch so that listeners get notified regularly under heavy load
+     */
+    private static final int MAX_BATCH_SIZE = 1000;
+
+    private final Closure coalesce;
+
+    /**
+     * Creates a new BatchingAgent with the internal state set to null
+     */
+    public BatchingAgent() {
+        this(null);
+    }
+
+    /**
+     * Creates a new BatchingAgent around the supplied modifiable object
+     *
+     * @param data The object to use for storing the internal state of the variable
+     */
+    public BatchingAgent(final T data) {
+        this(data, null, null);
+    }
+
+    /**
+     * Creates a new BatchingAgent around the supplied modifiable object
+     *
+     * @param data     The object to use for storing the internal state of the variable
+     * @param copy     A closure to use to create a copy of the internal state when sending the internal state out
+     * @param coalesce A two-argument closure merging adjacent pending messages, or null to apply all messages as sent
+     */
+    public BatchingAgent(final T data, final Closure copy, final Closure coalesce) {
+        super(data, copy);
+        if (coalesce != null && coalesce.getMaximumNumberOfParameters() != 2)
+            throw new IllegalArgumentException("The coalescing closure of a BatchingAgent must take two arguments.");
+        this.coalesce = coalesce;
+    }
+
+    /**
+     * Collects the message together with all other messages pending in the queue and processes them as one batch.
+     * Messages reading the agent's state, like val or valAsync(), end the batch, so that readers only see validated state.
+     */
+    @Override
+    public void handleMessage(final Object message) {
+        Object first = message;
+        int drained = 1;
+        while (first != null) {
+            final List<Object> batch = new ArrayList<Object>();
+            batch.add(first);
+            first = null;
+            Object next;
+            while (drained < MAX_BATCH_SIZE && (next = sweepNextMessage()) != null) {
+                drained++;
+                if (next instanceof ReplyClosure) {
+                    first = next;
+                    break;
+                }
+                add(batch, next);
+            }
+            onBatch(batch);
+        }
+    }
+
+    /**
+     * Appends the message to the batch, merging it with the last message of the batch, if the coalescing closure allows for it
+     */
+    @SuppressWarnings({"CatchGenericClass"})
+    private void add(final List<Object> batch, final Object message) {
+        if (coalesce != null && !(message instanceof NullObject)) {
+            final int last = batch.size() - 1;
+            final Object previous = batch.get(last);
+            if (!(previous instanceof NullObject)) {
+                try {
+                    final Object merged = coalesce.call(new Object[]{previous, message});
+                    if (merged != null) {
+                        batch.set(last, merged);
+                        return;
+                    }
+                } catch (Exception e) {
+                    registerError(e);
+                }
+            }
+        }
+        batch.add(message);
+    }
+}
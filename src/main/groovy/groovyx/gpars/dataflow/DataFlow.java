@@ -18,6 +18,8 @@ package groovyx.gpars.dataflow;
 
 import groovy.lang.Closure;
 import groovyx.gpars.actor.Actor;
+import groovyx.gpars.dataflow.impl.AllOfCallback;
+import groovyx.gpars.dataflow.impl.AnyOfCallback;
 import groovyx.gpars.dataflow.operator.DataFlowProcessor;
 import groovyx.gpars.group.PGroup;
 
@@ -297,4 +299,30 @@ public abstract class DataFlow {
     public static Select<?> select(final DataFlowChannel<?>... channels) {
         return DataFlow.DATA_FLOW_GROUP.select(channels);
     }
+
+    /**
+     * Creates a variable, which gets bound to the list of values of all the supplied channels once they all become available.
+     * The values keep the order of the channels. A single listener is shared by all the channels,
+     * so no task or thread is allocated per channel.
+     *
+     * @param channels Dataflow variables or streams to wait for values on
+     * @return A variable holding the list of values
+     */
+    public static DataFlowVariable<List<Object>> allOf(final List<? extends DataFlowReadChannel<?>> channels) {
+        final DataFlowVariable<List<Object>> result = new DataFlowVariable<List<Object>>();
+        new AllOfCallback(channels.size(), result).subscribe(channels);
+        return result;
+    }
+
+    /**
+     * Creates a variable, which gets bound to the first value available in any of the supplied channels.
+     *
+     * @param channels Dataflow variables or streams to wait for values on
+     * @return A variable holding the first available value
+     */
+    public static <T> DataFlowVariable<T> anyOf(final List<? extends DataFlowReadChannel<? extends T>> channels) {
+        final DataFlowVariable<T> result = new DataFlowVariable<T>();
+        new AnyOfCallback<T>(result).subscribe(channels);
+        return result;
+    }
 }
@@ -0,0 +1,33 @@
+// GPars - Groovy Parallel Systems
+//
+// Copyright © 2008-10  The original author or authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package groovyx.gpars.dataflow;
+
+/**
+ * Indicates that a dataflow expression has been bound to an error instead of a value.
+ * The exception is thrown from getVal() and it is the message delivered to asynchronous listeners
+ * registered through getValAsync() or whenBound(). The original failure is available as the cause.
+ */
+public final class DataFlowException extends RuntimeException {
+    private static final long serialVersionUID = -2254817634561038524L;
+
+    /**
+     * @param cause The original failure
+     */
+    public DataFlowException(final Throwable cause) {
+        super("The dataflow expression has been bound to an error: " + cause, cause);
+    }
+}
@@ -22,6 +22,9 @@ import groovy.lang.MetaClass;
 import groovy.lang.MetaProperty;
 import groovyx.gpars.actor.Actors;
 import groovyx.gpars.actor.impl.MessageStream;
+import groovyx.gpars.dataflow.impl.ThenCallback;
+import groovyx.gpars.dataflow.impl.TimeoutCallback;
+import groovyx.gpars.group.PGroup;
 import groovyx.gpars.remote.RemoteConnection;
 import groovyx.gpars.remote.RemoteHost;
 import groovyx.gpars.serial.SerialContext;
@@ -78,6 +81,11 @@ public abstract class DataFlowExpression<T> extends WithSerialId implements Groo
     @SuppressWarnings({"InstanceVariableMayNotBeInitialized"})
     protected volatile T value;
 
+    /**
+     * Holds the error, if the expression has been bound to an error instead of a value
+     */
+    private volatile DataFlowException error;
+
     /**
      * Holds the current state of the variable
      */
@@ -99,6 +107,7 @@ public abstract class DataFlowExpression<T> extends WithSerialId implements Groo
 
     /**
      * A logical representation of a synchronous or asynchronous request to read the value once it is bound.
+     * The flag gets set once the request has been served or cancelled due to a timeout or an interruption.
      */
     private static final class WaitingThread extends AtomicBoolean {
         private static final long serialVersionUID = 8909974768784947460L;
@@ -107,6 +116,11 @@ public abstract class DataFlowExpression<T> extends WithSerialId implements Groo
         private final MessageStream callback;
         private final Object attachment;
 
+        /**
+         * The next (later) request in the chain, only set and used by the binding thread to serve requests in FIFO order
+         */
+        private WaitingThread next;
+
         /**
          * Creates a representation of the request to read the value once it is bound
          *
@@ -145,6 +159,24 @@ public abstract class DataFlowExpression<T> extends WithSerialId implements Groo
         return state == S_INITIALIZED;
     }
 
+    /**
+     * Check if the expression has been bound to an error instead of a value
+     *
+     * @return true if bound to an error
+     */
+    public final boolean isError() {
+        return state == S_INITIALIZED && error != null;
+    }
+
+    /**
+     * Retrieves the error the expression has been bound to
+     *
+     * @return The error or null, if the expression is not bound or holds a value
+     */
+    public final DataFlowException getError() {
+        return state == S_INITIALIZED ? error : null;
+    }
+
     /**
      * Asynchronously retrieves the value of the variable. Sends the actual value of the variable as a message
      * back the the supplied actor once the value has been bound.
@@ -223,6 +255,7 @@ public abstract class DataFlowExpression<T> extends WithSerialId implements Groo
      *
      * @return The actual value
      * @throws InterruptedException If the current thread gets interrupted while waiting for the variable to be bound
+     * @throws DataFlowException    If the variable has been bound to an error
      */
     @Override
     public final T getVal() throws InterruptedException {
@@ -249,7 +282,7 @@ public abstract class DataFlowExpression<T> extends WithSerialId implements Groo
             }
         }
 
-        return value;
+        return boundValue();
     }
 
     /**
@@ -259,6 +292,7 @@ public abstract class DataFlowExpression<T> extends WithSerialId implements Groo
      * @param units   Units for the timeout
      * @return The actual value
      * @throws InterruptedException If the current thread gets interrupted while waiting for the variable to be bound
+     * @throws DataFlowException    If the variable has been bound to an error
      */
     @Override
     public final T getVal(final long timeout, final TimeUnit units) throws InterruptedException {
@@ -282,6 +316,7 @@ public abstract class DataFlowExpression<T> extends WithSerialId implements Groo
                     final long toWait = endNano - System.nanoTime();
                     if (toWait <= 0) {
                         newWaiting.set(true); // don't unpark please
+                        removeCancelledWaiters();
                         return null;
                     }
 
@@ -292,6 +327,17 @@ public abstract class DataFlowExpression<T> extends WithSerialId implements Groo
             }
         }
 
+        return boundValue();
+    }
+
+    /**
+     * Returns the bound value or throws the error the expression has been bound to
+     *
+     * @return The bound value
+     */
+    private T boundValue() {
+        final DataFlowException currentError = error;
+        if (currentError != null) throw currentError;
         return value;
     }
 
@@ -307,11 +353,40 @@ public abstract class DataFlowExpression<T> extends WithSerialId implements Groo
         else return null;
     }
 
-    private static void handleInterruption(final AtomicBoolean newWaiting) throws InterruptedException {
+    private void handleInterruption(final AtomicBoolean newWaiting) throws InterruptedException {
         newWaiting.set(true); // don't unpark please
+        removeCancelledWaiters();
         throw new InterruptedException();
     }
 
+    /**
+     * Unlinks the cancelled requests from the chain of waiting requests, so that variables read repeatedly with a timeout
+     * do not accumulate dead requests while staying unbound.
+     * New requests are only ever pushed to the head, so interior nodes can be unlinked with plain writes.
+     * Concurrent cleanups may occasionally resurrect a cancelled request, which is harmless, since its flag has been set.
+     * Requests, which have not been cancelled, are never unlinked.
+     */
+    private void removeCancelledWaiters() {
+        WaitingThread head = waiting;
+        while (head != null && head != dummyWaitingThread && head.get()) {
+            waitingUpdater.compareAndSet(this, head, head.previous);
+            head = waiting;
+        }
+        if (head == null || head == dummyWaitingThread) return;
+
+        WaitingThread predecessor = head;
+        WaitingThread current = head.previous;
+        while (current != null) {
+            final WaitingThread previous = current.previous;
+            if (current.get()) {
+                predecessor.previous = previous;
+            } else {
+                predecessor = current;
+            }
+            current = previous;
+        }
+    }
+
     /**
      * Assigns a value to the variable. Returns silently if invoked on an already bound variable.
      *
@@ -340,6 +415,7 @@ public abstract class DataFlowExpression<T> extends WithSerialId implements Groo
                     if (value.equals(boundValue)) return;
                 }
             } catch (InterruptedException ignore) {
+            } catch (DataFlowException ignore) {
             }  //Can ignore since will throw an IllegalStateException below
             throw new IllegalStateException("A DataFlowVariable can only be assigned once. Only re-assignments to an equal value are allowed.");
         }
@@ -362,6 +438,44 @@ public abstract class DataFlowExpression<T> extends WithSerialId implements Groo
         doBind(value);
     }
 
+    /**
+     * Binds the variable to an error instead of a value. Blocked readers as well as future calls to getVal() will throw
+     * a DataFlowException holding the supplied error as its cause, asynchronous listeners receive the DataFlowException as the message.
+     * Throws exception if invoked on an already bound variable.
+     *
+     * @param cause The failure preventing the value from being calculated
+     */
+    public final void bindError(final Throwable cause) {
+        if (!stateUpdater.compareAndSet(this, S_NOT_INITIALIZED, S_INITIALIZING)) {
+            throw new IllegalStateException("A DataFlowVariable can only be assigned once. It cannot be bound to an error after it has been bound.", cause);
+        }
+        doBindError(cause);
+    }
+
+    /**
+     * Binds the variable to an error instead of a value. Returns silently if invoked on an already bound variable.
+     *
+     * @param cause The failure preventing the value from being calculated
+     */
+    public final void bindErrorSafely(final Throwable cause) {
+        if (!stateUpdater.compareAndSet(this, S_NOT_INITIALIZED, S_INITIALIZING)) {
+            return;
+        }
+        doBindError(cause);
+    }
+
+    /**
+     * Stores the error and wakes up all waiting readers and listeners.
+     * Errors already wrapped in a DataFlowException are reused, so that a failure keeps its identity as it travels through a network.
+     *
+     * @param cause The failure to bind
+     */
+    private void doBindError(final Throwable cause) {
+        this.error = cause instanceof DataFlowException ? (DataFlowException) cause : new DataFlowException(cause);
+        doBindImpl(null);
+        notifyRemote(null);
+    }
+
     /**
      * Performs the actual bind operation, unblocks all blocked threads and informs all asynchronously waiting actors.
      *
@@ -379,18 +493,26 @@ public abstract class DataFlowExpression<T> extends WithSerialId implements Groo
         final WaitingThread waitingQueue = waitingUpdater.getAndSet(this, dummyWaitingThread);
 
         // no more new waiting threads since that point
+        // the chain is linked from the latest request backwards, so link it forward to serve the requests in FIFO order
+        WaitingThread first = null;
         for (WaitingThread currentWaiting = waitingQueue; currentWaiting != null; currentWaiting = currentWaiting.previous) {
+            currentWaiting.next = first;
+            first = currentWaiting;
+        }
+
+        // wake up all blocked threads first, so that they do not wait for the callbacks, which may run in this thread
+        for (WaitingThread currentWaiting = first; currentWaiting != null; currentWaiting = currentWaiting.next) {
             // maybe currentWaiting thread canceled or was interrupted
-            if (currentWaiting.compareAndSet(false, true)) {
-                if (currentWaiting.thread != null) {
-                    // can be potentially called on a non-parked thread,
-                    // which is OK as in this case next park () will be ignored
-                    LockSupport.unpark(currentWaiting.thread);
-                } else {
-                    if (currentWaiting.callback != null) {
-                        scheduleCallback(currentWaiting.attachment, currentWaiting.callback);
-                    }
-                }
+            if (currentWaiting.thread != null && currentWaiting.compareAndSet(false, true)) {
+                // can be potentially called on a non-parked thread,
+                // which is OK as in this case next park () will be ignored
+                LockSupport.unpark(currentWaiting.thread);
+            }
+        }
+
+        for (WaitingThread currentWaiting = first; currentWaiting != null; currentWaiting = currentWaiting.next) {
+            if (currentWaiting.callback != null && currentWaiting.compareAndSet(false, true)) {
+                scheduleCallback(currentWaiting.attachment, currentWaiting.callback);
             }
         }
     }
@@ -399,10 +521,15 @@ public abstract class DataFlowExpression<T> extends WithSerialId implements Groo
      * Binds the value after receiving a bing message over the wire
      *
      * @param hostId  Id of the bind originator host
-     * @param message The value to bind
+     * @param message The value to bind, a DataFlowException represents an error
      */
     public final void doBindRemote(final UUID hostId, final T message) {
-        doBindImpl(message);
+        if (message instanceof DataFlowException) {
+            this.error = (DataFlowException) message;
+            doBindImpl(null);
+        } else {
+            doBindImpl(message);
+        }
         notifyRemote(hostId);
     }
 
@@ -417,11 +544,12 @@ public abstract class DataFlowExpression<T> extends WithSerialId implements Groo
                 @Override
                 @SuppressWarnings("unchecked")
                 public void run() {
+                    final Object result = error != null ? error : value;
                     final Object sub = serialHandle.getSubscribers();
                     if (sub instanceof RemoteHost) {
                         final RemoteHost host = (RemoteHost) sub;
                         if (hostId == null || !host.getHostId().equals(hostId)) {
-                            host.write(new BindDataFlow(DataFlowExpression.this, value, host.getLocalHost().getId()));
+                            host.write(new BindDataFlow(DataFlowExpression.this, result, host.getLocalHost().getId()));
                         }
                     }
                     if (sub instanceof List) {
@@ -429,7 +557,7 @@ public abstract class DataFlowExpression<T> extends WithSerialId implements Groo
                         synchronized (serialHandle) {
                             for (final SerialContext host : (List<SerialContext>) sub) {
                                 if (hostId == null || !host.getHostId().equals(hostId)) {
-                                    host.write(new BindDataFlow(DataFlowExpression.this, value, host.getLocalHostId()));
+                                    host.write(new BindDataFlow(DataFlowExpression.this, result, host.getLocalHostId()));
                                 }
                             }
                         }
@@ -449,12 +577,13 @@ public abstract class DataFlowExpression<T> extends WithSerialId implements Groo
      */
     @SuppressWarnings({"TypeMayBeWeakened"})
     private void scheduleCallback(final Object attachment, final MessageStream callback) {
+        final Object result = error != null ? error : value;
         if (attachment == null) {
-            callback.send(value);
+            callback.send(result);
         } else {
             final Map<String, Object> message = new HashMap<String, Object>(2);
             message.put(ATTACHMENT, attachment);
-            message.put(RESULT, value);
+            message.put(RESULT, result);
             callback.send(message);
         }
     }
@@ -475,6 +604,7 @@ public abstract class DataFlowExpression<T> extends WithSerialId implements Groo
      * Schedule closure to be executed by pooled actor after data becomes available
      * It is important to notice that even if data already available the execution of closure
      * will not happen immediately but will be scheduled.
+     * If the expression gets bound to an error, the closure receives the DataFlowException instead of a value.
      *
      * @param closure closure to execute when data available
      */
@@ -513,6 +643,132 @@ public abstract class DataFlowExpression<T> extends WithSerialId implements Groo
         whenBound(stream);
     }
 
+    /**
+     * Creates a new variable, which gets bound to the result of the supplied closure applied to the value of this expression.
+     * No thread is blocked waiting for the value. The closure runs in the thread that binds this expression
+     * or in the calling thread, if the expression has already been bound, so it should be short and non-blocking.
+     * Errors bound to this expression or thrown by the closure get bound to the new variable.
+     *
+     * @param closure The transformation to apply to the bound value
+     * @param <V>     The type of the transformed value
+     * @return A variable holding the transformed value
+     */
+    @SuppressWarnings({"ClassReferencesSubclass"})
+    public final <V> DataFlowVariable<V> then(final Closure closure) {
+        return then(null, closure);
+    }
+
+    /**
+     * Creates a new variable, which gets bound to the result of the supplied closure applied to the value of this expression.
+     * No thread is blocked waiting for the value. The closure is scheduled on the thread pool of the supplied parallel group
+     * once the expression gets bound.
+     *
+     * @param group   The parallel group to run the closure in, null to run in the binding thread
+     * @param closure The transformation to apply to the bound value
+     * @param <V>     The type of the transformed value
+     * @return A variable holding the transformed value
+     */
+    @SuppressWarnings({"ClassReferencesSubclass"})
+    public final <V> DataFlowVariable<V> then(final PGroup group, final Closure closure) {
+        final DataFlowVariable<V> result = new DataFlowVariable<V>();
+        getValAsync(new ThenCallback(closure, group, result, false));
+        return result;
+    }
+
+    /**
+     * Creates a new variable, which gets bound to the value of the dataflow expression returned from the supplied closure.
+     * The closure is applied to the value of this expression in the binding thread. Allows asynchronous computations
+     * to be chained without nesting variables.
+     *
+     * @param closure The transformation returning a dataflow expression or a plain value
+     * @param <V>     The type of the resulting value
+     * @return A variable holding the value of the expression returned from the closure
+     */
+    @SuppressWarnings({"ClassReferencesSubclass"})
+    public final <V> DataFlowVariable<V> flatMap(final Closure closure) {
+        return flatMap(null, closure);
+    }
+
+    /**
+     * Creates a new variable, which gets bound to the value of the dataflow expression returned from the supplied closure.
+     * The closure is applied to the value of this expression in the thread pool of the supplied parallel group.
+     *
+     * @param group   The parallel group to run the closure in, null to run in the binding thread
+     * @param closure The transformation returning a dataflow expression or a plain value
+     * @param <V>     The type of the resulting value
+     * @return A variable holding the value of the expression returned from the closure
+     */
+    @SuppressWarnings({"ClassReferencesSubclass"})
+    public final <V> DataFlowVariable<V> flatMap(final PGroup group, final Closure closure) {
+        final DataFlowVariable<V> result = new DataFlowVariable<V>();
+        getValAsync(new ThenCallback(closure, group, result, true));
+        return result;
+    }
+
+    /**
+     * Creates a new variable, which gets bound to the value of this expression or, if this expression gets bound to an error,
+     * to the result of the supplied closure applied to the original cause of the error.
+     * A dataflow expression returned from the closure gets unwrapped. The closure runs in the binding thread.
+     *
+     * @param closure The error handler calculating a replacement value
+     * @return A variable holding the value of this expression or the replacement value
+     */
+    @SuppressWarnings({"ClassReferencesSubclass"})
+    public final DataFlowVariable<T> recover(final Closure closure) {
+        return recover(null, closure);
+    }
+
+    /**
+     * Creates a new variable, which gets bound to the value of this expression or, if this expression gets bound to an error,
+     * to the result of the supplied closure applied to the original cause of the error.
+     * A dataflow expression returned from the closure gets unwrapped. The closure runs in the supplied parallel group.
+     *
+     * @param group   The parallel group to run the closure in, null to run in the binding thread
+     * @param closure The error handler calculating a replacement value
+     * @return A variable holding the value of this expression or the replacement value
+     */
+    @SuppressWarnings({"ClassReferencesSubclass"})
+    public final DataFlowVariable<T> recover(final PGroup group, final Closure closure) {
+        final DataFlowVariable<T> result = new DataFlowVariable<T>();
+        getValAsync(new ThenCallback(closure, group, result, true, true));
+        return result;
+    }
+
+    /**
+     * Creates a new variable, which gets bound to the value of this expression, if it gets bound in time.
+     * Otherwise the new variable gets bound to an error with a TimeoutException as its cause. No thread is blocked while waiting.
+     *
+     * @param timeout The timeout value
+     * @param units   Units for the timeout
+     * @return A variable holding the value of this expression or the timeout error
+     */
+    @SuppressWarnings({"ClassReferencesSubclass"})
+    public final DataFlowVariable<T> orTimeout(final long timeout, final TimeUnit units) {
+        final DataFlowVariable<T> result = new DataFlowVariable<T>();
+        final TimeoutCallback<T> callback = new TimeoutCallback<T>(result);
+        callback.schedule(timeout, units);
+        getValAsync(callback);
+        return result;
+    }
+
+    /**
+     * Creates a new variable, which gets bound either to the value of this expression or to the supplied timeout value,
+     * whichever comes first. No thread is blocked while waiting.
+     *
+     * @param timeout      The timeout value
+     * @param units        Units for the timeout
+     * @param timeoutValue The value to bind if this expression does not get bound in time
+     * @return A variable holding the value of this expression or the timeout value
+     */
+    @SuppressWarnings({"ClassReferencesSubclass"})
+    public final DataFlowVariable<T> orTimeout(final long timeout, final TimeUnit units, final T timeoutValue) {
+        final DataFlowVariable<T> result = new DataFlowVariable<T>();
+        final TimeoutCallback<T> callback = new TimeoutCallback<T>(result, timeoutValue);
+        callback.schedule(timeout, units);
+        getValAsync(callback);
+        return result;
+    }
+
     public static <V> DataFlowExpression<V> transform(final Object another, final Closure closure) {
         final int pnum = closure.getMaximumNumberOfParameters();
         if (pnum == 0) {
@@ -600,11 +856,17 @@ public abstract class DataFlowExpression<T> extends WithSerialId implements Groo
     final class DataFlowExpressionsCollector extends MessageStream {
         private static final long serialVersionUID = 3414942165521113575L;
         private final AtomicInteger count = new AtomicInteger(1);
+        private volatile DataFlowException failure;
 
         @Override
         public MessageStream send(final Object message) {
+            if (message instanceof DataFlowException) {
+                //fail fast, no need to wait for the remaining expressions
+                failure = (DataFlowException) message;
+                bindErrorSafely(failure);
+            }
             if (count.decrementAndGet() == 0) {
-                bind(evaluate());
+                complete();
             }
             return this;
         }
@@ -616,6 +878,7 @@ public abstract class DataFlowExpression<T> extends WithSerialId implements Groo
 
             final DataFlowExpression<?> dataFlowExpression = (DataFlowExpression<?>) element;
             if (dataFlowExpression.state == S_INITIALIZED) {
+                if (dataFlowExpression.error != null) failure = dataFlowExpression.error;
                 return dataFlowExpression.value;
             }
 
@@ -627,9 +890,28 @@ public abstract class DataFlowExpression<T> extends WithSerialId implements Groo
 
         void start() {
             if (count.decrementAndGet() == 0) {
-                doBind(evaluate());
+                complete();
             }
         }
+
+        /**
+         * Binds the evaluated expression or the error, if any of the expressions we depend on or the evaluation itself failed
+         */
+        @SuppressWarnings({"CatchGenericClass"})
+        private void complete() {
+            if (failure != null) {
+                bindErrorSafely(failure);
+                return;
+            }
+            final T result;
+            try {
+                result = evaluate();
+            } catch (Exception e) {
+                bindErrorSafely(e);
+                return;
+            }
+            bind(result);
+        }
     }
 
     @SuppressWarnings({"ArithmeticOnVolatileField"})
@@ -698,6 +980,16 @@ public abstract class DataFlowExpression<T> extends WithSerialId implements Groo
             this.message = message;
         }
 
+        /**
+         * Keeps the binds of the same expression in order
+         *
+         * @return The expression to bind
+         */
+        @Override
+        public Object getOrderingKey() {
+            return expr;
+        }
+
         /**
          * Performs the actual bind on the remote host
          *
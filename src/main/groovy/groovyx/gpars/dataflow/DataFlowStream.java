@@ -80,7 +80,11 @@ public final class DataFlowStream<T> implements DataFlowChannel<T> {
 
             @Override
             public MessageStream send(final Object message) {
-                originalRef.bind((T) message);
+                if (message instanceof DataFlowException) {
+                    originalRef.bindError((Throwable) message);
+                } else {
+                    originalRef.bind((T) message);
+                }
                 return this;
             }
         });
@@ -109,6 +113,16 @@ public final class DataFlowStream<T> implements DataFlowChannel<T> {
         hookWheneverBoundListeners(retrieveForBind()).bind(value);
     }
 
+    /**
+     * Adds a DataFlowVariable holding the passed in error to the buffer.
+     *
+     * @param cause The failure to bind to the head of the stream
+     */
+    @Override
+    public void bindError(final Throwable cause) {
+        hookWheneverBoundListeners(retrieveForBind()).bindError(cause);
+    }
+
     /**
      * Hooks the registered when bound handlers to the supplied dataflow expression
      *
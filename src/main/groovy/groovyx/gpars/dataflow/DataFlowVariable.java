@@ -68,7 +68,11 @@ public class DataFlowVariable<T> extends DataFlowExpression<T> implements DataFl
             @SuppressWarnings({"unchecked"})
             @Override
             public MessageStream send(final Object message) {
-                bind((T) message);
+                if (message instanceof DataFlowException) {
+                    bindError((Throwable) message);
+                } else {
+                    bind((T) message);
+                }
                 return this;
             }
         });
@@ -39,6 +39,13 @@ public interface DataFlowWriteChannel<T> {
      */
     void bind(final T value);
 
+    /**
+     * Binds an error instead of a value. Readers of the value will get a DataFlowException holding the supplied error as its cause.
+     *
+     * @param cause The failure preventing the value from being calculated
+     */
+    void bindError(final Throwable cause);
+
     /**
      * Assigns a value from one DataFlowVariable instance to this variable.
      * Can only be invoked once on each instance of DataFlowVariable
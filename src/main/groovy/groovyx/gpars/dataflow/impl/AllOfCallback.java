@@ -0,0 +1,89 @@
+// GPars - Groovy Parallel Systems
+//
+// Copyright © 2008-10  The original author or authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package groovyx.gpars.dataflow.impl;
+
+import groovyx.gpars.actor.impl.MessageStream;
+import groovyx.gpars.dataflow.DataFlowException;
+import groovyx.gpars.dataflow.DataFlowReadChannel;
+import groovyx.gpars.dataflow.DataFlowVariable;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A single listener registered with all the input channels of DataFlow.allOf().
+ * Each channel is subscribed with its index as an attachment, so the values are collected in the original order
+ * without creating a task or a listener per channel. The last arriving value binds the list of results.
+ * The first error arriving from any of the channels is bound to the result immediately.
+ */
+@SuppressWarnings({"rawtypes", "RawUseOfParameterizedType"})
+public final class AllOfCallback extends MessageStream {
+    private static final long serialVersionUID = 4296539178637213358L;
+    private final Object[] values;
+    private final AtomicInteger remaining;
+    private final DataFlowVariable<List<Object>> result;
+
+    /**
+     * @param size   The number of channels to wait for
+     * @param result The variable to bind the list of values to
+     */
+    public AllOfCallback(final int size, final DataFlowVariable<List<Object>> result) {
+        this.values = new Object[size];
+        this.remaining = new AtomicInteger(size);
+        this.result = result;
+    }
+
+    /**
+     * Subscribes with all the channels. Binds an empty list straight away, if no channels have been supplied.
+     *
+     * @param channels The channels to wait for
+     */
+    public void subscribe(final List<? extends DataFlowReadChannel<?>> channels) {
+        if (channels.isEmpty()) {
+            result.bind(Arrays.asList(values));
+            return;
+        }
+        int index = 0;
+        for (final DataFlowReadChannel<?> channel : channels) {
+            channel.getValAsync(index, this);
+            index++;
+        }
+    }
+
+    /**
+     * Invoked by the channels with a map holding the channel index and the bound value
+     *
+     * @param message The map with the attachment and the result
+     * @return This instance
+     */
+    @Override
+    public MessageStream send(final Object message) {
+        final Map map = (Map) message;
+        final Object value = map.get("result");
+        if (value instanceof DataFlowException) {
+            result.bindErrorSafely((Throwable) value);
+        } else {
+            values[(Integer) map.get("attachment")] = value;
+        }
+        if (remaining.decrementAndGet() == 0) {
+            result.bindSafely(Arrays.asList(values));
+        }
+        return this;
+    }
+}
@@ -0,0 +1,70 @@
+// GPars - Groovy Parallel Systems
+//
+// Copyright © 2008-10  The original author or authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package groovyx.gpars.dataflow.impl;
+
+import groovyx.gpars.actor.impl.MessageStream;
+import groovyx.gpars.dataflow.DataFlowException;
+import groovyx.gpars.dataflow.DataFlowReadChannel;
+import groovyx.gpars.dataflow.DataFlowVariable;
+
+import java.util.List;
+
+/**
+ * A single listener registered with all the input channels of DataFlow.anyOf().
+ * The first value or error to arrive gets bound to the result, all later values are ignored.
+ */
+public final class AnyOfCallback<T> extends MessageStream {
+    private static final long serialVersionUID = -5384079282136719430L;
+    private final DataFlowVariable<T> result;
+
+    /**
+     * @param result The variable to bind the first available value to
+     */
+    public AnyOfCallback(final DataFlowVariable<T> result) {
+        this.result = result;
+    }
+
+    /**
+     * Subscribes with all the channels
+     *
+     * @param channels The channels to wait for
+     */
+    public void subscribe(final List<? extends DataFlowReadChannel<? extends T>> channels) {
+        if (channels.isEmpty()) throw new IllegalArgumentException("At least one channel is required to wait for any of them.");
+        for (final DataFlowReadChannel<? extends T> channel : channels) {
+            if (result.isBound()) return;
+            channel.getValAsync(this);
+        }
+    }
+
+    /**
+     * Invoked by the channels with the bound value
+     *
+     * @param message The bound value
+     * @return This instance
+     */
+    @SuppressWarnings({"unchecked"})
+    @Override
+    public MessageStream send(final Object message) {
+        if (message instanceof DataFlowException) {
+            result.bindErrorSafely((Throwable) message);
+        } else {
+            result.bindSafely((T) message);
+        }
+        return this;
+    }
+}
@@ -95,7 +95,7 @@ public final class SelectBase<T> {
                     if (value != null) {
                         pendingRequests.remove(selectRequest);
                         disableDFV(index, channel);
-                        selectRequest.valueFound(index, value.getVal());
+                        selectRequest.valueFound(index, SelectBase.<T>retrieveValue(value));
                         return;
                     }
                 }
@@ -123,7 +123,7 @@ public final class SelectBase<T> {
                     final DataFlowExpression<? extends T> value = channel.poll();
                     if (value != null) {
                         disableDFV(currentPosition, channel);
-                        selectRequest.valueFound(currentPosition, value.getVal());
+                        selectRequest.valueFound(currentPosition, SelectBase.<T>retrieveValue(value));
                         return;
                     }
                 }
@@ -132,6 +132,20 @@ public final class SelectBase<T> {
         }
     }
 
+    /**
+     * Reads the value of a bound expression. Errors are returned as values, so that they reach the selecting party
+     * the same way as they reach asynchronous listeners, instead of being thrown in the notifying thread.
+     *
+     * @param expression The bound expression to read
+     * @return The bound value or the DataFlowException the expression has been bound to
+     * @throws InterruptedException If the thread is interrupted during value retrieval
+     */
+    @SuppressWarnings({"unchecked"})
+    private static <T> T retrieveValue(final DataFlowExpression<? extends T> expression) throws InterruptedException {
+        if (expression.isError()) return (T) expression.getError();
+        return expression.getVal();
+    }
+
     /**
      * Sets the flag in the disabledDFVs array, if the channel is a DFV
      *
@@ -0,0 +1,123 @@
+// GPars - Groovy Parallel Systems
+//
+// Copyright © 2008-10  The original author or authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package groovyx.gpars.dataflow.impl;
+
+import groovy.lang.Closure;
+import groovyx.gpars.actor.impl.MessageStream;
+import groovyx.gpars.dataflow.DataFlow;
+import groovyx.gpars.dataflow.DataFlowException;
+import groovyx.gpars.dataflow.DataFlowReadChannel;
+import groovyx.gpars.dataflow.DataFlowVariable;
+import groovyx.gpars.group.PGroup;
+import org.codehaus.groovy.runtime.InvokerInvocationException;
+
+/**
+ * Backs the then(), flatMap() and recover() combinators of dataflow expressions.
+ * Registered with the source expression through getValAsync(), it applies the transformation closure to the bound value
+ * and binds the result to the target variable. No thread is parked while waiting for the source to be bound.
+ * Without a parallel group the closure runs directly in the thread that binds the source,
+ * otherwise it is scheduled on the group's thread pool.
+ * Errors of the source are passed on to the target variable untouched, unless the callback recovers from errors,
+ * in which case the closure is only applied to the errors and values are passed on untouched.
+ */
+@SuppressWarnings({"rawtypes", "RawUseOfParameterizedType"})
+public final class ThenCallback extends MessageStream {
+    private static final long serialVersionUID = -2683291453960431917L;
+    private final Closure code;
+    private final PGroup parallelGroup;
+    private final DataFlowVariable result;
+    private final boolean flatten;
+    private final boolean recovering;
+
+    /**
+     * @param code          The transformation to apply to the bound value
+     * @param parallelGroup The group to run the transformation in, or null to run it in the binding thread
+     * @param result        The variable to bind the result of the transformation to
+     * @param flatten       Indicates, whether a dataflow channel returned from the closure should be unwrapped
+     */
+    public ThenCallback(final Closure code, final PGroup parallelGroup, final DataFlowVariable result, final boolean flatten) {
+        this(code, parallelGroup, result, flatten, false);
+    }
+
+    /**
+     * @param code          The transformation to apply to the bound value or the error
+     * @param parallelGroup The group to run the transformation in, or null to run it in the binding thread
+     * @param result        The variable to bind the result of the transformation to
+     * @param flatten       Indicates, whether a dataflow channel returned from the closure should be unwrapped
+     * @param recovering    Indicates, whether the closure should be applied to errors instead of values
+     */
+    public ThenCallback(final Closure code, final PGroup parallelGroup, final DataFlowVariable result, final boolean flatten, final boolean recovering) {
+        this.code = code;
+        this.parallelGroup = parallelGroup;
+        this.result = result;
+        this.flatten = flatten;
+        this.recovering = recovering;
+    }
+
+    /**
+     * Invoked by the source expression once its value has been bound
+     *
+     * @param message The bound value
+     * @return This instance
+     */
+    @SuppressWarnings({"unchecked"})
+    @Override
+    public MessageStream send(final Object message) {
+        final boolean failed = message instanceof DataFlowException;
+        if (failed != recovering) {
+            //nothing to transform, pass the value or error on straight away
+            if (failed) result.bindError((Throwable) message);
+            else result.bind(message);
+            return this;
+        }
+        if (parallelGroup == null) {
+            transform(message);
+        } else {
+            parallelGroup.getThreadPool().execute(new Runnable() {
+                @Override
+                public void run() {
+                    DataFlow.activeParallelGroup.set(parallelGroup);
+                    try {
+                        transform(message);
+                    } finally {
+                        DataFlow.activeParallelGroup.remove();
+                    }
+                }
+            });
+        }
+        return this;
+    }
+
+    @SuppressWarnings({"unchecked", "CatchGenericClass"})
+    private void transform(final Object message) {
+        final Object value;
+        try {
+            value = code.call(recovering ? ((Throwable) message).getCause() : message);
+        } catch (InvokerInvocationException e) {
+            result.bindError(e.getCause());
+            return;
+        } catch (Exception e) {
+            result.bindError(e);
+            return;
+        }
+        if (flatten && value instanceof DataFlowReadChannel) {
+            result.leftShift((DataFlowReadChannel) value);
+        } else {
+            result.bind(value);
+        }
+    }
+}
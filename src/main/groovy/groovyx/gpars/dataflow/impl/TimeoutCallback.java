@@ -0,0 +1,107 @@
+// GPars - Groovy Parallel Systems
+//
+// Copyright © 2008-10  The original author or authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package groovyx.gpars.dataflow.impl;
+
+import groovyx.gpars.actor.impl.MessageStream;
+import groovyx.gpars.dataflow.DataFlowException;
+import groovyx.gpars.dataflow.DataFlowVariable;
+
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Backs the orTimeout() combinator of dataflow expressions.
+ * Whichever comes first, the value of the source expression or the timeout, gets bound to the result variable.
+ * On timeout either the supplied timeout value or a TimeoutException error is bound.
+ * All timeouts share a single daemon timer thread, so no thread waits for the source expression.
+ */
+public final class TimeoutCallback<T> extends MessageStream {
+    private static final long serialVersionUID = 2591863024371904721L;
+
+    /**
+     * Timer holding the dataflow timeouts
+     */
+    private static final Timer timer = new Timer("GPars DataFlow Timer", true);
+
+    private final DataFlowVariable<T> result;
+    private final T timeoutValue;
+    private final boolean failOnTimeout;
+    private final TimerTask timeoutTask;
+
+    /**
+     * @param result       The variable to bind the outcome to
+     * @param timeoutValue The value to bind, if the timeout elapses before the source gets bound
+     */
+    public TimeoutCallback(final DataFlowVariable<T> result, final T timeoutValue) {
+        this(result, timeoutValue, false);
+    }
+
+    /**
+     * Creates a callback, which binds a TimeoutException error to the result, if the timeout elapses before the source gets bound
+     *
+     * @param result The variable to bind the outcome to
+     */
+    public TimeoutCallback(final DataFlowVariable<T> result) {
+        this(result, null, true);
+    }
+
+    private TimeoutCallback(final DataFlowVariable<T> result, final T timeoutValue, final boolean failOnTimeout) {
+        this.result = result;
+        this.timeoutValue = timeoutValue;
+        this.failOnTimeout = failOnTimeout;
+        this.timeoutTask = new TimerTask() {
+            @Override
+            public void run() {
+                if (TimeoutCallback.this.failOnTimeout) {
+                    result.bindErrorSafely(new TimeoutException("The dataflow expression has not been bound within the timeout."));
+                } else {
+                    result.bindSafely(TimeoutCallback.this.timeoutValue);
+                }
+            }
+        };
+    }
+
+    /**
+     * Starts the timeout countdown
+     *
+     * @param timeout The timeout value
+     * @param units   Units for the timeout
+     */
+    public void schedule(final long timeout, final TimeUnit units) {
+        timer.schedule(timeoutTask, units.toMillis(timeout));
+    }
+
+    /**
+     * Invoked by the source expression with the bound value
+     *
+     * @param message The bound value
+     * @return This instance
+     */
+    @SuppressWarnings({"unchecked"})
+    @Override
+    public MessageStream send(final Object message) {
+        timeoutTask.cancel();
+        if (message instanceof DataFlowException) {
+            result.bindErrorSafely((Throwable) message);
+        } else {
+            result.bindSafely((T) message);
+        }
+        return this;
+    }
+}
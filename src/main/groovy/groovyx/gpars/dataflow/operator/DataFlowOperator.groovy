@@ -16,6 +16,7 @@
 
 package groovyx.gpars.dataflow.operator
 
+import groovyx.gpars.dataflow.DataFlowException
 import groovyx.gpars.dataflow.DataFlowVariable
 import groovyx.gpars.group.PGroup
 import java.util.concurrent.Semaphore
@@ -62,10 +63,10 @@ public final class DataFlowOperator extends DataFlowProcessor {
 
     /**
      * Is invoked in case the actor throws an exception.
+     * Binds the error to all output channels and terminates the operator.
      */
     protected void reportError(Throwable e) {
-        System.err.println "The dataflow operator experienced an exception and is about to terminate. $e"
-        stop()
+        failOutputs e, 'operator'
     }
 }
 
@@ -91,7 +92,7 @@ private class DataFlowOperatorActor extends DataFlowProcessorActor {
             if (initialRun || !(input instanceof DataFlowVariable)) {
                 input.getValAsync(index, this)
             } else {
-                values[index] = input.val
+                values[index] = input.error ?: input.val
             }
         }
     }
@@ -103,7 +104,9 @@ private class DataFlowOperatorActor extends DataFlowProcessorActor {
         assert values.size() <= inputs.size()
         if (values.size() == inputs.size()) {
             def results = values.sort {it.key}.values() as List
-            startTask(results)
+            final def error = results.find {it instanceof DataFlowException}
+            if (error == null) startTask(results)
+            else checkError(error)
             values = [:]
             queryInputs(false)
         }
@@ -19,6 +19,7 @@ package groovyx.gpars.dataflow.operator
 import groovyx.gpars.actor.Actor
 import groovyx.gpars.actor.DynamicDispatchActor
 import groovyx.gpars.actor.impl.MessageStream
+import groovyx.gpars.dataflow.DataFlowException
 import groovyx.gpars.group.PGroup
 
 /**
@@ -134,6 +135,28 @@ abstract class DataFlowProcessor {
     @SuppressWarnings("GroovySynchronizedMethod")
     final synchronized void bindAllOutputValuesAtomically(final ... values) { outputs.eachWithIndex {channel, index ->  channel << values[index]} }
 
+    /**
+     * Used by the processor to pass an error on to all output channels, so that the downstream readers fail fast instead of waiting forever.
+     * @param error The error to bind to the output channels
+     */
+    @SuppressWarnings("GroovySynchronizedMethod")
+    final synchronized void bindAllOutputsError(final Throwable error) { outputs?.each {it.bindError error} }
+
+    /**
+     * Reports an exception thrown from the processor's body. The error is passed on to all output channels and the processor terminates.
+     * If the processor has no outputs to pass the error to, it gets printed to the standard error output.
+     * @param e The exception thrown from the body
+     * @param kind The kind of the processor to mention in the printed message
+     */
+    protected final void failOutputs(Throwable e, String kind) {
+        if (outputs) {
+            bindAllOutputsError e
+        } else {
+            System.err.println "The dataflow $kind experienced an exception and is about to terminate. $e"
+        }
+        stop()
+    }
+
     /**
      * The processor's output channel of the given index
      */
@@ -211,6 +234,20 @@ protected abstract class DataFlowProcessorActor extends DynamicDispatchActor {
         return false
     }
 
+    /**
+     * Handles errors read from the input channels.
+     * Instead of running the body, the processor passes the error on to all its output channels and continues with the next values.
+     * @param data The value read from an input channel
+     * return True, if an error has been received
+     */
+    boolean checkError(def data) {
+        if (data instanceof DataFlowException) {
+            owningProcessor.bindAllOutputsError data
+            return true
+        }
+        return false
+    }
+
     final reportException(Throwable e) {
         owningProcessor.reportError(e)
     }
@@ -81,10 +81,10 @@ public class DataFlowSelector extends DataFlowProcessor {
 
     /**
      * Is invoked in case the actor throws an exception.
+     * Binds the error to all output channels and terminates the selector.
      */
     protected final void reportError(Throwable e) {
-        System.err.println "The dataflow selector experienced an exception and is about to terminate. $e"
-        stop()
+        failOutputs e, 'selector'
     }
 
     /**
@@ -139,7 +139,7 @@ private class DataFlowSelectorActor extends DataFlowProcessorActor {
         final def index = message.index
         final def value = message.value
         if (checkPoisson(value)) return
-        startTask(index, value)
+        if (!checkError(value)) startTask(index, value)
         owningProcessor.doSelect()
     }
 
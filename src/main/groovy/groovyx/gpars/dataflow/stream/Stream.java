@@ -100,6 +100,12 @@ public class Stream<T> implements FList<T>, DataFlowChannel<T> {
         getRest();
     }
 
+    @Override
+    public void bindError(final Throwable cause) {
+        first.bindError(cause);
+        getRest();
+    }
+
     @Override
     public T getFirst() {
         try {
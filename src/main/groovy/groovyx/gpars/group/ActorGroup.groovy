@@ -23,6 +23,7 @@ import groovyx.gpars.actor.DynamicDispatchActor
 import groovyx.gpars.actor.ReactiveActor
 import groovyx.gpars.actor.impl.RunnableBackedPooledActor
 import groovyx.gpars.agent.Agent
+import groovyx.gpars.agent.BatchingAgent
 import groovyx.gpars.dataflow.DataFlow
 import groovyx.gpars.dataflow.DataFlowChannel
 import groovyx.gpars.dataflow.DataFlowVariable
@@ -191,6 +192,51 @@ public abstract class PGroup {
         return safe
     }
 
+    /**
+     * Creates an agent instance initialized with the given state, which serves instant reads from lock-free snapshots.
+     * The state should be immutable, since the very same instance is handed to all readers.
+     * @param state The initial internal state of the new Agent instance
+     * @return The created instance
+     */
+    public final <T> Agent<T> snapshotAgent(final T state) {
+        snapshotAgent(state, null)
+    }
+
+    /**
+     * Creates an agent instance initialized with the given state, which serves instant reads from lock-free snapshots.
+     * @param state The initial internal state of the new Agent instance
+     * @param copy A closure to use to create a copy of the internal state when publishing a snapshot
+     * @return The created instance
+     */
+    public final <T> Agent<T> snapshotAgent(final T state, final Closure copy) {
+        final Agent safe = new Agent(state, copy, true)
+        safe.attachToThreadPool threadPool
+        return safe
+    }
+
+    /**
+     * Creates an agent instance initialized with the given state, which applies all pending messages in batches
+     * and runs validators and listeners once per batch.
+     * @param state The initial internal state of the new Agent instance
+     * @return The created instance
+     */
+    public final <T> BatchingAgent<T> batchingAgent(final T state) {
+        batchingAgent(state, null)
+    }
+
+    /**
+     * Creates an agent instance initialized with the given state, which applies all pending messages in batches
+     * and runs validators and listeners once per batch.
+     * @param state The initial internal state of the new Agent instance
+     * @param coalesce A two-argument closure merging adjacent pending messages into one or returning null to keep them apart
+     * @return The created instance
+     */
+    public final <T> BatchingAgent<T> batchingAgent(final T state, final Closure coalesce) {
+        final BatchingAgent safe = new BatchingAgent(state, null, coalesce)
+        safe.attachToThreadPool threadPool
+        return safe
+    }
+
     /**
      * Creates a new task assigned to a thread from the current parallel group.
      * Tasks are a lightweight version of dataflow operators, which do not define their communication channels explicitly,
@@ -209,14 +255,21 @@ public abstract class PGroup {
      * but can only exchange data using explicit DataFlowVariables and Streams.
      * Registers itself with DataFlow for nested 'whenBound' handlers to use the same group.
      * @param callable The task body to run
-     * @return A DataFlowVariable, which gets assigned the value returned from the supplied code
+     * @return A DataFlowVariable, which gets assigned the value returned from the supplied code or the exception thrown from it
      */
     public DataFlowVariable task(final Callable callable) {
         final DataFlowVariable result = new DataFlowVariable()
         threadPool.execute {->
             DataFlow.activeParallelGroup.set this
             try {
-                result.bind callable.call()
+                def value
+                try {
+                    value = callable.call()
+                } catch (Throwable e) {
+                    result.bindError e
+                    return
+                }
+                result.bind value
             } finally {
                 DataFlow.activeParallelGroup.remove()
             }
@@ -230,7 +283,7 @@ public abstract class PGroup {
      * but can only exchange data using explicit DataFlowVariables and Streams.
      * Registers itself with DataFlow for nested 'whenBound' handlers to use the same group.
      * @param code The task body to run
-     * @return A DataFlowVariable, which gets bound to null once the supplied code finishes
+     * @return A DataFlowVariable, which gets bound to null once the supplied code finishes or to the exception thrown from it
      */
     public DataFlowVariable task(final Runnable code) {
         if (code instanceof Closure) return task(code.clone() as Callable)
@@ -238,7 +291,12 @@ public abstract class PGroup {
         threadPool.execute {->
             DataFlow.activeParallelGroup.set this
             try {
-                code.run()
+                try {
+                    code.run()
+                } catch (Throwable e) {
+                    result.bindError e
+                    return
+                }
                 result.bind null
             } finally {
                 DataFlow.activeParallelGroup.remove()
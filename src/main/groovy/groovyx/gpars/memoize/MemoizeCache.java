@@ -0,0 +1,576 @@
+// GPars - Groovy Parallel Systems
+//
+// Copyright © 2008-10  The original author or authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package groovyx.gpars.memoize;
+
+import groovy.lang.Closure;
+import groovy.time.BaseDuration;
+import groovyx.gpars.scheduler.DefaultPool;
+import groovyx.gpars.scheduler.Pool;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The cache behind memoized functions.
+ * Concurrent calls with the same arguments share a single invocation of the memoized closure - the first caller computes the value,
+ * while the others wait for it. If the closure throws an exception, nothing gets cached and one of the waiting callers retries.
+ * Cache hits never block, they only read from a concurrent map and mark the entry as recently used.
+ * Bounded caches evict entries using the second-chance (CLOCK) approximation of the LRU strategy,
+ * so only cache misses beyond the capacity take a lock.
+ * Optionally the values can be held through soft references, letting the garbage collector evict them,
+ * with the most recently used values protected from the collection by strong references.
+ * The soft references know their cache entries, so the entries cleared by the garbage collector are removed one by one
+ * in small slices by the callers, never by scanning the whole cache.
+ * Entries may also expire a given time after they have been calculated or last read. Expired entries are removed
+ * by the timer wheel shared by all caches and never returned to the callers.
+ * Entries read after the refresh time get recalculated in the background, while the callers keep getting the current value.
+ * Statistics on hits, misses, evictions and calculations are only recorded when enabled, costing a null check otherwise.
+ */
+public final class MemoizeCache {
+
+    /**
+     * Indicates no upper limit on the cache size
+     */
+    public static final int UNBOUNDED = -1;
+
+    /**
+     * The names of the time-based options
+     */
+    public static final String EXPIRE_AFTER_WRITE = "expireAfterWrite";
+    public static final String EXPIRE_AFTER_ACCESS = "expireAfterAccess";
+    public static final String REFRESH_AFTER = "refreshAfter";
+
+    /**
+     * The names of the statistics options
+     */
+    public static final String RECORD_STATS = "recordStats";
+    public static final String JMX_NAME = "jmxName";
+
+    private static final Object NULL = new NullValue();
+    private static final Object PENDING = new Object();
+    private static final Object FAILED = new Object();
+
+    /**
+     * The maximum number of cleared soft references to remove from the cache in a single call
+     */
+    private static final int PURGE_SLICE = 64;
+
+    /**
+     * Reads closer together than this do not move the access time of an entry, to save writes to shared memory
+     */
+    private static final long ACCESS_RESOLUTION = TimeUnit.MILLISECONDS.toNanos(1L);
+
+    @SuppressWarnings({"rawtypes"})
+    private static final AtomicReferenceFieldUpdater<Entry, Object> STRONG = AtomicReferenceFieldUpdater.newUpdater(Entry.class, Object.class, "strong");
+    private static final AtomicIntegerFieldUpdater<Entry> REFRESHING = AtomicIntegerFieldUpdater.newUpdater(Entry.class, "refreshing");
+
+    private final ConcurrentMap<Object, Entry> entries = new ConcurrentHashMap<Object, Entry>();
+    private final boolean softValues;
+    private final ReferenceQueue<Object> queue;
+    private final Ring cached;
+    private final Ring protectedEntries;
+    private final long expireAfterWrite;
+    private final long expireAfterAccess;
+    private final long refreshAfter;
+    private final boolean timed;
+    private final MemoizeStats stats;
+
+    /**
+     * Creates a cache holding values through strong references
+     *
+     * @param maxSize The maximum number of entries or UNBOUNDED
+     */
+    public MemoizeCache(final int maxSize) {
+        this(maxSize, false, 0);
+    }
+
+    /**
+     * @param maxSize       The maximum number of entries or UNBOUNDED
+     * @param softValues    Indicates, whether the garbage collector may evict the cached values
+     * @param protectedSize The number of most recently used soft values to protect from the garbage collector
+     */
+    public MemoizeCache(final int maxSize, final boolean softValues, final int protectedSize) {
+        this(maxSize, softValues, protectedSize, 0L, 0L, 0L, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param maxSize           The maximum number of entries or UNBOUNDED
+     * @param softValues        Indicates, whether the garbage collector may evict the cached values
+     * @param protectedSize     The number of most recently used soft values to protect from the garbage collector
+     * @param expireAfterWrite  The time after calculation to expire the entries after, 0 to never expire them
+     * @param expireAfterAccess The time after the last read to expire the entries after, 0 to never expire them
+     * @param refreshAfter      The time after calculation to recalculate the entries in the background after, 0 to never refresh them
+     * @param unit              The unit of the times
+     */
+    public MemoizeCache(final int maxSize, final boolean softValues, final int protectedSize,
+                        final long expireAfterWrite, final long expireAfterAccess, final long refreshAfter, final TimeUnit unit) {
+        this(maxSize, softValues, protectedSize, expireAfterWrite, expireAfterAccess, refreshAfter, unit, false);
+    }
+
+    /**
+     * @param maxSize           The maximum number of entries or UNBOUNDED
+     * @param softValues        Indicates, whether the garbage collector may evict the cached values
+     * @param protectedSize     The number of most recently used soft values to protect from the garbage collector
+     * @param expireAfterWrite  The time after calculation to expire the entries after, 0 to never expire them
+     * @param expireAfterAccess The time after the last read to expire the entries after, 0 to never expire them
+     * @param refreshAfter      The time after calculation to recalculate the entries in the background after, 0 to never refresh them
+     * @param unit              The unit of the times
+     * @param recordStats       Indicates, whether statistics should be recorded
+     */
+    public MemoizeCache(final int maxSize, final boolean softValues, final int protectedSize,
+                        final long expireAfterWrite, final long expireAfterAccess, final long refreshAfter, final TimeUnit unit,
+                        final boolean recordStats) {
+        if (maxSize < 0 && maxSize != UNBOUNDED) throw new IllegalArgumentException("The maximum cache size must not be negative, but was " + maxSize);
+        if (expireAfterWrite < 0L || expireAfterAccess < 0L || refreshAfter < 0L) throw new IllegalArgumentException("The expiry and refresh times must not be negative.");
+        this.softValues = softValues;
+        this.queue = softValues ? new ReferenceQueue<Object>() : null;
+        this.cached = maxSize == UNBOUNDED ? null : new Ring(maxSize, false);
+        this.protectedEntries = softValues && protectedSize > 0 ? new Ring(protectedSize, true) : null;
+        this.expireAfterWrite = unit.toNanos(expireAfterWrite);
+        this.expireAfterAccess = unit.toNanos(expireAfterAccess);
+        this.refreshAfter = unit.toNanos(refreshAfter);
+        this.timed = expireAfterWrite > 0L || expireAfterAccess > 0L || refreshAfter > 0L;
+        this.stats = recordStats ? new MemoizeStats(this) : null;
+    }
+
+    /**
+     * Creates a cache configured by a map of options.
+     * The expireAfterWrite, expireAfterAccess and refreshAfter options accept either a number of milliseconds or a Duration.
+     * The recordStats option enables statistics, the jmxName option also registers them with JMX under the given name.
+     *
+     * @param maxSize       The maximum number of entries or UNBOUNDED
+     * @param softValues    Indicates, whether the garbage collector may evict the cached values
+     * @param protectedSize The number of most recently used soft values to protect from the garbage collector
+     * @param options       The options
+     * @return A new cache
+     */
+    public static MemoizeCache create(final int maxSize, final boolean softValues, final int protectedSize, final Map<?, ?> options) {
+        for (final Object key : options.keySet()) {
+            if (!EXPIRE_AFTER_WRITE.equals(key) && !EXPIRE_AFTER_ACCESS.equals(key) && !REFRESH_AFTER.equals(key) && !RECORD_STATS.equals(key) && !JMX_NAME.equals(key))
+                throw new IllegalArgumentException("Unknown option " + key + ". Only the " + EXPIRE_AFTER_WRITE + ", " + EXPIRE_AFTER_ACCESS + ", " + REFRESH_AFTER
+                        + ", " + RECORD_STATS + " and " + JMX_NAME + " options are supported.");
+        }
+        final Object jmxName = options.get(JMX_NAME);
+        final boolean recordStats = jmxName != null || Boolean.TRUE.equals(options.get(RECORD_STATS));
+        final MemoizeCache cache = new MemoizeCache(maxSize, softValues, protectedSize, millis(options, EXPIRE_AFTER_WRITE), millis(options, EXPIRE_AFTER_ACCESS),
+                millis(options, REFRESH_AFTER), TimeUnit.MILLISECONDS, recordStats);
+        if (jmxName != null) cache.stats.register(jmxName.toString());
+        return cache;
+    }
+
+    private static long millis(final Map<?, ?> options, final String name) {
+        final Object value = options.get(name);
+        if (value == null) return 0L;
+        final long millis;
+        if (value instanceof BaseDuration) millis = ((BaseDuration) value).toMilliseconds();
+        else if (value instanceof Number) millis = ((Number) value).longValue();
+        else millis = 0L;
+        if (millis <= 0L) throw new IllegalArgumentException("The " + name + " option must be a positive number of milliseconds or a Duration, but was " + value);
+        return millis;
+    }
+
+    /**
+     * Retrieves the cached value for the key or invokes the closure to calculate it.
+     * If another thread is calculating the value for the same key, the current thread waits for the result.
+     *
+     * @param key  The key identifying the arguments
+     * @param code The closure to invoke on a cache miss
+     * @param args The arguments for the closure
+     * @return The cached or calculated value
+     */
+    public Object get(final Object key, final Closure code, final Object[] args) {
+        if (queue != null) purgeCleared();
+        while (true) {
+            final Entry entry = entries.get(key);
+            if (entry == null) {
+                final Entry fresh = new Entry(key);
+                if (entries.putIfAbsent(key, fresh) == null) return compute(fresh, code, args);
+                continue;
+            }
+            final Object stored = entry.await();
+            //the calculating thread calls the function recursively with the same arguments
+            if (stored == PENDING) {
+                if (stats != null) stats.recordMiss();
+                return code.call(args);
+            }
+            if (stored == FAILED) continue;
+            final Object value = softValues ? ((Reference<?>) stored).get() : stored;
+            if (value == null) {
+                remove(entry);
+                continue;
+            }
+            if (timed && !notExpired(entry, code)) continue;
+            touch(entry, value);
+            if (stats != null) stats.recordHit();
+            return value == NULL ? null : value;
+        }
+    }
+
+    /**
+     * Removes the value from the cache, provided it is still cached under the given key.
+     * Waits for the value to be stored, if it is still being calculated by another thread.
+     *
+     * @param key   The key identifying the arguments
+     * @param value The value to remove
+     */
+    public void evict(final Object key, final Object value) {
+        final Entry entry = entries.get(key);
+        if (entry == null) return;
+        final Object stored = entry.await();
+        final Object current = stored instanceof SoftValue ? ((Reference<?>) stored).get() : stored;
+        if (current == value) remove(entry);
+    }
+
+    /**
+     * @return The statistics of the cache or null, if not recorded
+     */
+    public MemoizeStats getStats() {
+        return stats;
+    }
+
+    /**
+     * @return The number of cached values including the ones being calculated
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    private Object compute(final Entry entry, final Closure code, final Object[] args) {
+        final long start = stats != null ? System.nanoTime() : 0L;
+        boolean loaded = false;
+        boolean completed = false;
+        try {
+            final Object result = code.call(args);
+            loaded = true;
+            final Object value = result == null ? NULL : result;
+            if (timed) {
+                final long now = System.nanoTime();
+                entry.written = now;
+                entry.accessed = now;
+                if (refreshAfter > 0L) entry.args = args;
+            }
+            entry.complete(softValues ? new SoftValue(value, queue, entry) : value);
+            completed = true;
+            if (cached != null) cached.add(entry);
+            if (protectedEntries != null) protect(entry, value);
+            if (expireAfterWrite > 0L || expireAfterAccess > 0L) scheduleExpiry(entry, entry.written);
+            return result;
+        } finally {
+            if (stats != null) {
+                stats.recordMiss();
+                stats.recordLoad(loaded, System.nanoTime() - start);
+            }
+            if (!completed) {
+                entries.remove(entry.key, entry);
+                entry.complete(FAILED);
+            }
+        }
+    }
+
+    /**
+     * Marks the entry as recently used. Avoids writing to shared memory, if the entry has been marked already.
+     */
+    private void touch(final Entry entry, final Object value) {
+        if (!entry.referenced) entry.referenced = true;
+        if (protectedEntries == null) return;
+        if (entry.strong == null) protect(entry, value);
+        else if (!entry.protectionReferenced) entry.protectionReferenced = true;
+    }
+
+    private void protect(final Entry entry, final Object value) {
+        entry.protectionReferenced = true;
+        if (STRONG.compareAndSet(entry, null, value)) protectedEntries.add(entry);
+    }
+
+    private void unprotect(final Entry entry) {
+        if (protectedEntries != null && STRONG.getAndSet(entry, null) != null) protectedEntries.count.decrementAndGet();
+    }
+
+    private void remove(final Entry entry) {
+        if (entries.remove(entry.key, entry)) {
+            if (cached != null) cached.count.decrementAndGet();
+            unprotect(entry);
+            final TimerWheel.Timeout timeout = entry.timeout;
+            if (timeout != null) timeout.cancel();
+            if (stats != null) stats.recordEviction();
+            //the ring may still hold the entry for a while, so let go of the value and the arguments
+            entry.args = null;
+            entry.complete(FAILED);
+        }
+    }
+
+    /**
+     * Checks the expiry of an entry being read, moves its access time and starts a background refresh, if due
+     *
+     * @return False, if the entry has expired and has been removed
+     */
+    private boolean notExpired(final Entry entry, final Closure code) {
+        final long now = System.nanoTime();
+        if (now - deadline(entry) >= 0L) {
+            remove(entry);
+            return false;
+        }
+        if (expireAfterAccess > 0L && now - entry.accessed > ACCESS_RESOLUTION) entry.accessed = now;
+        if (refreshAfter > 0L && now - entry.written > refreshAfter && REFRESHING.compareAndSet(entry, 0, 1)) {
+            RefreshPool.POOL.execute(new Runnable() {
+                @Override
+                public void run() {
+                    refresh(entry, code);
+                }
+            });
+        }
+        return true;
+    }
+
+    /**
+     * @return The time the entry expires at, or Long.MAX_VALUE ticks ahead, if it never expires
+     */
+    private long deadline(final Entry entry) {
+        long deadline = entry.written + Long.MAX_VALUE;
+        if (expireAfterWrite > 0L) deadline = entry.written + expireAfterWrite;
+        if (expireAfterAccess > 0L && deadline - (entry.accessed + expireAfterAccess) > 0L) deadline = entry.accessed + expireAfterAccess;
+        return deadline;
+    }
+
+    private void scheduleExpiry(final Entry entry, final long now) {
+        entry.timeout = TimerWheel.INSTANCE.schedule(new Runnable() {
+            @Override
+            public void run() {
+                expire(entry);
+            }
+        }, deadline(entry) - now);
+    }
+
+    /**
+     * Invoked by the timer wheel to remove the entry, if expired, or to reschedule the check, if read in the meantime
+     */
+    private void expire(final Entry entry) {
+        if (entries.get(entry.key) != entry) return;
+        final long now = System.nanoTime();
+        if (now - deadline(entry) >= 0L) remove(entry);
+        else scheduleExpiry(entry, now);
+    }
+
+    /**
+     * Recalculates the value of the entry, keeping the current value, if the calculation fails
+     */
+    @SuppressWarnings({"CatchGenericClass"})
+    private void refresh(final Entry entry, final Closure code) {
+        final long start = stats != null ? System.nanoTime() : 0L;
+        boolean loaded = false;
+        try {
+            final Object result = code.call(entry.args);
+            loaded = true;
+            if (entries.get(entry.key) != entry) return;
+            final Object value = result == null ? NULL : result;
+            entry.written = System.nanoTime();
+            entry.value = softValues ? new SoftValue(value, queue, entry) : value;
+            final Object strong = entry.strong;
+            if (strong != null) STRONG.compareAndSet(entry, strong, value);
+        } catch (Throwable ignore) {
+            //the current value stays cached until it expires
+        } finally {
+            if (stats != null) stats.recordLoad(loaded, System.nanoTime() - start);
+            entry.refreshing = 0;
+        }
+    }
+
+    /**
+     * Removes a bounded number of entries, whose values have been garbage-collected
+     */
+    private void purgeCleared() {
+        for (int i = 0; i < PURGE_SLICE; i++) {
+            final Reference<?> reference = queue.poll();
+            if (reference == null) return;
+            final Entry entry = ((SoftValue) reference).entry;
+            if (entry.value == reference) remove(entry);
+        }
+    }
+
+    /**
+     * The daemon threads shared by all caches to refresh their values, created on first use
+     */
+    private static final class RefreshPool {
+        private static final Pool POOL = new DefaultPool(true);
+    }
+
+    /**
+     * A soft reference to a cached value, which knows the entry to remove once the value gets garbage-collected
+     */
+    private static final class SoftValue extends SoftReference<Object> {
+        private final Entry entry;
+
+        private SoftValue(final Object value, final ReferenceQueue<Object> queue, final Entry entry) {
+            super(value, queue);
+            this.entry = entry;
+        }
+    }
+
+    /**
+     * A cache entry, which starts as a pending calculation and becomes completed once the value is known
+     */
+    private static final class Entry {
+        private final Object key;
+        private volatile Thread owner = Thread.currentThread();
+        private volatile Object value = PENDING;
+        //package-private to stay reachable by the field updaters from the enclosing class
+        volatile Object strong;
+        private volatile boolean referenced = true;
+        private volatile boolean protectionReferenced = true;
+        private volatile long written;
+        private volatile long accessed;
+        volatile int refreshing;
+        private volatile Object[] args;
+        private volatile TimerWheel.Timeout timeout;
+
+        private Entry(final Object key) {
+            this.key = key;
+        }
+
+        /**
+         * Waits for the calculation to finish
+         *
+         * @return The stored value, FAILED if the calculation failed or PENDING if invoked by the calculating thread
+         */
+        private Object await() {
+            Object current = value;
+            if (current != PENDING) return current;
+            if (owner == Thread.currentThread()) return PENDING;
+            boolean interrupted = false;
+            synchronized (this) {
+                while ((current = value) == PENDING) {
+                    try {
+                        wait();
+                    } catch (InterruptedException ignore) {
+                        interrupted = true;
+                    }
+                }
+            }
+            if (interrupted) Thread.currentThread().interrupt();
+            return current;
+        }
+
+        private synchronized void complete(final Object value) {
+            this.value = value;
+            owner = null;
+            notifyAll();
+        }
+    }
+
+    /**
+     * The clock of the second-chance eviction strategy. Entries are visited in the order of insertion,
+     * entries used since the last visit are given a second chance, the others are evicted.
+     * Entries removed from the cache by other means stay in the queue until visited, so once the queue grows
+     * to twice the capacity, it gets swept of them.
+     */
+    private final class Ring {
+        private final int capacity;
+        private final boolean protection;
+        private final Queue<Entry> queue = new ConcurrentLinkedQueue<Entry>();
+        private final AtomicInteger count = new AtomicInteger(0);
+        private final AtomicInteger queued = new AtomicInteger(0);
+        private final Lock lock = new ReentrantLock();
+
+        private Ring(final int capacity, final boolean protection) {
+            this.capacity = capacity;
+            this.protection = protection;
+        }
+
+        private void add(final Entry entry) {
+            queue.offer(entry);
+            final int length = queued.incrementAndGet();
+            if (count.incrementAndGet() > capacity) shrink();
+            else if (length > 2 * capacity + 1) sweep();
+        }
+
+        /**
+         * @return True, if the entry still belongs to the ring
+         */
+        private boolean live(final Entry entry) {
+            return protection ? entry.strong != null : entries.get(entry.key) == entry;
+        }
+
+        private void shrink() {
+            lock.lock();
+            try {
+                int budget = 2 * count.get() + 1;
+                while (count.get() > capacity && budget-- > 0) {
+                    final Entry entry = queue.poll();
+                    if (entry == null) return;
+                    queued.decrementAndGet();
+                    if (!live(entry)) continue;
+                    if (protection) {
+                        if (entry.protectionReferenced) {
+                            entry.protectionReferenced = false;
+                            requeue(entry);
+                        } else {
+                            unprotect(entry);
+                        }
+                    } else {
+                        if (entry.referenced) {
+                            entry.referenced = false;
+                            requeue(entry);
+                        } else {
+                            remove(entry);
+                        }
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void requeue(final Entry entry) {
+            queue.offer(entry);
+            queued.incrementAndGet();
+        }
+
+        /**
+         * Drops the entries no longer belonging to the ring as well as the duplicates left behind by entries,
+         * which have left the protected ring and returned to it since. Skipped, if another thread holds the lock.
+         */
+        private void sweep() {
+            if (!lock.tryLock()) return;
+            try {
+                final Map<Entry, Boolean> seen = new IdentityHashMap<Entry, Boolean>();
+                for (final Iterator<Entry> iterator = queue.iterator(); iterator.hasNext(); ) {
+                    final Entry entry = iterator.next();
+                    if (!live(entry) || seen.put(entry, Boolean.TRUE) != null) {
+                        iterator.remove();
+                        queued.decrementAndGet();
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+// GPars - Groovy Parallel Systems
+//
+// Copyright © 2008-10  The original author or authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package groovyx.gpars.memoize;
+
+import groovy.lang.Closure;
+
+/**
+ * A memoized function - a closure forwarding to the original one through a cache
+ */
+@SuppressWarnings({"rawtypes"})
+public final class MemoizeFunction extends Closure {
+    private static final long serialVersionUID = -4916350817418612763L;
+    private final MemoizeCache cache;
+    private final Closure code;
+
+    /**
+     * @param cache The cache to use
+     * @param code  The closure calculating the values missing in the cache
+     */
+    public MemoizeFunction(final MemoizeCache cache, final Closure code) {
+        super(code.getOwner(), code.getThisObject());
+        this.cache = cache;
+        this.code = code;
+    }
+
+    /**
+     * Retrieves the value for the arguments from the cache or calculates it
+     *
+     * @param args The arguments
+     * @return The value returned by the original closure for the arguments
+     */
+    public Object doCall(final Object... args) {
+        return cache.get(MemoizeKey.of(args), code, args);
+    }
+
+    /**
+     * @return The statistics of the cache
+     * @throws IllegalStateException If the function has not been created with statistics enabled
+     */
+    public MemoizeStats stats() {
+        final MemoizeStats stats = cache.getStats();
+        if (stats == null) throw new IllegalStateException("Statistics are not recorded for this memoized function. Use the recordStats option to enable them.");
+        return stats;
+    }
+}
@@ -0,0 +1,149 @@
+// GPars - Groovy Parallel Systems
+//
+// Copyright © 2008-10  The original author or authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package groovyx.gpars.memoize;
+
+import java.util.Arrays;
+
+/**
+ * Builds the cache keys of memoized functions from the arguments passed in.
+ * A single argument serves as the key by itself, no argument maps to a shared constant,
+ * two and three arguments get wrapped by flat key objects with a pre-calculated hash code
+ * and longer argument lists are compared as arrays.
+ * Keys for different numbers of arguments never equal one another.
+ */
+public final class MemoizeKey {
+
+    private static final Object NO_ARGS = new Object();
+    private static final Object NULL_ARG = new Object();
+
+    private MemoizeKey() {
+    }
+
+    /**
+     * @param args The arguments of a memoized function call
+     * @return The key to look up the cached value with
+     */
+    public static Object of(final Object[] args) {
+        if (args == null) return NO_ARGS;
+        switch (args.length) {
+            case 0:
+                return NO_ARGS;
+            case 1:
+                return single(args[0]);
+            case 2:
+                return new Key2(args[0], args[1]);
+            case 3:
+                return new Key3(args[0], args[1], args[2]);
+            default:
+                return new KeyN(args.clone());
+        }
+    }
+
+    /**
+     * Not an overload of of(), since dynamic Groovy callers holding a typed array, e.g. Integer[], could pick it instead of of(Object[])
+     *
+     * @param arg The only argument of a memoized function call
+     * @return The key to look up the cached value with
+     */
+    private static Object single(final Object arg) {
+        return arg == null ? NULL_ARG : arg;
+    }
+
+    private static int hash(final Object arg) {
+        return arg == null ? 0 : arg.hashCode();
+    }
+
+    private static boolean same(final Object first, final Object second) {
+        return first == second || first != null && first.equals(second);
+    }
+
+    private static final class Key2 {
+        private final Object first;
+        private final Object second;
+        private final int hash;
+
+        private Key2(final Object first, final Object second) {
+            this.first = first;
+            this.second = second;
+            this.hash = 31 * hash(first) + hash(second);
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof Key2)) return false;
+            final Key2 other = (Key2) obj;
+            return hash == other.hash && same(first, other.first) && same(second, other.second);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class Key3 {
+        private final Object first;
+        private final Object second;
+        private final Object third;
+        private final int hash;
+
+        private Key3(final Object first, final Object second, final Object third) {
+            this.first = first;
+            this.second = second;
+            this.third = third;
+            this.hash = 31 * (31 * hash(first) + hash(second)) + hash(third);
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof Key3)) return false;
+            final Key3 other = (Key3) obj;
+            return hash == other.hash && same(first, other.first) && same(second, other.second) && same(third, other.third);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class KeyN {
+        private final Object[] args;
+        private final int hash;
+
+        private KeyN(final Object[] args) {
+            this.args = args;
+            this.hash = Arrays.hashCode(args);
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof KeyN)) return false;
+            final KeyN other = (KeyN) obj;
+            return hash == other.hash && Arrays.equals(args, other.args);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
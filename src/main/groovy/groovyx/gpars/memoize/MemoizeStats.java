@@ -0,0 +1,152 @@
+// GPars - Groovy Parallel Systems
+//
+// Copyright © 2008-10  The original author or authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package groovyx.gpars.memoize;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Statistics of a memoized function, recorded with striped counters so that concurrent callers do not contend on a shared cache line.
+ * The values are read live, so subsequent reads of different values may not be mutually consistent under concurrent use.
+ * Retrieved through the stats() method of memoized functions created with the recordStats or jmxName options.
+ */
+public final class MemoizeStats implements MemoizeStatsMBean {
+
+    /**
+     * The domain of the JMX names of memoized functions
+     */
+    public static final String JMX_DOMAIN = "groovyx.gpars";
+
+    private final MemoizeCache cache;
+    private final StripedCounter hits = new StripedCounter();
+    private final StripedCounter misses = new StripedCounter();
+    private final StripedCounter evictions = new StripedCounter();
+    private final StripedCounter loadSuccesses = new StripedCounter();
+    private final StripedCounter loadFailures = new StripedCounter();
+    private final StripedCounter loadTime = new StripedCounter();
+    private volatile ObjectName objectName;
+
+    MemoizeStats(final MemoizeCache cache) {
+        this.cache = cache;
+    }
+
+    void recordHit() {
+        hits.increment();
+    }
+
+    void recordMiss() {
+        misses.increment();
+    }
+
+    void recordEviction() {
+        evictions.increment();
+    }
+
+    void recordLoad(final boolean success, final long nanos) {
+        if (success) loadSuccesses.increment();
+        else loadFailures.increment();
+        loadTime.add(nanos);
+    }
+
+    @Override
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    @Override
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    @Override
+    public long getLoadSuccessCount() {
+        return loadSuccesses.sum();
+    }
+
+    @Override
+    public long getLoadFailureCount() {
+        return loadFailures.sum();
+    }
+
+    @Override
+    public long getTotalLoadTime() {
+        return loadTime.sum();
+    }
+
+    @Override
+    public int getSize() {
+        return cache.size();
+    }
+
+    @Override
+    public double getHitRate() {
+        final long hitCount = getHitCount();
+        final long requests = hitCount + getMissCount();
+        return requests == 0L ? 1.0 : (double) hitCount / (double) requests;
+    }
+
+    @Override
+    public double getAverageLoadPenalty() {
+        final long loads = getLoadSuccessCount() + getLoadFailureCount();
+        return loads == 0L ? 0.0 : (double) getTotalLoadTime() / (double) loads;
+    }
+
+    /**
+     * Registers the statistics with the platform MBean server under the groovyx.gpars:type=Memoize,name=&lt;name&gt; name
+     *
+     * @param name The name to identify the memoized function by
+     */
+    public void register(final String name) {
+        try {
+            final ObjectName mBeanName = new ObjectName(JMX_DOMAIN + ":type=Memoize,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, mBeanName);
+            objectName = mBeanName;
+        } catch (JMException e) {
+            throw new IllegalArgumentException("Cannot register the memoize statistics in JMX as " + name, e);
+        }
+    }
+
+    /**
+     * Removes the statistics from the platform MBean server, if registered
+     */
+    public void unregister() {
+        final ObjectName mBeanName = objectName;
+        if (mBeanName == null) return;
+        objectName = null;
+        try {
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(mBeanName)) server.unregisterMBean(mBeanName);
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot unregister the memoize statistics " + mBeanName, e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "MemoizeStats[hits=" + getHitCount() + ", misses=" + getMissCount() + ", evictions=" + getEvictionCount()
+                + ", loadSuccesses=" + getLoadSuccessCount() + ", loadFailures=" + getLoadFailureCount()
+                + ", totalLoadTime=" + getTotalLoadTime() + ", size=" + getSize() + ']';
+    }
+}
@@ -0,0 +1,69 @@
+// GPars - Groovy Parallel Systems
+//
+// Copyright © 2008-10  The original author or authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package groovyx.gpars.memoize;
+
+/**
+ * The JMX view of the statistics of a memoized function
+ */
+public interface MemoizeStatsMBean {
+
+    /**
+     * @return The number of calls answered from the cache
+     */
+    long getHitCount();
+
+    /**
+     * @return The number of calls, which had to invoke the original closure
+     */
+    long getMissCount();
+
+    /**
+     * @return The number of values removed from the cache due to its size limit, expiry or the garbage collector
+     */
+    long getEvictionCount();
+
+    /**
+     * @return The number of successful invocations of the original closure, including background refreshes
+     */
+    long getLoadSuccessCount();
+
+    /**
+     * @return The number of invocations of the original closure, which threw an exception
+     */
+    long getLoadFailureCount();
+
+    /**
+     * @return The total time in nanoseconds spent invoking the original closure
+     */
+    long getTotalLoadTime();
+
+    /**
+     * @return The current number of cached values
+     */
+    int getSize();
+
+    /**
+     * @return The ratio of hits to all calls, 1.0 if there have been no calls
+     */
+    double getHitRate();
+
+    /**
+     * @return The average time in nanoseconds spent invoking the original closure
+     */
+    double getAverageLoadPenalty();
+}
@@ -0,0 +1,62 @@
+// GPars - Groovy Parallel Systems
+//
+// Copyright © 2008-10  The original author or authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package groovyx.gpars.memoize;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter spread over several cells, each on its own cache line, to let threads count concurrently without contention.
+ * Each thread always updates the same cell, picked by hashing the thread's id. Reading the value sums up all the cells.
+ */
+final class StripedCounter {
+
+    /**
+     * The number of longs per cell, padding the cells to 64 bytes
+     */
+    private static final int PADDING = 8;
+    private static final int STRIPES = stripes();
+
+    private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+    private static int stripes() {
+        final int wanted = Runtime.getRuntime().availableProcessors() * 2;
+        int stripes = 1;
+        while (stripes < wanted) stripes <<= 1;
+        return stripes;
+    }
+
+    void add(final long delta) {
+        cells.getAndAdd(cell(), delta);
+    }
+
+    void increment() {
+        cells.getAndIncrement(cell());
+    }
+
+    long sum() {
+        long sum = 0L;
+        for (int i = 0; i < STRIPES; i++) sum += cells.get(i * PADDING);
+        return sum;
+    }
+
+    private static int cell() {
+        final long id = Thread.currentThread().getId();
+        final int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return ((hash ^ (hash >>> 16)) & (STRIPES - 1)) * PADDING;
+    }
+}
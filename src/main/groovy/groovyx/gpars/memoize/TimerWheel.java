@@ -0,0 +1,156 @@
+// GPars - Groovy Parallel Systems
+//
+// Copyright © 2008-10  The original author or authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package groovyx.gpars.memoize;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A hashed timer wheel shared by all memoize caches to expire their entries.
+ * Timeouts are hashed into buckets by the tick they are due in and a single daemon thread visits one bucket per tick,
+ * so scheduling and cancelling take constant time no matter how many timeouts are pending.
+ * The tasks run in the timer thread and so must be short. Timeouts may fire up to a tick late, or a whole rotation of the wheel late,
+ * if scheduled just as their tick is being processed. The timer thread sleeps without ticking, while no timeouts are pending.
+ */
+final class TimerWheel {
+
+    static final TimerWheel INSTANCE = new TimerWheel(50L, 512);
+
+    private final long tickNanos;
+    private final List<Queue<Timeout>> buckets;
+    private final int mask;
+    private final long start = System.nanoTime();
+    private final AtomicInteger pending = new AtomicInteger(0);
+    private volatile long processed = 0L;
+
+    @SuppressWarnings({"unchecked"})
+    TimerWheel(final long tickMillis, final int bucketCount) {
+        if (Integer.bitCount(bucketCount) != 1) throw new IllegalArgumentException("The number of buckets must be a power of two, but was " + bucketCount);
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.buckets = new ArrayList<Queue<Timeout>>(bucketCount);
+        for (int i = 0; i < bucketCount; i++) buckets.add(new ConcurrentLinkedQueue<Timeout>());
+        this.mask = bucketCount - 1;
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                work();
+            }
+        }, "GPars Memoize Timer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Schedules the task to run after the given delay
+     *
+     * @param task  A short task to run in the timer thread
+     * @param delay The delay in nanoseconds
+     * @return The handle to cancel the timeout with
+     */
+    Timeout schedule(final Runnable task, final long delay) {
+        final long due = Math.max(currentTick() + (delay + tickNanos - 1L) / tickNanos, processed + 1L);
+        final Timeout timeout = new Timeout(task, due);
+        buckets.get((int) (due & (long) mask)).offer(timeout);
+        if (pending.getAndIncrement() == 0) {
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+        return timeout;
+    }
+
+    private long currentTick() {
+        return (System.nanoTime() - start) / tickNanos;
+    }
+
+    @SuppressWarnings({"InfiniteLoopStatement"})
+    private void work() {
+        while (true) {
+            awaitTimeouts();
+            final long target = currentTick();
+            //a long sleep only needs one visit of each bucket to catch up
+            for (long tick = Math.max(processed + 1L, target - (long) mask); tick <= target; tick++) {
+                expire(buckets.get((int) (tick & (long) mask)), target);
+            }
+            processed = target;
+            final long next = (target + 1L) * tickNanos - (System.nanoTime() - start);
+            if (next > 0L) sleep(next);
+        }
+    }
+
+    private synchronized void awaitTimeouts() {
+        while (pending.get() == 0) {
+            try {
+                wait();
+            } catch (InterruptedException ignore) {
+                //the timer thread is never interrupted on purpose
+            }
+        }
+    }
+
+    private void expire(final Queue<Timeout> bucket, final long target) {
+        for (final Iterator<Timeout> iterator = bucket.iterator(); iterator.hasNext(); ) {
+            final Timeout timeout = iterator.next();
+            if (timeout.cancelled || timeout.due <= target) {
+                iterator.remove();
+                pending.decrementAndGet();
+                if (!timeout.cancelled) run(timeout.task);
+            }
+        }
+    }
+
+    @SuppressWarnings({"CatchGenericClass", "UseOfSystemOutOrSystemErr"})
+    private static void run(final Runnable task) {
+        try {
+            task.run();
+        } catch (Throwable e) {
+            e.printStackTrace(System.err);
+        }
+    }
+
+    private static void sleep(final long nanos) {
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException ignore) {
+            //the timer thread is never interrupted on purpose
+        }
+    }
+
+    /**
+     * A scheduled task, which can be cancelled before it runs
+     */
+    static final class Timeout {
+        private final Runnable task;
+        private final long due;
+        private volatile boolean cancelled = false;
+
+        private Timeout(final Runnable task, final long due) {
+            this.task = task;
+            this.due = due;
+        }
+
+        void cancel() {
+            cancelled = true;
+        }
+    }
+}
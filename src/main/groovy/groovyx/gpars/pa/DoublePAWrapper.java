@@ -0,0 +1,185 @@
+// GPars - Groovy Parallel Systems
+//
+// Copyright © 2008-10  The original author or authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package groovyx.gpars.pa;
+
+import groovy.lang.Closure;
+import jsr166y.forkjoin.Ops;
+import jsr166y.forkjoin.ParallelDoubleArray;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Wraps a ParallelDoubleArray instance in map/reduce operation chains.
+ * Unlike the generic PAWrapper the elements are held in a primitive double array, so no boxing happens between the individual steps.
+ * Closures passed to map(), filter() and reduce() receive and return plain numbers, which get converted to double.
+ */
+public final class DoublePAWrapper {
+
+    /**
+     * The wrapped ParallelDoubleArray view
+     */
+    private final ParallelDoubleArray.WithDoubleMapping pa;
+
+    /**
+     * Creates an instance wrapping the supplied instance of ParallelDoubleArray
+     *
+     * @param pa The array to wrap
+     */
+    public DoublePAWrapper(final ParallelDoubleArray pa) {
+        this(pa.withBounds(0, pa.size()));
+    }
+
+    private DoublePAWrapper(final ParallelDoubleArray.WithDoubleMapping pa) {
+        this.pa = pa;
+    }
+
+    /**
+     * Applies concurrently the supplied function to all elements in the collection
+     *
+     * @param cl A closure calculating a transformed value from the original one
+     * @return A parallel collection holding the new values
+     */
+    public DoublePAWrapper map(final Closure cl) {
+        return new DoublePAWrapper(pa.withMapping(new ClosureDoubleMapper(cl)));
+    }
+
+    /**
+     * Filters concurrently elements in the collection based on the outcome of the supplied function on each of the elements.
+     *
+     * @param cl A closure indicating whether to propagate the given element into the filtered collection
+     * @return A parallel collection holding the allowed values
+     */
+    public DoublePAWrapper filter(final Closure cl) {
+        final ClosureDoublePredicate predicate = new ClosureDoublePredicate(cl);
+        if (pa instanceof ParallelDoubleArray.WithFilter) {
+            return new DoublePAWrapper(((ParallelDoubleArray.WithFilter) pa).withFilter(predicate));
+        }
+        return new DoublePAWrapper(pa.all().withFilter(predicate));
+    }
+
+    /**
+     * Performs a parallel reduce operation. It will use the supplied two-argument closure to gradually reduce two elements into one.
+     *
+     * @param cl A two-argument closure merging two elements into one. The return value of the closure will replace the original two elements.
+     * @return The product of reduction or null for empty collections
+     */
+    public Double reduce(final Closure cl) {
+        if (pa.size() == 0) return null;
+        return pa.reduce(new ClosureDoubleReducer(cl), 0.0);
+    }
+
+    /**
+     * Performs a parallel reduce operation. It will use the supplied two-argument closure to gradually reduce two elements into one.
+     *
+     * @param seed The value to reduce the elements into, which is also returned for empty collections
+     * @param cl   A two-argument closure merging two elements into one. The return value of the closure will replace the original two elements.
+     * @return The product of reduction
+     */
+    public double reduce(final double seed, final Closure cl) {
+        final ClosureDoubleReducer reducer = new ClosureDoubleReducer(cl);
+        if (pa.size() == 0) return seed;
+        return reducer.combine(pa.reduce(reducer, 0.0), seed);
+    }
+
+    /**
+     * Summarizes all elements of the collection in parallel
+     *
+     * @return The sum of all elements in the collection
+     */
+    public double sum() {
+        return pa.sum();
+    }
+
+    /**
+     * Finds in parallel the minimum of all values in the collection
+     *
+     * @return The minimum element of the collection
+     */
+    public double min() {
+        return pa.min();
+    }
+
+    /**
+     * Finds in parallel the maximum of all values in the collection
+     *
+     * @return The maximum element of the collection
+     */
+    public double max() {
+        return pa.max();
+    }
+
+    /**
+     * Returns a parallel collection sorted in the natural order
+     *
+     * @return A sorted collection holding all the elements
+     */
+    public DoublePAWrapper sort() {
+        final ParallelDoubleArray sorted = pa.all();
+        sorted.sort();
+        return new DoublePAWrapper(sorted);
+    }
+
+    /**
+     * Returns a parallel collection sorted using the supplied two-argument closure as a comparator
+     *
+     * @param cl A two-argument closure comparing two elements
+     * @return A sorted collection holding all the elements
+     */
+    public DoublePAWrapper sort(final Closure cl) {
+        final ParallelDoubleArray sorted = pa.all();
+        sorted.sort(new Ops.DoubleComparator() {
+            @Override
+            public int compare(final double d, final double d1) {
+                return ((Number) cl.call(new Object[]{d, d1})).intValue();
+            }
+        });
+        return new DoublePAWrapper(sorted);
+    }
+
+    /**
+     * Size of the collection
+     *
+     * @return The number of elements in the collection
+     */
+    public int size() {
+        return pa.size();
+    }
+
+    /**
+     * Materializes the elements into a new primitive array
+     *
+     * @return A new array holding all the elements
+     */
+    public double[] getArray() {
+        final ParallelDoubleArray result = pa.all();
+        final double[] array = result.getArray();
+        if (array.length == result.size()) return array;
+        final double[] trimmed = new double[result.size()];
+        System.arraycopy(array, 0, trimmed, 0, trimmed.length);
+        return trimmed;
+    }
+
+    /**
+     * Reconstructs a collection from the wrapped ParallelDoubleArray instance
+     *
+     * @return A collection containing all elements of the wrapped ParallelDoubleArray
+     */
+    public List<Double> getCollection() {
+        return new ArrayList<Double>(pa.all().asList());
+    }
+}
@@ -0,0 +1,465 @@
+// GPars - Groovy Parallel Systems
+//
+// Copyright © 2008-10  The original author or authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package groovyx.gpars.pa;
+
+import groovy.lang.Closure;
+import groovyx.gpars.util.Granularity;
+import jsr166y.forkjoin.ForkJoinPool;
+import jsr166y.forkjoin.RecursiveTask;
+import org.codehaus.groovy.runtime.InvokerHelper;
+import org.codehaus.groovy.runtime.typehandling.DefaultTypeTransformation;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A lazily evaluated chain of map and filter operations over an array.
+ * Adding a stage only records the closure, no element gets processed until a terminal operation is invoked.
+ * Terminal operations split the array into ranges and each leaf fork/join task pushes every element of its range through all the stages
+ * in a single pass, so no intermediate collections get materialized between the stages.
+ * Leaf results are combined up the task tree, preserving the original order where it matters.
+ * The size of the leaves is derived from the cost of the stages measured on the first few elements.
+ */
+public final class FusedPipeline {
+
+    /**
+     * Marks elements removed by a filter stage as well as empty partial results
+     */
+    private static final Object NONE = new Object();
+
+    private final Object[] source;
+    private final int size;
+    private final ForkJoinPool pool;
+    private final Closure[] stages;
+    private final boolean[] filters;
+
+    /**
+     * Creates a pipeline without stages
+     *
+     * @param source The array holding the elements, which will not be modified
+     * @param size   The number of elements of the array to process
+     * @param pool   The pool to run the terminal operations in
+     */
+    public FusedPipeline(final Object[] source, final int size, final ForkJoinPool pool) {
+        this(source, size, pool, new Closure[0], new boolean[0]);
+    }
+
+    private FusedPipeline(final Object[] source, final int size, final ForkJoinPool pool, final Closure[] stages, final boolean[] filters) {
+        this.source = source;
+        this.size = size;
+        this.pool = pool;
+        this.stages = stages;
+        this.filters = filters;
+    }
+
+    /**
+     * Indicates, whether any stages have been added to the pipeline
+     *
+     * @return True, if the elements get transformed or filtered
+     */
+    public boolean hasStages() {
+        return stages.length > 0;
+    }
+
+    /**
+     * Adds a transformation stage
+     *
+     * @param code The closure calculating the transformed value
+     * @return A new pipeline with the stage appended
+     */
+    public FusedPipeline map(final Closure code) {
+        return append(code, false);
+    }
+
+    /**
+     * Adds a filtering stage
+     *
+     * @param code The closure deciding, whether the element should be passed further on
+     * @return A new pipeline with the stage appended
+     */
+    public FusedPipeline filter(final Closure code) {
+        return append(code, true);
+    }
+
+    private FusedPipeline append(final Closure code, final boolean filter) {
+        final Closure[] newStages = new Closure[stages.length + 1];
+        final boolean[] newFilters = new boolean[filters.length + 1];
+        System.arraycopy(stages, 0, newStages, 0, stages.length);
+        System.arraycopy(filters, 0, newFilters, 0, filters.length);
+        newStages[stages.length] = code;
+        newFilters[filters.length] = filter;
+        return new FusedPipeline(source, size, pool, newStages, newFilters);
+    }
+
+    /**
+     * Pushes a single element through all the stages
+     *
+     * @return The transformed element or NONE, if the element has been filtered out
+     */
+    private Object process(final Object element) {
+        Object value = element;
+        for (int i = 0; i < stages.length; i++) {
+            if (filters[i]) {
+                if (!DefaultTypeTransformation.castToBoolean(stages[i].call(value))) return NONE;
+            } else {
+                value = stages[i].call(value);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Materializes the elements leaving the pipeline
+     *
+     * @return A new list holding the elements in the original order
+     */
+    @SuppressWarnings({"unchecked"})
+    public List<Object> collect() {
+        return (List<Object>) run(new Terminal() {
+            @Override
+            Object start() {
+                return new ArrayList<Object>();
+            }
+
+            @Override
+            Object accept(final Object accumulator, final int index, final Object value) {
+                ((List<Object>) accumulator).add(value);
+                return accumulator;
+            }
+
+            @Override
+            Object merge(final Object left, final Object right) {
+                ((List<Object>) left).addAll((List<Object>) right);
+                return left;
+            }
+        });
+    }
+
+    /**
+     * Counts the elements leaving the pipeline
+     *
+     * @return The number of elements, which passed all the filters
+     */
+    public int count() {
+        return (Integer) run(new Terminal() {
+            @Override
+            Object start() {
+                return 0;
+            }
+
+            @Override
+            Object accept(final Object accumulator, final int index, final Object value) {
+                return (Integer) accumulator + 1;
+            }
+
+            @Override
+            Object merge(final Object left, final Object right) {
+                return (Integer) left + (Integer) right;
+            }
+        });
+    }
+
+    /**
+     * Reduces the elements leaving the pipeline using the supplied two-argument closure
+     *
+     * @param code The closure merging two elements into one
+     * @return The result of the reduction or null, if no elements left the pipeline
+     */
+    public Object reduce(final Closure code) {
+        return reduce(new Comparison() {
+            @Override
+            Object combine(final Object a, final Object b) {
+                return code.call(new Object[]{a, b});
+            }
+        });
+    }
+
+    /**
+     * Finds the minimum of the elements leaving the pipeline
+     *
+     * @param comparator The comparator to use
+     * @return The minimum or null, if no elements left the pipeline
+     */
+    public Object min(final Comparator<Object> comparator) {
+        return reduce(new Comparison() {
+            @Override
+            Object combine(final Object a, final Object b) {
+                return comparator.compare(a, b) <= 0 ? a : b;
+            }
+        });
+    }
+
+    /**
+     * Finds the maximum of the elements leaving the pipeline
+     *
+     * @param comparator The comparator to use
+     * @return The maximum or null, if no elements left the pipeline
+     */
+    public Object max(final Comparator<Object> comparator) {
+        return reduce(new Comparison() {
+            @Override
+            Object combine(final Object a, final Object b) {
+                return comparator.compare(a, b) >= 0 ? a : b;
+            }
+        });
+    }
+
+    private Object reduce(final Comparison comparison) {
+        final Object result = run(new Terminal() {
+            @Override
+            Object start() {
+                return NONE;
+            }
+
+            @Override
+            Object accept(final Object accumulator, final int index, final Object value) {
+                return accumulator == NONE ? value : comparison.combine(accumulator, value);
+            }
+
+            @Override
+            Object merge(final Object left, final Object right) {
+                if (left == NONE) return right;
+                if (right == NONE) return left;
+                return comparison.combine(left, right);
+            }
+        });
+        return result == NONE ? null : result;
+    }
+
+    /**
+     * Groups the elements leaving the pipeline by the values returned from the supplied closure.
+     * Each leaf groups its elements into a local hash map and the maps of neighbouring leaves get merged up the task tree,
+     * so no locks are needed and both the groups and the elements within groups keep the order of the original elements.
+     *
+     * @param code The closure calculating the group key
+     * @return A map of lists of elements belonging to the same group
+     */
+    @SuppressWarnings({"unchecked"})
+    public Map<Object, List<Object>> groupBy(final Closure code) {
+        return (Map<Object, List<Object>>) run(new LocalMapTerminal() {
+            @Override
+            Object start() {
+                return new LinkedHashMap<Object, List<Object>>();
+            }
+
+            @Override
+            Object accept(final Object accumulator, final int index, final Object value) {
+                final Map<Object, List<Object>> groups = (Map<Object, List<Object>>) accumulator;
+                final Object key = code.call(value);
+                List<Object> group = groups.get(key);
+                if (group == null) {
+                    group = new ArrayList<Object>();
+                    groups.put(key, group);
+                }
+                group.add(value);
+                return accumulator;
+            }
+
+            @Override
+            Object merge(final Object left, final Object right) {
+                final Map<Object, List<Object>> result = (Map<Object, List<Object>>) left;
+                for (final Map.Entry<Object, List<Object>> entry : ((Map<Object, List<Object>>) right).entrySet()) {
+                    final List<Object> group = result.get(entry.getKey());
+                    if (group == null) result.put(entry.getKey(), entry.getValue());
+                    else group.addAll(entry.getValue());
+                }
+                return result;
+            }
+        });
+    }
+
+    /**
+     * Combines the values of elements leaving the pipeline with the same keys into accumulators.
+     * Each leaf accumulates into a local hash map. When merging the maps of neighbouring leaves, the values held by the later accumulator
+     * get accumulated one by one into the earlier accumulator for the same key.
+     * The keys of the returned map keep the order, in which they first appeared among the elements.
+     *
+     * @param extractKey   Calculates the key of an element
+     * @param extractValue Calculates the value of an element
+     * @param initialValue Provides a fresh accumulator for a new key
+     * @param accumulation Accumulates a value into an accumulator returning the new accumulator
+     * @return A map of accumulators for all keys
+     */
+    public Map<Object, Object> combine(final Closure extractKey, final Closure extractValue, final Closure initialValue, final Closure accumulation) {
+        return combine(extractKey, extractValue, initialValue, accumulation, null);
+    }
+
+    /**
+     * Combines the values of elements leaving the pipeline with the same keys into accumulators.
+     * Each leaf accumulates into a local hash map and the maps of neighbouring leaves get merged up the task tree.
+     * The keys of the returned map keep the order, in which they first appeared among the elements.
+     *
+     * @param extractKey   Calculates the key of an element
+     * @param extractValue Calculates the value of an element
+     * @param initialValue Provides a fresh accumulator for a new key
+     * @param accumulation Accumulates a value into an accumulator returning the new accumulator
+     * @param merge        Merges two accumulators for the same key, the earlier one being the first argument.
+     *                     If null, the values held by the later accumulator get accumulated one by one into the earlier one.
+     * @return A map of accumulators for all keys
+     */
+    @SuppressWarnings({"unchecked"})
+    public Map<Object, Object> combine(final Closure extractKey, final Closure extractValue, final Closure initialValue, final Closure accumulation, final Closure merge) {
+        return values((Map<Object, Cell>) run(new LocalMapTerminal() {
+            @Override
+            Object start() {
+                return new LinkedHashMap<Object, Cell>();
+            }
+
+            @Override
+            Object accept(final Object accumulator, final int index, final Object value) {
+                final Map<Object, Cell> cells = (Map<Object, Cell>) accumulator;
+                final Object key = extractKey.call(value);
+                Cell cell = cells.get(key);
+                if (cell == null) {
+                    cell = new Cell(initialValue.call());
+                    cells.put(key, cell);
+                }
+                cell.value = accumulation.call(new Object[]{cell.value, extractValue.call(value)});
+                return accumulator;
+            }
+
+            @Override
+            Object merge(final Object left, final Object right) {
+                return mergeAccumulators((Map<Object, Cell>) left, (Map<Object, Cell>) right, accumulation, merge);
+            }
+        }));
+    }
+
+    /**
+     * Merges the accumulators of a later range into the accumulators of an earlier range
+     *
+     * @param left         The accumulators of the earlier range, which will hold the result
+     * @param right        The accumulators of the later range
+     * @param accumulation Accumulates a value into an accumulator
+     * @param merge        Merges two accumulators or null to accumulate the values held by the later accumulator into the earlier one
+     * @return The left map
+     */
+    static Map<Object, Cell> mergeAccumulators(final Map<Object, Cell> left, final Map<Object, Cell> right, final Closure accumulation, final Closure merge) {
+        for (final Map.Entry<Object, Cell> entry : right.entrySet()) {
+            final Cell cell = left.get(entry.getKey());
+            if (cell == null) {
+                left.put(entry.getKey(), entry.getValue());
+            } else if (merge != null) {
+                cell.value = merge.call(new Object[]{cell.value, entry.getValue().value});
+            } else {
+                for (final Iterator<?> iterator = InvokerHelper.asIterator(entry.getValue().value); iterator.hasNext();) {
+                    cell.value = accumulation.call(new Object[]{cell.value, iterator.next()});
+                }
+            }
+        }
+        return left;
+    }
+
+    /**
+     * Unwraps the accumulated values keeping the order of the keys
+     */
+    static Map<Object, Object> values(final Map<Object, Cell> cells) {
+        final Map<Object, Object> result = new LinkedHashMap<Object, Object>(cells.size() * 4 / 3 + 1);
+        for (final Map.Entry<Object, Cell> entry : cells.entrySet()) result.put(entry.getKey(), entry.getValue().value);
+        return result;
+    }
+
+    /**
+     * Pushes the first elements through the pipeline in the calling thread to measure the cost of the stages
+     * and then processes the remaining elements in parallel with leaf tasks sized accordingly.
+     */
+    private Object run(final Terminal terminal) {
+        final long start = System.nanoTime();
+        int sampled = 0;
+        Object accumulator = terminal.start();
+        while (Granularity.keepSampling(sampled, size, start)) {
+            accumulator = consume(terminal, accumulator, sampled);
+            sampled++;
+        }
+        if (sampled == size) return accumulator;
+        final int parallelism = pool.getParallelismLevel();
+        final int leafSize = terminal instanceof LocalMapTerminal ? Granularity.leafSize(0L, 0, size - sampled, parallelism) :
+                Granularity.leafSize(System.nanoTime() - start, sampled, size - sampled, parallelism);
+        return terminal.merge(accumulator, pool.invoke(new PipelineTask(terminal, sampled, size, leafSize)));
+    }
+
+    private Object consume(final Terminal terminal, final Object accumulator, final int index) {
+        final Object value = process(source[index]);
+        return value == NONE ? accumulator : terminal.accept(accumulator, index, value);
+    }
+
+    /**
+     * Collects the elements leaving the pipeline into partial results and merges partial results of neighbouring ranges
+     */
+    private abstract static class Terminal {
+        abstract Object start();
+
+        abstract Object accept(final Object accumulator, final int index, final Object value);
+
+        abstract Object merge(final Object left, final Object right);
+    }
+
+    /**
+     * A terminal building a hash map per leaf. With many distinct keys merging the maps of two leaves costs about as much as building them,
+     * so there is only one leaf per pool thread, which keeps both the number of maps and the depth of the merge tree minimal.
+     */
+    private abstract static class LocalMapTerminal extends Terminal {
+    }
+
+    /**
+     * A mutable holder of an accumulated value, so that accumulating into an existing key costs a single hash lookup
+     */
+    static final class Cell {
+        Object value;
+
+        Cell(final Object value) {
+            this.value = value;
+        }
+    }
+
+    private abstract static class Comparison {
+        abstract Object combine(final Object a, final Object b);
+    }
+
+    private final class PipelineTask extends RecursiveTask<Object> {
+        private final Terminal terminal;
+        private final int from;
+        private final int to;
+        private final int threshold;
+
+        private PipelineTask(final Terminal terminal, final int from, final int to, final int threshold) {
+            this.terminal = terminal;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected Object compute() {
+            if (to - from <= threshold) {
+                Object accumulator = terminal.start();
+                for (int i = from; i < to; i++) accumulator = consume(terminal, accumulator, i);
+                return accumulator;
+            }
+            final int middle = (from + to) >>> 1;
+            final PipelineTask left = new PipelineTask(terminal, from, middle, threshold);
+            final PipelineTask right = new PipelineTask(terminal, middle, to, threshold);
+            right.fork();
+            final Object leftResult = left.forkJoin();
+            return terminal.merge(leftResult, right.join());
+        }
+    }
+}
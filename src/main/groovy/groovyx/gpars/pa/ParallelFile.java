@@ -0,0 +1,505 @@
+// GPars - Groovy Parallel Systems
+//
+// Copyright © 2008-10  The original author or authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package groovyx.gpars.pa;
+
+import groovy.lang.Closure;
+import groovyx.gpars.util.Granularity;
+import jsr166y.forkjoin.ForkJoinPool;
+import jsr166y.forkjoin.RecursiveTask;
+import org.codehaus.groovy.runtime.InvokerHelper;
+import org.codehaus.groovy.runtime.typehandling.DefaultTypeTransformation;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Processes lines of a text file in parallel without reading the whole file into memory first.
+ * The file gets split into byte ranges aligned to line boundaries, each range is memory-mapped and its lines are decoded
+ * and pushed through the recorded map and filter stages by a fork/join task.
+ * Each task folds its lines into a local accumulator and the accumulators of neighbouring ranges get merged up the task tree,
+ * so the results keep the order of the lines in the file.
+ * Only single-byte-newline encodings, such as UTF-8 or ISO-8859-1, are supported, since ranges are split at the '\n' bytes.
+ */
+public final class ParallelFile {
+
+    /**
+     * The smallest range worth a separate task, unless a smaller range size is requested explicitly
+     */
+    public static final int MIN_RANGE_SIZE = 1 << 20;
+
+    /**
+     * The largest range to map at once
+     */
+    public static final int MAX_RANGE_SIZE = 1 << 26;
+
+    /**
+     * Marks elements removed by a filter stage as well as empty partial results
+     */
+    private static final Object NONE = new Object();
+
+    private static final byte NEW_LINE = (byte) '\n';
+    private static final byte CARRIAGE_RETURN = (byte) '\r';
+
+    private final File file;
+    private final Charset charset;
+    private final ForkJoinPool pool;
+    private final int rangeSize;
+    private final Closure[] stages;
+    private final boolean[] filters;
+
+    /**
+     * Creates a parallel view of the lines of the file with the range size derived from the file size and the pool parallelism
+     *
+     * @param file    The file to read
+     * @param charset The encoding of the file
+     * @param pool    The pool to run the terminal operations in
+     */
+    public ParallelFile(final File file, final Charset charset, final ForkJoinPool pool) {
+        this(file, charset, pool, Granularity.AUTO);
+    }
+
+    /**
+     * Creates a parallel view of the lines of the file
+     *
+     * @param file      The file to read
+     * @param charset   The encoding of the file
+     * @param pool      The pool to run the terminal operations in
+     * @param rangeSize The number of bytes to process by a single task or Granularity.AUTO
+     */
+    public ParallelFile(final File file, final Charset charset, final ForkJoinPool pool, final int rangeSize) {
+        this(file, charset, pool, rangeSize, new Closure[0], new boolean[0]);
+        if (!Arrays.equals("\n".getBytes(charset), new byte[]{NEW_LINE}))
+            throw new IllegalArgumentException("The " + charset + " encoding does not use a single byte for new lines.");
+        if (rangeSize < 0) throw new IllegalArgumentException("The range size must not be negative, but was " + rangeSize);
+    }
+
+    private ParallelFile(final File file, final Charset charset, final ForkJoinPool pool, final int rangeSize, final Closure[] stages, final boolean[] filters) {
+        this.file = file;
+        this.charset = charset;
+        this.pool = pool;
+        this.rangeSize = rangeSize;
+        this.stages = stages;
+        this.filters = filters;
+    }
+
+    /**
+     * Adds a transformation stage applied to each line
+     *
+     * @param code The closure calculating the transformed value
+     * @return A new parallel file with the stage appended
+     */
+    public ParallelFile map(final Closure code) {
+        return append(code, false);
+    }
+
+    /**
+     * Adds a filtering stage applied to each line
+     *
+     * @param code The closure deciding, whether the element should be passed further on
+     * @return A new parallel file with the stage appended
+     */
+    public ParallelFile filter(final Closure code) {
+        return append(code, true);
+    }
+
+    private ParallelFile append(final Closure code, final boolean filter) {
+        final Closure[] newStages = new Closure[stages.length + 1];
+        final boolean[] newFilters = new boolean[filters.length + 1];
+        System.arraycopy(stages, 0, newStages, 0, stages.length);
+        System.arraycopy(filters, 0, newFilters, 0, filters.length);
+        newStages[stages.length] = code;
+        newFilters[filters.length] = filter;
+        return new ParallelFile(file, charset, pool, rangeSize, newStages, newFilters);
+    }
+
+    /**
+     * Folds the elements into accumulators, one per range, and merges the accumulators of neighbouring ranges.
+     *
+     * @param initialValue Provides a fresh accumulator for each range
+     * @param accumulation Accumulates an element into an accumulator returning the new accumulator
+     * @param merge        Merges two accumulators of neighbouring ranges, the earlier one being the first argument
+     * @return The accumulator holding all the elements
+     */
+    public Object fold(final Closure initialValue, final Closure accumulation, final Closure merge) {
+        return run(new Terminal() {
+            @Override
+            Object start() {
+                return initialValue.call();
+            }
+
+            @Override
+            Object accept(final Object accumulator, final long offset, final Object value) {
+                return accumulation.call(new Object[]{accumulator, value});
+            }
+
+            @Override
+            Object merge(final Object left, final Object right) {
+                return merge.call(new Object[]{left, right});
+            }
+        });
+    }
+
+    /**
+     * Materializes the elements
+     *
+     * @return A new list holding the elements in the order of the lines in the file
+     */
+    @SuppressWarnings({"unchecked"})
+    public List<Object> collect() {
+        return (List<Object>) run(new Terminal() {
+            @Override
+            Object start() {
+                return new ArrayList<Object>();
+            }
+
+            @Override
+            Object accept(final Object accumulator, final long offset, final Object value) {
+                ((List<Object>) accumulator).add(value);
+                return accumulator;
+            }
+
+            @Override
+            Object merge(final Object left, final Object right) {
+                ((List<Object>) left).addAll((List<Object>) right);
+                return left;
+            }
+        });
+    }
+
+    /**
+     * Counts the elements
+     *
+     * @return The number of lines, which passed all the filters
+     */
+    public long count() {
+        return (Long) run(new Terminal() {
+            @Override
+            Object start() {
+                return 0L;
+            }
+
+            @Override
+            Object accept(final Object accumulator, final long offset, final Object value) {
+                return (Long) accumulator + 1L;
+            }
+
+            @Override
+            Object merge(final Object left, final Object right) {
+                return (Long) left + (Long) right;
+            }
+        });
+    }
+
+    /**
+     * Reduces the elements using the supplied two-argument closure
+     *
+     * @param code The closure merging two elements into one
+     * @return The result of the reduction or null, if the file holds no elements
+     */
+    public Object reduce(final Closure code) {
+        final Object result = run(new Terminal() {
+            @Override
+            Object start() {
+                return NONE;
+            }
+
+            @Override
+            Object accept(final Object accumulator, final long offset, final Object value) {
+                return accumulator == NONE ? value : code.call(new Object[]{accumulator, value});
+            }
+
+            @Override
+            Object merge(final Object left, final Object right) {
+                if (left == NONE) return right;
+                if (right == NONE) return left;
+                return code.call(new Object[]{left, right});
+            }
+        });
+        return result == NONE ? null : result;
+    }
+
+    /**
+     * Groups the elements by the values returned from the supplied closure.
+     * Each range groups its elements into a local map and the maps of neighbouring ranges get merged,
+     * so both the groups and the elements within groups keep the order of the lines in the file.
+     *
+     * @param code The closure calculating the group key
+     * @return A map of lists of elements belonging to the same group
+     */
+    @SuppressWarnings({"unchecked"})
+    public Map<Object, List<Object>> groupBy(final Closure code) {
+        return (Map<Object, List<Object>>) run(new Terminal() {
+            @Override
+            Object start() {
+                return new LinkedHashMap<Object, List<Object>>();
+            }
+
+            @Override
+            Object accept(final Object accumulator, final long offset, final Object value) {
+                final Map<Object, List<Object>> groups = (Map<Object, List<Object>>) accumulator;
+                final Object key = code.call(value);
+                List<Object> group = groups.get(key);
+                if (group == null) {
+                    group = new ArrayList<Object>();
+                    groups.put(key, group);
+                }
+                group.add(value);
+                return accumulator;
+            }
+
+            @Override
+            Object merge(final Object left, final Object right) {
+                final Map<Object, List<Object>> result = (Map<Object, List<Object>>) left;
+                for (final Map.Entry<Object, List<Object>> entry : ((Map<Object, List<Object>>) right).entrySet()) {
+                    final List<Object> group = result.get(entry.getKey());
+                    if (group == null) result.put(entry.getKey(), entry.getValue());
+                    else group.addAll(entry.getValue());
+                }
+                return result;
+            }
+        });
+    }
+
+    /**
+     * Combines the values of [key, value] tuples with the same keys into accumulators.
+     * Each range accumulates into a local map and the maps of neighbouring ranges get merged using the supplied merge closure.
+     * The keys of the returned map keep the order, in which they first appeared in the file.
+     *
+     * @param initialValue Provides a fresh accumulator for a new key. Closures get called, cloneable values cloned, other values reused.
+     * @param accumulation Accumulates a value into an accumulator returning the new accumulator
+     * @param merge        Merges two accumulators for the same key, the earlier one being the first argument.
+     *                     If null, the values held by the later accumulator get accumulated one by one into the earlier one.
+     * @return A map of accumulators for all keys
+     */
+    @SuppressWarnings({"unchecked"})
+    public Map<Object, Object> combine(final Object initialValue, final Closure accumulation, final Closure merge) {
+        return FusedPipeline.values((Map<Object, FusedPipeline.Cell>) run(new Terminal() {
+            @Override
+            Object start() {
+                return new LinkedHashMap<Object, FusedPipeline.Cell>();
+            }
+
+            @Override
+            Object accept(final Object accumulator, final long offset, final Object value) {
+                final Map<Object, FusedPipeline.Cell> cells = (Map<Object, FusedPipeline.Cell>) accumulator;
+                final Object key = keyOf(value);
+                FusedPipeline.Cell cell = cells.get(key);
+                if (cell == null) {
+                    cell = new FusedPipeline.Cell(freshValue(initialValue));
+                    cells.put(key, cell);
+                }
+                cell.value = accumulation.call(new Object[]{cell.value, valueOf(value)});
+                return accumulator;
+            }
+
+            @Override
+            Object merge(final Object left, final Object right) {
+                return FusedPipeline.mergeAccumulators((Map<Object, FusedPipeline.Cell>) left, (Map<Object, FusedPipeline.Cell>) right, accumulation, merge);
+            }
+        }));
+    }
+
+    /**
+     * Combines the values of [key, value] tuples with the same keys into accumulators, just like the three-argument variant does.
+     * When merging the maps of neighbouring ranges, the values held by the later accumulator get accumulated one by one
+     * into the earlier accumulator for the same key.
+     *
+     * @param initialValue Provides a fresh accumulator for a new key. Closures get called, cloneable values cloned, other values reused.
+     * @param accumulation Accumulates a value into an accumulator returning the new accumulator
+     * @return A map of accumulators for all keys
+     */
+    public Map<Object, Object> combine(final Object initialValue, final Closure accumulation) {
+        return combine(initialValue, accumulation, null);
+    }
+
+    private static Object keyOf(final Object tuple) {
+        return InvokerHelper.invokeMethod(tuple, "getAt", 0);
+    }
+
+    private static Object valueOf(final Object tuple) {
+        return InvokerHelper.invokeMethod(tuple, "getAt", 1);
+    }
+
+    private static Object freshValue(final Object initialValue) {
+        if (initialValue instanceof Closure) return ((Closure) initialValue).call();
+        if (initialValue instanceof Cloneable) return InvokerHelper.invokeMethod(initialValue, "clone", null);
+        return initialValue;
+    }
+
+    /**
+     * Pushes a single line through all the stages
+     *
+     * @return The transformed element or NONE, if the element has been filtered out
+     */
+    private Object process(final String line) {
+        Object value = line;
+        for (int i = 0; i < stages.length; i++) {
+            if (filters[i]) {
+                if (!DefaultTypeTransformation.castToBoolean(stages[i].call(value))) return NONE;
+            } else {
+                value = stages[i].call(value);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Splits the file into line-aligned ranges and folds the ranges in parallel
+     */
+    private Object run(final Terminal terminal) {
+        final RandomAccessFile input;
+        try {
+            input = new RandomAccessFile(file, "r");
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot open the file " + file, e);
+        }
+        try {
+            final FileChannel channel = input.getChannel();
+            final long[] boundaries = split(channel);
+            if (boundaries.length == 1) return terminal.start();
+            return pool.invoke(new RangeTask(terminal, channel, boundaries, 0, boundaries.length - 1));
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read the file " + file, e);
+        } finally {
+            try {
+                input.close();
+            } catch (IOException ignore) {
+            }
+        }
+    }
+
+    /**
+     * Calculates the range boundaries, each boundary but the first one following a new line character or the end of the file
+     */
+    private long[] split(final FileChannel channel) throws IOException {
+        final long size = channel.size();
+        final long targetSize = rangeSize == Granularity.AUTO ? autoRangeSize(size) : (long) rangeSize;
+        final List<Long> boundaries = new ArrayList<Long>();
+        boundaries.add(0L);
+        long position = 0L;
+        while (position < size) {
+            final long end = position + targetSize >= size ? size : lineEnd(channel, position + targetSize, size);
+            if (end - position > (long) Integer.MAX_VALUE) throw new IllegalStateException("A line of the file " + file + " is too long to be mapped.");
+            boundaries.add(end);
+            position = end;
+        }
+        final long[] result = new long[boundaries.size()];
+        for (int i = 0; i < result.length; i++) result[i] = boundaries.get(i);
+        return result;
+    }
+
+    private long autoRangeSize(final long size) {
+        final long perTask = size / (long) (pool.getParallelismLevel() * Granularity.OVERSUBSCRIPTION) + 1L;
+        return Math.min((long) MAX_RANGE_SIZE, Math.max((long) MIN_RANGE_SIZE, perTask));
+    }
+
+    /**
+     * Finds the position just after the first new line character at or after the given position
+     */
+    private static long lineEnd(final FileChannel channel, final long from, final long size) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(8192);
+        long position = from - 1L;
+        while (position < size) {
+            buffer.clear();
+            final int length = channel.read(buffer, position);
+            if (length <= 0) break;
+            for (int i = 0; i < length; i++) {
+                if (buffer.get(i) == NEW_LINE) return position + (long) i + 1L;
+            }
+            position += (long) length;
+        }
+        return size;
+    }
+
+    /**
+     * Maps a single range and folds all its lines into a fresh accumulator
+     */
+    private Object foldRange(final Terminal terminal, final FileChannel channel, final long from, final long to) {
+        final MappedByteBuffer buffer;
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot map the file " + file, e);
+        }
+        final int length = (int) (to - from);
+        byte[] line = new byte[256];
+        Object accumulator = terminal.start();
+        int lineStart = 0;
+        while (lineStart < length) {
+            int lineEnd = lineStart;
+            while (lineEnd < length && buffer.get(lineEnd) != NEW_LINE) lineEnd++;
+            int contentEnd = lineEnd;
+            if (contentEnd > lineStart && buffer.get(contentEnd - 1) == CARRIAGE_RETURN) contentEnd--;
+            final int lineLength = contentEnd - lineStart;
+            if (line.length < lineLength) line = new byte[Math.max(lineLength, line.length * 2)];
+            buffer.position(lineStart);
+            buffer.get(line, 0, lineLength);
+            final Object value = process(new String(line, 0, lineLength, charset));
+            if (value != NONE) accumulator = terminal.accept(accumulator, from + (long) lineStart, value);
+            lineStart = lineEnd + 1;
+        }
+        return accumulator;
+    }
+
+    /**
+     * Collects the elements into partial results and merges partial results of neighbouring ranges
+     */
+    private abstract static class Terminal {
+        abstract Object start();
+
+        abstract Object accept(final Object accumulator, final long offset, final Object value);
+
+        abstract Object merge(final Object left, final Object right);
+    }
+
+    private final class RangeTask extends RecursiveTask<Object> {
+        private final Terminal terminal;
+        private final FileChannel channel;
+        private final long[] boundaries;
+        private final int from;
+        private final int to;
+
+        private RangeTask(final Terminal terminal, final FileChannel channel, final long[] boundaries, final int from, final int to) {
+            this.terminal = terminal;
+            this.channel = channel;
+            this.boundaries = boundaries;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Object compute() {
+            if (to - from == 1) return foldRange(terminal, channel, boundaries[from], boundaries[to]);
+            final int middle = (from + to) >>> 1;
+            final RangeTask left = new RangeTask(terminal, channel, boundaries, from, middle);
+            final RangeTask right = new RangeTask(terminal, channel, boundaries, middle, to);
+            right.fork();
+            final Object leftResult = left.forkJoin();
+            return terminal.merge(leftResult, right.join());
+        }
+    }
+}
@@ -0,0 +1,244 @@
+// GPars - Groovy Parallel Systems
+//
+// Copyright © 2008-10  The original author or authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package groovyx.gpars.pa;
+
+import groovy.lang.Closure;
+import groovyx.gpars.util.Granularity;
+import jsr166y.forkjoin.ForkJoinPool;
+import jsr166y.forkjoin.ForkJoinWorkerThread;
+import jsr166y.forkjoin.ParallelArray;
+import jsr166y.forkjoin.RecursiveAction;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Iterates in parallel over random-access lists and iterators without first copying their elements into a ParallelArray.
+ * Random-access lists (and arrays viewed as lists) are split recursively by index ranges, so the original storage is read directly.
+ * Iterators are read sequentially in chunks, each chunk being processed in the fork/join pool while the next one is being read.
+ */
+@SuppressWarnings({"UtilityClass", "AbstractClassWithoutAbstractMethods", "AbstractClassNeverImplemented"})
+public abstract class ParallelIteration {
+
+    /**
+     * The number of leaf tasks to create for each thread of the pool, to balance load among threads
+     */
+    private static final int LEAVES_PER_THREAD = 8;
+
+    /**
+     * The number of elements read from an iterator before the chunk gets submitted for processing
+     */
+    private static final int CHUNK_SIZE = 1024;
+
+    /**
+     * Invokes the closure on all elements of the list in parallel
+     *
+     * @param list The random-access list to iterate over
+     * @param code The closure to invoke on each element
+     * @param pool The pool to use
+     */
+    public static void each(final List<?> list, final Closure code, final ForkJoinPool pool) {
+        each(list, code, pool, Granularity.AUTO);
+    }
+
+    /**
+     * Invokes the closure on all elements of the list in parallel.
+     * Unless the grain is given, the cost of the closure is measured on the first elements, which get processed by the calling thread,
+     * and the size of the leaf tasks for the remaining elements is derived from it.
+     *
+     * @param list  The random-access list to iterate over
+     * @param code  The closure to invoke on each element
+     * @param pool  The pool to use
+     * @param grain The number of elements per leaf task or Granularity.AUTO
+     */
+    public static void each(final List<?> list, final Closure code, final ForkJoinPool pool, final int grain) {
+        final int size = list.size();
+        int sampled = 0;
+        int leafSize = grain;
+        if (grain == Granularity.AUTO) {
+            final long start = System.nanoTime();
+            while (Granularity.keepSampling(sampled, size, start)) code.call(list.get(sampled++));
+            leafSize = Granularity.leafSize(System.nanoTime() - start, sampled, size - sampled, pool.getParallelismLevel());
+        }
+        if (sampled < size) pool.invoke(new EachTask(list, code, sampled, size, leafSize));
+    }
+
+    /**
+     * Invokes the closure on all elements of the list in parallel and collects the results in the original order
+     *
+     * @param list The random-access list to iterate over
+     * @param code The closure to calculate the transformed values
+     * @param pool The pool to use
+     * @return A list of the transformed values
+     */
+    public static List<Object> collect(final List<?> list, final Closure code, final ForkJoinPool pool) {
+        return collect(list, code, pool, Granularity.AUTO);
+    }
+
+    /**
+     * Invokes the closure on all elements of the list in parallel and collects the results in the original order.
+     * Unless the grain is given, the cost of the closure is measured on the first elements, which get processed by the calling thread,
+     * and the size of the leaf tasks for the remaining elements is derived from it.
+     *
+     * @param list  The random-access list to iterate over
+     * @param code  The closure to calculate the transformed values
+     * @param pool  The pool to use
+     * @param grain The number of elements per leaf task or Granularity.AUTO
+     * @return A list of the transformed values
+     */
+    public static List<Object> collect(final List<?> list, final Closure code, final ForkJoinPool pool, final int grain) {
+        final int size = list.size();
+        final Object[] result = new Object[size];
+        int sampled = 0;
+        int leafSize = grain;
+        if (grain == Granularity.AUTO) {
+            final long start = System.nanoTime();
+            while (Granularity.keepSampling(sampled, size, start)) {
+                result[sampled] = code.call(list.get(sampled));
+                sampled++;
+            }
+            leafSize = Granularity.leafSize(System.nanoTime() - start, sampled, size - sampled, pool.getParallelismLevel());
+        }
+        if (sampled < size) pool.invoke(new CollectTask(list, code, result, sampled, size, leafSize));
+        return ParallelArray.createUsingHandoff(result, pool).asList();
+    }
+
+    /**
+     * Reads the iterator in chunks and invokes the closure on the elements of each chunk in parallel, while the next chunk is being read.
+     * Only a limited number of chunks is kept in memory at any time.
+     *
+     * @param iterator The iterator to read the elements from
+     * @param code     The closure to invoke on each element
+     * @param pool     The pool to use
+     */
+    public static void eachStreamed(final Iterator<?> iterator, final Closure code, final ForkJoinPool pool) {
+        eachStreamed(iterator, code, pool, Granularity.AUTO);
+    }
+
+    /**
+     * Reads the iterator in chunks and invokes the closure on the elements of each chunk in parallel, while the next chunk is being read.
+     * Only a limited number of chunks is kept in memory at any time.
+     *
+     * @param iterator The iterator to read the elements from
+     * @param code     The closure to invoke on each element
+     * @param pool     The pool to use
+     * @param grain    The number of elements per leaf task or Granularity.AUTO to split each chunk evenly among threads
+     */
+    public static void eachStreamed(final Iterator<?> iterator, final Closure code, final ForkJoinPool pool, final int grain) {
+        if (Thread.currentThread() instanceof ForkJoinWorkerThread) {
+            //blocking a worker thread while waiting for chunks might starve the pool, so read everything first
+            final List<Object> all = new ArrayList<Object>();
+            while (iterator.hasNext()) all.add(iterator.next());
+            each(all, code, pool, grain);
+            return;
+        }
+        final int maxChunksInProgress = 2 * pool.getParallelismLevel();
+        final LinkedList<Future<Void>> inProgress = new LinkedList<Future<Void>>();
+        while (iterator.hasNext()) {
+            final List<Object> chunk = new ArrayList<Object>(CHUNK_SIZE);
+            while (chunk.size() < CHUNK_SIZE && iterator.hasNext()) chunk.add(iterator.next());
+            if (inProgress.size() >= maxChunksInProgress) await(inProgress.removeFirst());
+            final int leafSize = grain == Granularity.AUTO ? threshold(chunk.size(), pool) : grain;
+            inProgress.add(pool.submit(new EachTask(chunk, code, 0, chunk.size(), leafSize)));
+        }
+        for (final Future<Void> future : inProgress) await(future);
+    }
+
+    /**
+     * Calculates the maximum number of elements to process sequentially in a single leaf task
+     *
+     * @param size The total number of elements
+     * @param pool The pool to run the leaf tasks
+     * @return The leaf size
+     */
+    static int threshold(final int size, final ForkJoinPool pool) {
+        return Math.max(1, size / (LEAVES_PER_THREAD * pool.getParallelismLevel()));
+    }
+
+    @SuppressWarnings({"ThrowInsideCatchBlockWhichIgnoresCaughtException"})
+    private static void await(final Future<Void> future) {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a parallel iteration to finish.", e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IllegalStateException("Parallel iteration failed.", cause);
+        }
+    }
+
+    private static final class EachTask extends RecursiveAction {
+        private final List<?> list;
+        private final Closure code;
+        private final int from;
+        private final int to;
+        private final int threshold;
+
+        private EachTask(final List<?> list, final Closure code, final int from, final int to, final int threshold) {
+            this.list = list;
+            this.code = code;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= threshold) {
+                for (int i = from; i < to; i++) code.call(list.get(i));
+            } else {
+                final int middle = (from + to) >>> 1;
+                forkJoin(new EachTask(list, code, from, middle, threshold), new EachTask(list, code, middle, to, threshold));
+            }
+        }
+    }
+
+    private static final class CollectTask extends RecursiveAction {
+        private final List<?> list;
+        private final Closure code;
+        private final Object[] result;
+        private final int from;
+        private final int to;
+        private final int threshold;
+
+        private CollectTask(final List<?> list, final Closure code, final Object[] result, final int from, final int to, final int threshold) {
+            this.list = list;
+            this.code = code;
+            this.result = result;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= threshold) {
+                for (int i = from; i < to; i++) result[i] = code.call(list.get(i));
+            } else {
+                final int middle = (from + to) >>> 1;
+                forkJoin(new CollectTask(list, code, result, from, middle, threshold), new CollectTask(list, code, result, middle, to, threshold));
+            }
+        }
+    }
+}
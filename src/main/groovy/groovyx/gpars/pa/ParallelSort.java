@@ -0,0 +1,355 @@
+// GPars - Groovy Parallel Systems
+//
+// Copyright © 2008-10  The original author or authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package groovyx.gpars.pa;
+
+import groovy.lang.Closure;
+import jsr166y.forkjoin.ForkJoinPool;
+import jsr166y.forkjoin.ParallelArray;
+import jsr166y.forkjoin.RecursiveAction;
+import jsr166y.forkjoin.RecursiveTask;
+import org.codehaus.groovy.runtime.typehandling.DefaultTypeTransformation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Sorts arrays in parallel and selects the k largest or smallest elements without sorting the whole array.
+ * When ordering by a one-argument closure, the closure is invoked only once per element and the calculated keys are compared,
+ * instead of invoking the closure twice for every comparison.
+ * Sorting uses a parallel merge sort, which is stable, so elements with equal keys keep their original order.
+ * Top-k selection keeps a bounded heap of at most k elements per fork/join leaf and merges the heaps up the task tree.
+ */
+@SuppressWarnings({"UtilityClass", "AbstractClassWithoutAbstractMethods", "AbstractClassNeverImplemented"})
+public abstract class ParallelSort {
+
+    /**
+     * Orders keys the way the Groovy spaceship operator does
+     */
+    private static final Comparator<Object> NATURAL = new Comparator<Object>() {
+        @Override
+        public int compare(final Object o1, final Object o2) {
+            return DefaultTypeTransformation.compareTo(o1, o2);
+        }
+    };
+
+    /**
+     * Turns a closure into an ordering. Two-argument closures are used as comparators of the elements,
+     * one-argument closures calculate the keys to compare, null stands for the natural ordering.
+     *
+     * @param code The closure or null
+     * @return The ordering
+     */
+    public static Ordering ordering(final Closure code) {
+        if (code == null) return new Ordering(null, NATURAL);
+        if (code.getMaximumNumberOfParameters() == 2) return ordering(new Comparator<Object>() {
+            @Override
+            public int compare(final Object o1, final Object o2) {
+                return DefaultTypeTransformation.intUnbox(code.call(new Object[]{o1, o2}));
+            }
+        });
+        return new Ordering(code, NATURAL);
+    }
+
+    /**
+     * Wraps a comparator of the elements into an ordering
+     *
+     * @param comparator The comparator to use
+     * @return The ordering
+     */
+    @SuppressWarnings({"unchecked"})
+    public static Ordering ordering(final Comparator<?> comparator) {
+        return new Ordering(null, (Comparator<Object>) comparator);
+    }
+
+    /**
+     * Sorts the elements in parallel. The source array is not modified.
+     *
+     * @param source   The elements to sort
+     * @param size     The number of elements of the array to sort
+     * @param ordering The ordering to use
+     * @param pool     The pool to use
+     * @return A new list holding the sorted elements
+     */
+    public static List<Object> sort(final Object[] source, final int size, final Ordering ordering, final ForkJoinPool pool) {
+        return ParallelArray.createUsingHandoff(sortedArray(source, size, ordering, pool), pool).asList();
+    }
+
+    /**
+     * Sorts the elements in parallel. The source array is not modified.
+     *
+     * @param source   The elements to sort
+     * @param size     The number of elements of the array to sort
+     * @param ordering The ordering to use
+     * @param pool     The pool to use
+     * @return A new array holding the sorted elements
+     */
+    public static Object[] sortedArray(final Object[] source, final int size, final Ordering ordering, final ForkJoinPool pool) {
+        final Entry[] entries = new Entry[size];
+        final Comparator<Entry> comparator = new Comparator<Entry>() {
+            @Override
+            public int compare(final Entry o1, final Entry o2) {
+                return ordering.comparator.compare(o1.key, o2.key);
+            }
+        };
+        pool.invoke(new SortTask(source, entries, new Entry[size], 0, size, false, ordering, comparator, ParallelIteration.threshold(size, pool)));
+        final Object[] result = new Object[size];
+        for (int i = 0; i < size; i++) result[i] = entries[i].value;
+        return result;
+    }
+
+    /**
+     * Selects in parallel the k elements ranking first according to the ordering
+     *
+     * @param source   The elements to select from
+     * @param size     The number of elements of the array to consider
+     * @param k        The number of elements to select
+     * @param ordering The ordering to use
+     * @param largest  True to select the largest elements, false to select the smallest ones
+     * @param pool     The pool to use
+     * @return A list of at most k elements, starting with the largest (or smallest) one
+     */
+    public static List<Object> select(final Object[] source, final int size, final int k, final Ordering ordering, final boolean largest, final ForkJoinPool pool) {
+        if (k <= 0 || size == 0) return new ArrayList<Object>();
+        final Comparator<Entry> worstFirst = new Comparator<Entry>() {
+            @Override
+            public int compare(final Entry o1, final Entry o2) {
+                final int result = ordering.comparator.compare(o1.key, o2.key);
+                if (result != 0) return largest ? result : -result;
+                return o1.index > o2.index ? -1 : (o1.index == o2.index ? 0 : 1);
+            }
+        };
+        final PriorityQueue<Entry> heap = pool.invoke(new SelectTask(source, 0, size, k, ordering, worstFirst, ParallelIteration.threshold(size, pool)));
+        final List<Entry> entries = new ArrayList<Entry>(heap);
+        Collections.sort(entries, Collections.reverseOrder(worstFirst));
+        final List<Object> result = new ArrayList<Object>(entries.size());
+        for (final Entry entry : entries) result.add(entry.value);
+        return result;
+    }
+
+    /**
+     * Describes how to order elements - an optional closure calculating keys for the elements and a comparator of the keys
+     */
+    public static final class Ordering {
+        private final Closure key;
+        private final Comparator<Object> comparator;
+
+        private Ordering(final Closure key, final Comparator<Object> comparator) {
+            this.key = key;
+            this.comparator = comparator;
+        }
+
+        private Object keyOf(final Object element) {
+            return key == null ? element : key.call(element);
+        }
+    }
+
+    /**
+     * An element with its key calculated and its position in the source array
+     */
+    private static final class Entry {
+        private final Object key;
+        private final Object value;
+        private final int index;
+
+        private Entry(final Object key, final Object value, final int index) {
+            this.key = key;
+            this.value = value;
+            this.index = index;
+        }
+    }
+
+    /**
+     * Sorts a range, leaving the result either in the target or in the buffer array.
+     * Halves are sorted into the opposite array and then merged into the requested one, so no copying back is needed.
+     */
+    private static final class SortTask extends RecursiveAction {
+        private final Object[] source;
+        private final Entry[] target;
+        private final Entry[] buffer;
+        private final int from;
+        private final int to;
+        private final boolean intoBuffer;
+        private final Ordering ordering;
+        private final Comparator<Entry> comparator;
+        private final int threshold;
+
+        @SuppressWarnings({"ConstructorWithTooManyParameters"})
+        private SortTask(final Object[] source, final Entry[] target, final Entry[] buffer, final int from, final int to, final boolean intoBuffer,
+                         final Ordering ordering, final Comparator<Entry> comparator, final int threshold) {
+            this.source = source;
+            this.target = target;
+            this.buffer = buffer;
+            this.from = from;
+            this.to = to;
+            this.intoBuffer = intoBuffer;
+            this.ordering = ordering;
+            this.comparator = comparator;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            final Entry[] destination = intoBuffer ? buffer : target;
+            if (to - from <= threshold) {
+                for (int i = from; i < to; i++) {
+                    destination[i] = new Entry(ordering.keyOf(source[i]), source[i], i);
+                }
+                Arrays.sort(destination, from, to, comparator);
+                return;
+            }
+            final int middle = (from + to) >>> 1;
+            forkJoin(new SortTask(source, target, buffer, from, middle, !intoBuffer, ordering, comparator, threshold),
+                    new SortTask(source, target, buffer, middle, to, !intoBuffer, ordering, comparator, threshold));
+            new MergeTask(intoBuffer ? target : buffer, from, middle, middle, to, destination, from, comparator, threshold).forkJoin();
+        }
+    }
+
+    /**
+     * Merges two sorted ranges into the destination array, splitting the work in parallel by binary search.
+     * Of equal elements the ones from the left range go first to keep the sort stable.
+     */
+    private static final class MergeTask extends RecursiveAction {
+        private final Entry[] source;
+        private final int leftFrom;
+        private final int leftTo;
+        private final int rightFrom;
+        private final int rightTo;
+        private final Entry[] destination;
+        private final int position;
+        private final Comparator<Entry> comparator;
+        private final int threshold;
+
+        @SuppressWarnings({"ConstructorWithTooManyParameters"})
+        private MergeTask(final Entry[] source, final int leftFrom, final int leftTo, final int rightFrom, final int rightTo,
+                          final Entry[] destination, final int position, final Comparator<Entry> comparator, final int threshold) {
+            this.source = source;
+            this.leftFrom = leftFrom;
+            this.leftTo = leftTo;
+            this.rightFrom = rightFrom;
+            this.rightTo = rightTo;
+            this.destination = destination;
+            this.position = position;
+            this.comparator = comparator;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            final int leftSize = leftTo - leftFrom;
+            final int rightSize = rightTo - rightFrom;
+            if (leftSize + rightSize <= threshold || Math.max(leftSize, rightSize) < 2 || leftSize == 0 || rightSize == 0) {
+                merge();
+                return;
+            }
+            final int leftSplit;
+            final int rightSplit;
+            if (leftSize >= rightSize) {
+                leftSplit = (leftFrom + leftTo) >>> 1;
+                rightSplit = search(source[leftSplit], rightFrom, rightTo, false);
+            } else {
+                rightSplit = (rightFrom + rightTo) >>> 1;
+                leftSplit = search(source[rightSplit], leftFrom, leftTo, true);
+            }
+            final int secondPosition = position + (leftSplit - leftFrom) + (rightSplit - rightFrom);
+            forkJoin(new MergeTask(source, leftFrom, leftSplit, rightFrom, rightSplit, destination, position, comparator, threshold),
+                    new MergeTask(source, leftSplit, leftTo, rightSplit, rightTo, destination, secondPosition, comparator, threshold));
+        }
+
+        /**
+         * Finds the first index in the range holding an element greater than (or equal to, if not inclusive) the pivot
+         */
+        private int search(final Entry pivot, final int from, final int to, final boolean inclusive) {
+            int low = from;
+            int high = to;
+            while (low < high) {
+                final int middle = (low + high) >>> 1;
+                final int result = comparator.compare(source[middle], pivot);
+                if (result < 0 || inclusive && result == 0) low = middle + 1;
+                else high = middle;
+            }
+            return low;
+        }
+
+        private void merge() {
+            int left = leftFrom;
+            int right = rightFrom;
+            int index = position;
+            while (left < leftTo && right < rightTo) {
+                destination[index++] = comparator.compare(source[left], source[right]) <= 0 ? source[left++] : source[right++];
+            }
+            while (left < leftTo) destination[index++] = source[left++];
+            while (right < rightTo) destination[index++] = source[right++];
+        }
+    }
+
+    /**
+     * Collects the k best elements of a range into a heap with the worst of them on top
+     */
+    private static final class SelectTask extends RecursiveTask<PriorityQueue<Entry>> {
+        private final Object[] source;
+        private final int from;
+        private final int to;
+        private final int k;
+        private final Ordering ordering;
+        private final Comparator<Entry> worstFirst;
+        private final int threshold;
+
+        @SuppressWarnings({"ConstructorWithTooManyParameters"})
+        private SelectTask(final Object[] source, final int from, final int to, final int k, final Ordering ordering, final Comparator<Entry> worstFirst, final int threshold) {
+            this.source = source;
+            this.from = from;
+            this.to = to;
+            this.k = k;
+            this.ordering = ordering;
+            this.worstFirst = worstFirst;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected PriorityQueue<Entry> compute() {
+            if (to - from <= threshold) {
+                final PriorityQueue<Entry> heap = new PriorityQueue<Entry>(Math.min(k, to - from) + 1, worstFirst);
+                for (int i = from; i < to; i++) {
+                    offer(heap, new Entry(ordering.keyOf(source[i]), source[i], i));
+                }
+                return heap;
+            }
+            final int middle = (from + to) >>> 1;
+            final SelectTask left = new SelectTask(source, from, middle, k, ordering, worstFirst, threshold);
+            final SelectTask right = new SelectTask(source, middle, to, k, ordering, worstFirst, threshold);
+            right.fork();
+            final PriorityQueue<Entry> leftHeap = left.forkJoin();
+            final PriorityQueue<Entry> rightHeap = right.join();
+            final PriorityQueue<Entry> bigger = leftHeap.size() >= rightHeap.size() ? leftHeap : rightHeap;
+            final PriorityQueue<Entry> smaller = bigger == leftHeap ? rightHeap : leftHeap;
+            for (final Entry entry : smaller) offer(bigger, entry);
+            return bigger;
+        }
+
+        private void offer(final PriorityQueue<Entry> heap, final Entry entry) {
+            if (heap.size() < k) heap.add(entry);
+            else if (worstFirst.compare(entry, heap.peek()) > 0) {
+                heap.poll();
+                heap.add(entry);
+            }
+        }
+    }
+}
@@ -29,13 +29,20 @@ import java.net.SocketAddress;
 import java.net.UnknownHostException;
 import java.util.UUID;
 
-public class BroadcastDiscovery {
+/**
+ * Discovers hosts on the local network by multicasting the address of the local host every second.
+ * Each instance starts two threads and a multicast socket.
+ *
+ * @author Alex Tkachman
+ */
+public class BroadcastDiscovery implements Discovery {
     @SuppressWarnings({"StaticNonFinalField"})
     private static InetAddress group;
     private static final int PORT = 4239;
     private static final long MAGIC = 0x23982391L;
-    private final UUID uid;
-    private final InetSocketAddress address;
+    private UUID uid;
+    private InetSocketAddress address;
+    private Listener listener;
     private Thread sendThread;
     private Thread receiveThread;
     private volatile boolean stopped;
@@ -49,11 +56,25 @@ public class BroadcastDiscovery {
         }
     }
 
+    /**
+     * Creates a discovery to be started through start(id, address, listener)
+     */
+    public BroadcastDiscovery() {
+    }
+
     public BroadcastDiscovery(final UUID uid, final InetSocketAddress address) {
         this.uid = uid;
         this.address = address;
     }
 
+    @Override
+    public void start(final UUID id, final InetSocketAddress address, final Listener listener) {
+        this.uid = id;
+        this.address = address;
+        this.listener = listener;
+        start();
+    }
+
     public void start() {
         try {
             socket = new MulticastSocket(PORT);
@@ -76,17 +97,18 @@ public class BroadcastDiscovery {
             sendThread = new Thread() {
                 @Override
                 public void run() {
+                    //the first hello goes out immediately so that running hosts connect without delay
                     while (!stopped) {
-                        try {
-                            Thread.sleep(1000L);
-                        } catch (InterruptedException ignore) {
-                        }
-
                         try {
                             final DatagramPacket packet = new DatagramPacket(bytes, bytes.length, BroadcastDiscovery.group, PORT);
                             socket.send(packet);
                         } catch (IOException e) {
-                            e.printStackTrace();
+                            if (!stopped) e.printStackTrace();
+                        }
+
+                        try {
+                            Thread.sleep(1000L);
+                        } catch (InterruptedException ignore) {
                         }
                     }
                 }
@@ -117,7 +139,7 @@ public class BroadcastDiscovery {
                                 }
                             }
                         } catch (IOException e) {
-                            e.printStackTrace();
+                            if (!stopped) e.printStackTrace();
                         }
                     }
                 }
@@ -133,22 +155,27 @@ public class BroadcastDiscovery {
         try {
             stopped = true;
 
+            //closing the socket releases the receive thread blocked in receive()
+            if (socket != null) {
+                socket.close();
+            }
+
             if (sendThread != null) {
+                sendThread.interrupt();
                 sendThread.join();
             }
 
             if (receiveThread != null) {
                 receiveThread.join();
             }
-
-            if (socket != null) {
-                socket.close();
-            }
         } catch (InterruptedException e) {
             e.printStackTrace();
         }
     }
 
     protected void onDiscovery(final UUID uuid, final SocketAddress address) {
+        if (listener != null) {
+            listener.onDiscovery(uuid, address);
+        }
     }
 }
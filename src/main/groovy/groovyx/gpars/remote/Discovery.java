@@ -0,0 +1,56 @@
+// GPars - Groovy Parallel Systems
+//
+// Copyright © 2008-10  The original author or authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package groovyx.gpars.remote;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.UUID;
+
+/**
+ * Finds the remote hosts a transport provider should connect to.
+ * Implementations include multicast discovery (BroadcastDiscovery), a fixed list of seed addresses (StaticDiscovery)
+ * and a membership file (FileDiscovery).
+ * A discovery instance serves a single transport provider.
+ */
+public interface Discovery {
+
+    /**
+     * Starts looking for remote hosts. Hosts known upfront should be reported before the method returns.
+     *
+     * @param id       The id of the local host
+     * @param address  The address the local host accepts connections at
+     * @param listener Gets notified about the discovered hosts
+     */
+    void start(UUID id, InetSocketAddress address, Listener listener);
+
+    /**
+     * Stops looking for remote hosts and releases all resources held by the discovery
+     */
+    void stop();
+
+    /**
+     * Receives the discovered hosts. The same host may be reported repeatedly.
+     */
+    interface Listener {
+
+        /**
+         * @param id      The id of the discovered host, or null if not known
+         * @param address The address the discovered host accepts connections at
+         */
+        void onDiscovery(UUID id, SocketAddress address);
+    }
+}
@@ -0,0 +1,143 @@
+// GPars - Groovy Parallel Systems
+//
+// Copyright © 2008-10  The original author or authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package groovyx.gpars.remote;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Connects to the hosts listed in a membership file as soon as the transport provider starts.
+ * The file holds one host:port address per line, empty lines and lines starting with # are ignored.
+ * Optionally the file gets checked for modifications periodically and the hosts it lists get connected anew,
+ * so hosts may be added to a running cluster by updating the file.
+ * Only the local file system is polled, no network traffic is generated besides the connections themselves.
+ */
+public final class FileDiscovery implements Discovery {
+
+    private final File file;
+    private final long intervalMillis;
+    private Thread watchThread;
+    private volatile boolean stopped;
+
+    /**
+     * Reads the membership file once at startup
+     *
+     * @param file The membership file
+     */
+    public FileDiscovery(final File file) {
+        this(file, 0L, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param file     The membership file
+     * @param interval How often to check the file for modifications, zero to read it only once at startup
+     * @param unit     The unit of the interval
+     */
+    public FileDiscovery(final File file, final long interval, final TimeUnit unit) {
+        if (interval < 0L) throw new IllegalArgumentException("The interval must not be negative: " + interval);
+        this.file = file;
+        this.intervalMillis = unit.toMillis(interval);
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public void start(final UUID id, final InetSocketAddress address, final Listener listener) {
+        announce(listener);
+        if (intervalMillis == 0L) return;
+
+        watchThread = new Thread("GPars File Discovery") {
+            @Override
+            public void run() {
+                long lastModified = file.lastModified();
+                while (!stopped) {
+                    try {
+                        Thread.sleep(intervalMillis);
+                    } catch (InterruptedException ignore) {
+                        return;
+                    }
+                    final long modified = file.lastModified();
+                    if (modified != lastModified) {
+                        lastModified = modified;
+                        announce(listener);
+                    }
+                }
+            }
+        };
+        watchThread.setDaemon(true);
+        watchThread.start();
+    }
+
+    @Override
+    public void stop() {
+        stopped = true;
+        if (watchThread != null) {
+            watchThread.interrupt();
+            try {
+                watchThread.join();
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void announce(final Listener listener) {
+        try {
+            for (final SocketAddress member : readMembers()) {
+                listener.onDiscovery(null, member);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } catch (IllegalArgumentException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Reads the addresses listed in the membership file
+     *
+     * @return The addresses of the members
+     * @throws IOException If the file cannot be read
+     */
+    public List<InetSocketAddress> readMembers() throws IOException {
+        final List<InetSocketAddress> members = new ArrayList<InetSocketAddress>();
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final String trimmed = line.trim();
+                if (trimmed.length() > 0 && !trimmed.startsWith("#")) {
+                    members.add(StaticDiscovery.parseAddress(trimmed));
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return members;
+    }
+}
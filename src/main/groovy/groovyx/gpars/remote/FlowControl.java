@@ -0,0 +1,85 @@
+// GPars - Groovy Parallel Systems
+//
+// Copyright © 2008-10  The original author or authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package groovyx.gpars.remote;
+
+/**
+ * Configures credit-based flow control of actor messages sent between hosts.
+ * Each connection may carry at most a window of actor messages, which the receiving actors have not taken out of their mailboxes yet.
+ * The receiver returns the credits in batches as its actors consume the messages.
+ * Once a sender runs out of credits the overflow policy applies:
+ * <ul>
+ * <li>PAUSE holds the messages back in the connection and writes them as soon as credits arrive</li>
+ * <li>BLOCK makes the sending thread wait for credits</li>
+ * <li>FAIL throws an IllegalStateException</li>
+ * </ul>
+ * Only actor messages are subject to flow control. Both hosts of a connection must enable flow control with the same window,
+ * since senders start with the full window of credits.
+ */
+public final class FlowControl {
+
+    /**
+     * What to do with actor messages sent after the credits of the connection have run out
+     */
+    public enum Overflow {
+        PAUSE, BLOCK, FAIL
+    }
+
+    /**
+     * No flow control, actor messages are written as soon as they are sent
+     */
+    public static final FlowControl DISABLED = new FlowControl(0, Overflow.PAUSE);
+
+    private final int window;
+    private final Overflow overflow;
+
+    private FlowControl(final int window, final Overflow overflow) {
+        this.window = window;
+        this.overflow = overflow;
+    }
+
+    /**
+     * Creates a credit-based flow control
+     *
+     * @param window   The maximum number of unconsumed actor messages per connection
+     * @param overflow The policy to apply to actor messages sent without credits
+     * @return The flow control configuration
+     */
+    public static FlowControl credits(final int window, final Overflow overflow) {
+        if (window <= 0) throw new IllegalArgumentException("The credit window must be positive: " + window);
+        if (overflow == null) throw new IllegalArgumentException("The overflow policy must be specified");
+        return new FlowControl(window, overflow);
+    }
+
+    public boolean isEnabled() {
+        return window > 0;
+    }
+
+    public int getWindow() {
+        return window;
+    }
+
+    public Overflow getOverflow() {
+        return overflow;
+    }
+
+    /**
+     * @return The number of consumed messages to return credits for at once
+     */
+    int getGrantThreshold() {
+        return Math.max(1, window / 4);
+    }
+}
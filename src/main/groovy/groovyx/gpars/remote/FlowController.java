@@ -0,0 +1,175 @@
+// GPars - Groovy Parallel Systems
+//
+// Copyright © 2008-10  The original author or authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package groovyx.gpars.remote;
+
+import groovyx.gpars.actor.ActorMessage;
+import groovyx.gpars.actor.impl.MessageStream;
+import groovyx.gpars.remote.message.CreditMsg;
+import groovyx.gpars.serial.SerialMsg;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * Keeps the credits of a single connection.
+ * On the sending side it counts down the credits for outgoing actor messages and applies the overflow policy, once they run out.
+ * On the receiving side it tracks actor messages delivered over the connection and returns credits for them to the sender,
+ * as the actors take the messages out of their mailboxes.
+ */
+final class FlowController {
+    private final RemoteConnection connection;
+    private final FlowControl flowControl;
+
+    /**
+     * Credits available for sending, guarded by this
+     */
+    private int available;
+
+    /**
+     * Messages held back by the PAUSE policy, guarded by this
+     */
+    private final Queue<SerialMsg> backlog = new ArrayDeque<SerialMsg>();
+
+    /**
+     * Consumed messages, which the sender has not been given credits for yet
+     */
+    private final AtomicInteger consumed = new AtomicInteger(0);
+
+    FlowController(final RemoteConnection connection, final FlowControl flowControl) {
+        this.connection = connection;
+        this.flowControl = flowControl;
+        this.available = flowControl.getWindow();
+    }
+
+    /**
+     * Writes the message to the connection, unless it is an actor message and no credits are left
+     *
+     * @param msg The message to write
+     */
+    void send(final SerialMsg msg) {
+        if (!flowControl.isEnabled() || !(msg instanceof MessageStream.SendTo)) {
+            connection.write(msg);
+            return;
+        }
+        synchronized (this) {
+            if (available > 0 && backlog.isEmpty()) {
+                available--;
+                connection.write(msg);
+                return;
+            }
+            switch (flowControl.getOverflow()) {
+                case PAUSE:
+                    backlog.add(msg);
+                    return;
+                case BLOCK:
+                    awaitCredits();
+                    available--;
+                    connection.write(msg);
+                    return;
+                default:
+                    throw new IllegalStateException("No credits left to send a message to the remote host " + connection.getHost());
+            }
+        }
+    }
+
+    @SuppressWarnings({"WaitNotInLoop"})
+    private void awaitCredits() {
+        try {
+            while (available == 0) wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for credits to send a message to the remote host " + connection.getHost(), e);
+        }
+    }
+
+    /**
+     * Accepts credits returned by the receiver and writes the messages held back
+     *
+     * @param credits The number of messages the receiver has consumed
+     */
+    synchronized void addCredits(final int credits) {
+        if (!flowControl.isEnabled()) return;
+        available += credits;
+        while (available > 0 && !backlog.isEmpty()) {
+            available--;
+            connection.write(backlog.poll());
+        }
+        notifyAll();
+    }
+
+    /**
+     * @return The number of messages held back for lack of credits
+     */
+    synchronized int getBacklogSize() {
+        return backlog.size();
+    }
+
+    /**
+     * Passes an actor message received over the connection to its target, tracking its consumption
+     *
+     * @param to      The target of the message
+     * @param message The message
+     */
+    void deliver(final MessageStream to, final ActorMessage message) {
+        if (!flowControl.isEnabled()) {
+            to.send(message);
+            return;
+        }
+        final CreditedMessage credited = new CreditedMessage(message, this);
+        try {
+            to.send(credited);
+        } catch (RuntimeException e) {
+            credited.consume();
+            throw e;
+        }
+    }
+
+    private void onConsumed() {
+        final int count = consumed.incrementAndGet();
+        if (count >= flowControl.getGrantThreshold() && consumed.compareAndSet(count, 0)) {
+            connection.write(new CreditMsg(count));
+        }
+    }
+
+    /**
+     * Returns its credit once the target actor reads the payload, i.e. takes the message out of its mailbox
+     */
+    private static final class CreditedMessage extends ActorMessage {
+        private static final long serialVersionUID = 2196364712380930275L;
+        private static final AtomicIntegerFieldUpdater<CreditedMessage> consumedUpdater = AtomicIntegerFieldUpdater.newUpdater(CreditedMessage.class, "consumedFlag");
+
+        private final transient FlowController controller;
+        private volatile int consumedFlag = 0;
+
+        private CreditedMessage(final ActorMessage message, final FlowController controller) {
+            super(message.getPayLoad(), message.getSender());
+            this.controller = controller;
+        }
+
+        @Override
+        public Object getPayLoad() {
+            consume();
+            return super.getPayLoad();
+        }
+
+        private void consume() {
+            if (controller != null && consumedUpdater.compareAndSet(this, 0, 1)) controller.onConsumed();
+        }
+    }
+}
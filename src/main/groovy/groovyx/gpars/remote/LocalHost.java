@@ -57,6 +57,26 @@ public class LocalHost extends SerialHandles {
      */
     protected final Map<UUID, LocalNode> localNodes = new HashMap<UUID, LocalNode>();
 
+    /**
+     * Flow control of actor messages over the connections to remote hosts
+     */
+    private final FlowControl flowControl;
+
+    public LocalHost() {
+        this(FlowControl.DISABLED);
+    }
+
+    /**
+     * @param flowControl Flow control of actor messages over the connections to remote hosts
+     */
+    public LocalHost(final FlowControl flowControl) {
+        this.flowControl = flowControl;
+    }
+
+    public FlowControl getFlowControl() {
+        return flowControl;
+    }
+
     /**
      * Connect local node to the provider
      *
@@ -77,7 +97,7 @@ public class LocalHost extends SerialHandles {
 
         synchronized (remoteHosts) {
             for (final RemoteHost host : remoteHosts.values()) {
-                host.connect(node);
+                if (host.isConnected()) host.connect(node);
             }
         }
     }
@@ -90,7 +110,8 @@ public class LocalHost extends SerialHandles {
     public void disconnect(final LocalNode node) {
         synchronized (remoteHosts) {
             for (final RemoteHost host : remoteHosts.values()) {
-                host.disconnect(node);
+                //hosts, which have lost all their connections, learnt about the disconnection already
+                if (host.isConnected()) host.disconnect(node);
             }
         }
 
@@ -107,6 +128,17 @@ public class LocalHost extends SerialHandles {
         }
     }
 
+    /**
+     * Writes out messages buffered by the connections to all remote hosts
+     */
+    public void flush() {
+        synchronized (remoteHosts) {
+            for (final RemoteHost remoteHost : remoteHosts.values()) {
+                remoteHost.flush();
+            }
+        }
+    }
+
     public void disconnect() {
         synchronized (localNodes) {
             final Iterable<LocalNode> copy = new ArrayList<LocalNode>(localNodes.values());
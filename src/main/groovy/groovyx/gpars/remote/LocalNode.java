@@ -45,6 +45,11 @@ public class LocalNode {
 
     private final ThreadPoolExecutor scheduler;
 
+    /**
+     * Kept referenced, since the group shuts the scheduler down once finalized
+     */
+    private final PGroup group;
+
     private final Actor mainActor;
 
     private final UUID id = UUID.randomUUID();
@@ -86,7 +91,7 @@ public class LocalNode {
                 });
 
         //todo who is the group's owner?
-        final PGroup group = new DefaultPGroup(new DefaultPool(scheduler));
+        group = new DefaultPGroup(new DefaultPool(scheduler));
 
         if (runnable != null) {
             if (runnable instanceof Closure) {
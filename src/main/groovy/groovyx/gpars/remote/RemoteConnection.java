@@ -16,6 +16,8 @@
 
 package groovyx.gpars.remote;
 
+import groovyx.gpars.actor.ActorMessage;
+import groovyx.gpars.actor.impl.MessageStream;
 import groovyx.gpars.remote.message.HostIdMsg;
 import groovyx.gpars.serial.SerialMsg;
 
@@ -29,13 +31,21 @@ public abstract class RemoteConnection {
 
     private RemoteHost host;
 
+    private final FlowController flowController;
+
     protected RemoteConnection(final LocalHost provider) {
         this.localHost = provider;
+        this.flowController = new FlowController(this, provider.getFlowControl());
     }
 
     public void onMessage(final SerialMsg msg) {
         if (host == null) {
             final SerialMsg idMsg = (HostIdMsg) msg;
+            if (idMsg.hostId.equals(localHost.getId())) {
+                //a static peer list may contain the local host itself
+                disconnect();
+                return;
+            }
             host = (RemoteHost) localHost.getSerialHost(idMsg.hostId, this);
         } else {
             throw new IllegalStateException("Unexpected message: " + msg);
@@ -50,11 +60,57 @@ public abstract class RemoteConnection {
     }
 
     public void onDisconnect() {
+        if (host != null) {
+            host.removeConnection(this);
+            //the remote nodes stay reachable through the other connections to the host
+            if (host.isConnected()) return;
+        }
         localHost.onDisconnect(host);
     }
 
     public abstract void write(SerialMsg msg);
 
+    /**
+     * Writes the message subject to the flow control of the connection
+     *
+     * @param msg The message to send
+     */
+    public final void send(final SerialMsg msg) {
+        flowController.send(msg);
+    }
+
+    /**
+     * Hands an actor message received over the connection to its target, subject to the flow control of the connection
+     *
+     * @param to      The target of the message
+     * @param message The message to deliver
+     */
+    public final void deliver(final MessageStream to, final ActorMessage message) {
+        flowController.deliver(to, message);
+    }
+
+    /**
+     * Accepts credits returned by the remote host for consumed actor messages
+     *
+     * @param credits The number of credits
+     */
+    public final void addCredits(final int credits) {
+        flowController.addCredits(credits);
+    }
+
+    /**
+     * @return The number of actor messages held back for lack of credits
+     */
+    public final int getBacklogSize() {
+        return flowController.getBacklogSize();
+    }
+
+    /**
+     * Writes out messages buffered by the connection, if it batches writes
+     */
+    public void flush() {
+    }
+
     public RemoteHost getHost() {
         return host;
     }
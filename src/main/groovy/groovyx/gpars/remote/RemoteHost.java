@@ -26,13 +26,24 @@ import java.util.Map;
 import java.util.UUID;
 
 /**
- * Representation of remote host connected to transport provider
+ * Representation of remote host connected to transport provider.
+ * Messages are spread over all connections to the host by their ordering key,
+ * so messages with the same key, e.g. messages to the same actor, always travel in order over the same connection.
+ * The ordering only holds while the set of connections stays the same. Messages written while connections to the host
+ * are being opened, e.g. during the handshakes right after discovery, or closed may overtake each other.
  *
  * @author Alex Tkachman
  */
 public final class RemoteHost extends SerialContext {
+    private static final RemoteConnection[] NO_CONNECTIONS = new RemoteConnection[0];
+
     private final ArrayList<RemoteConnection> connections = new ArrayList<RemoteConnection>();
 
+    /**
+     * A snapshot of the connections for lock-free lookups when writing
+     */
+    private volatile RemoteConnection[] activeConnections = NO_CONNECTIONS;
+
     public RemoteHost(final LocalHost localHost, final UUID hostId) {
         super(localHost, hostId);
     }
@@ -41,6 +52,7 @@ public final class RemoteHost extends SerialContext {
         synchronized (connections) {
             final boolean wasConnected = isConnected();
             connections.add(connection);
+            activeConnections = connections.toArray(NO_CONNECTIONS);
             if (wasConnected != isConnected()) {
                 final Map<UUID, LocalNode> localNodes = ((LocalHost) localHost).localNodes;
                 //noinspection SynchronizationOnLocalVariableOrMethodParameter
@@ -57,6 +69,7 @@ public final class RemoteHost extends SerialContext {
         synchronized (connections) {
             final boolean wasConnected = isConnected();
             connections.remove(connection);
+            activeConnections = connections.toArray(NO_CONNECTIONS);
             if (wasConnected != isConnected()) {
 //            sendLocalNodes();
             }
@@ -64,11 +77,22 @@ public final class RemoteHost extends SerialContext {
     }
 
     public void disconnect() {
-        for (final RemoteConnection connection : connections) {
+        for (final RemoteConnection connection : activeConnections) {
             connection.disconnect();
         }
     }
 
+    /**
+     * Writes out messages buffered by the connections to the host
+     */
+    public void flush() {
+        synchronized (connections) {
+            for (final RemoteConnection connection : connections) {
+                connection.flush();
+            }
+        }
+    }
+
     public boolean isConnected() {
         return !connections.isEmpty();
     }
@@ -76,13 +100,32 @@ public final class RemoteHost extends SerialContext {
     @Override
     public void write(final SerialMsg msg) {
         msg.hostId = getLocalHost().getId();
-        getConnection().write(msg);
+        getConnection(msg.getOrderingKey()).send(msg);
     }
 
     public RemoteConnection getConnection() {
         return connections.get(0);
     }
 
+    /**
+     * Picks the connection for messages with the given ordering key.
+     * The choice stays the same as long as the set of connections to the host does not change.
+     *
+     * @param orderingKey The key of the message or null
+     * @return The connection to write the message to
+     */
+    public RemoteConnection getConnection(final Object orderingKey) {
+        final RemoteConnection[] current = activeConnections;
+        if (current.length == 0) {
+            throw new IllegalStateException("The remote host " + getHostId() + " is not connected");
+        }
+        if (orderingKey == null || current.length == 1) {
+            return current[0];
+        }
+        final int hash = orderingKey.hashCode();
+        return current[((hash ^ (hash >>> 16)) & Integer.MAX_VALUE) % current.length];
+    }
+
     public void connect(final LocalNode node) {
         write(new NodeConnectedMsg(node));
     }
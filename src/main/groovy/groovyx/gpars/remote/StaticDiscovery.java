@@ -0,0 +1,101 @@
+// GPars - Groovy Parallel Systems
+//
+// Copyright © 2008-10  The original author or authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package groovyx.gpars.remote;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Connects to a fixed list of seed addresses as soon as the transport provider starts.
+ * No network traffic is generated besides the connections themselves.
+ * Hosts listing each other as seeds get connected whichever of them starts first,
+ * a host may safely find its own address among the seeds.
+ */
+public final class StaticDiscovery implements Discovery {
+
+    private final List<SocketAddress> peers;
+
+    /**
+     * @param peers The addresses of the hosts to connect to
+     */
+    public StaticDiscovery(final SocketAddress... peers) {
+        this(Arrays.asList(peers));
+    }
+
+    /**
+     * @param peers The addresses of the hosts to connect to
+     */
+    public StaticDiscovery(final Collection<? extends SocketAddress> peers) {
+        this.peers = Collections.unmodifiableList(new ArrayList<SocketAddress>(peers));
+    }
+
+    /**
+     * Creates a discovery from a comma-separated list of addresses, e.g. "node1:9000, node2:9000"
+     *
+     * @param peers The addresses of the hosts to connect to
+     * @return A new discovery connecting to the given addresses
+     */
+    public static StaticDiscovery parse(final String peers) {
+        final List<SocketAddress> addresses = new ArrayList<SocketAddress>();
+        for (final String peer : peers.split(",")) {
+            if (peer.trim().length() > 0) {
+                addresses.add(parseAddress(peer));
+            }
+        }
+        return new StaticDiscovery(addresses);
+    }
+
+    /**
+     * Parses an address in the host:port format
+     *
+     * @param address The address to parse
+     * @return The socket address
+     */
+    static InetSocketAddress parseAddress(final String address) {
+        final String trimmed = address.trim();
+        final int colon = trimmed.lastIndexOf(':');
+        if (colon <= 0 || colon == trimmed.length() - 1) {
+            throw new IllegalArgumentException("The address must be in the host:port format: " + trimmed);
+        }
+        try {
+            return new InetSocketAddress(trimmed.substring(0, colon), Integer.parseInt(trimmed.substring(colon + 1)));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("The address must be in the host:port format: " + trimmed, e);
+        }
+    }
+
+    public List<SocketAddress> getPeers() {
+        return peers;
+    }
+
+    @Override
+    public void start(final UUID id, final InetSocketAddress address, final Listener listener) {
+        for (final SocketAddress peer : peers) {
+            listener.onDiscovery(null, peer);
+        }
+    }
+
+    @Override
+    public void stop() {
+    }
+}
@@ -0,0 +1,183 @@
+// GPars - Groovy Parallel Systems
+//
+// Copyright © 2008-10  The original author or authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package groovyx.gpars.remote.loopback;
+
+import groovyx.gpars.remote.LocalHost;
+import groovyx.gpars.remote.RemoteConnection;
+import groovyx.gpars.remote.RemoteHost;
+import groovyx.gpars.remote.netty.RemoteCodec;
+import groovyx.gpars.serial.SerialMsg;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * One end of an in-memory pipe between two loopback transport providers.
+ * Written messages get encoded in the writing thread and passed to the other end,
+ * whose receiver thread waits for the simulated arrival time, decodes the messages and executes them in order.
+ */
+public final class LoopbackConnection extends RemoteConnection {
+
+    private static final Frame CLOSE = new Frame(null, 0L);
+
+    private final LoopbackNetwork network;
+    private final RemoteCodec codec;
+    private final BlockingQueue<Frame> inbound = new LinkedBlockingQueue<Frame>();
+    private LoopbackConnection peer;
+
+    /**
+     * The time the outbound link finishes transmitting the messages written so far, guarded by this
+     */
+    private long linkFreeAt = 0L;
+    private volatile boolean closed = false;
+
+    private LoopbackConnection(final LoopbackNetwork network, final LocalHost provider) {
+        super(provider);
+        this.network = network;
+        this.codec = network.getCodecFactory().createCodec();
+    }
+
+    /**
+     * Creates a pipe between two providers and lets both ends introduce their hosts
+     *
+     * @param network The network holding the providers
+     * @param first   One of the providers
+     * @param second  The other provider
+     */
+    static void open(final LoopbackNetwork network, final LocalHost first, final LocalHost second) {
+        final LoopbackConnection firstEnd = new LoopbackConnection(network, first);
+        final LoopbackConnection secondEnd = new LoopbackConnection(network, second);
+        firstEnd.peer = secondEnd;
+        secondEnd.peer = firstEnd;
+        firstEnd.startReceiver();
+        secondEnd.startReceiver();
+        firstEnd.onConnect();
+        secondEnd.onConnect();
+    }
+
+    private void startReceiver() {
+        final Thread receiver = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                receive();
+            }
+        }, "GPars Loopback Receiver");
+        receiver.setDaemon(true);
+        receiver.start();
+    }
+
+    @Override
+    public void write(final SerialMsg msg) {
+        if (closed) return;
+        synchronized (this) {
+            final byte[] bytes;
+            try {
+                bytes = encode(msg);
+            } catch (IOException e) {
+                onException(e);
+                e.printStackTrace();
+                return;
+            }
+            final long[] times = network.schedule(bytes.length, linkFreeAt, System.nanoTime());
+            linkFreeAt = times[0];
+            peer.inbound.add(new Frame(bytes, times[1]));
+        }
+    }
+
+    @Override
+    public void disconnect() {
+        close();
+        peer.close();
+    }
+
+    private void close() {
+        if (closed) return;
+        closed = true;
+        inbound.add(CLOSE);
+    }
+
+    private byte[] encode(final SerialMsg msg) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final RemoteHost remoteHost = getHost();
+        if (remoteHost != null) {
+            remoteHost.enter();
+        }
+        try {
+            codec.encode(msg, out);
+        } finally {
+            if (remoteHost != null) {
+                remoteHost.leave();
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private SerialMsg decode(final byte[] bytes) throws IOException, ClassNotFoundException {
+        final RemoteHost remoteHost = getHost();
+        if (remoteHost != null) {
+            remoteHost.enter();
+        }
+        try {
+            return (SerialMsg) codec.decode(new ByteArrayInputStream(bytes));
+        } finally {
+            if (remoteHost != null) {
+                remoteHost.leave();
+            }
+        }
+    }
+
+    @SuppressWarnings({"CatchGenericClass"})
+    private void receive() {
+        try {
+            while (true) {
+                final Frame frame = inbound.take();
+                if (frame == CLOSE) {
+                    onDisconnect();
+                    return;
+                }
+                long remaining;
+                while ((remaining = frame.arrival - System.nanoTime()) > 0L) {
+                    LockSupport.parkNanos(remaining);
+                }
+                try {
+                    decode(frame.bytes).execute(this);
+                } catch (Throwable e) {
+                    onException(e);
+                    e.printStackTrace();
+                }
+            }
+        } catch (InterruptedException ignore) {
+        }
+    }
+
+    /**
+     * An encoded message with its time of arrival
+     */
+    private static final class Frame {
+        private final byte[] bytes;
+        private final long arrival;
+
+        private Frame(final byte[] bytes, final long arrival) {
+            this.bytes = bytes;
+            this.arrival = arrival;
+        }
+    }
+}
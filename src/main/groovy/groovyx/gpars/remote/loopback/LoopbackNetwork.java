@@ -0,0 +1,116 @@
+// GPars - Groovy Parallel Systems
+//
+// Copyright © 2008-10  The original author or authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package groovyx.gpars.remote.loopback;
+
+import groovyx.gpars.remote.netty.CompactCodec;
+import groovyx.gpars.remote.netty.RemoteCodec;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Connects LoopbackTransportProviders living in the same JVM.
+ * A provider joining the network gets immediately connected to all providers already present, no discovery is involved.
+ * Messages pass through the full encode/decode path using the network's codec.
+ * Optionally each message gets delayed by a fixed latency and each connection gets limited to a given bandwidth,
+ * so that the behavior of remote actors over slow networks can be reproduced deterministically.
+ */
+public final class LoopbackNetwork {
+
+    private final List<LoopbackTransportProvider> providers = new ArrayList<LoopbackTransportProvider>();
+    private final long latencyNanos;
+    private final long bytesPerSecond;
+    private final RemoteCodec.Factory codecFactory;
+
+    /**
+     * Creates a network without any latency or bandwidth limits
+     */
+    public LoopbackNetwork() {
+        this(0L, TimeUnit.NANOSECONDS, 0L);
+    }
+
+    /**
+     * @param latency        The time it takes a message to reach the other side, once written
+     * @param unit           The unit of the latency
+     * @param bytesPerSecond The bandwidth of each connection in each direction, zero for unlimited
+     */
+    public LoopbackNetwork(final long latency, final TimeUnit unit, final long bytesPerSecond) {
+        this(latency, unit, bytesPerSecond, CompactCodec.FACTORY);
+    }
+
+    /**
+     * @param latency        The time it takes a message to reach the other side, once written
+     * @param unit           The unit of the latency
+     * @param bytesPerSecond The bandwidth of each connection in each direction, zero for unlimited
+     * @param codecFactory   Creates the codecs to encode the messages with
+     */
+    public LoopbackNetwork(final long latency, final TimeUnit unit, final long bytesPerSecond, final RemoteCodec.Factory codecFactory) {
+        if (latency < 0L) throw new IllegalArgumentException("The latency must not be negative: " + latency);
+        if (bytesPerSecond < 0L) throw new IllegalArgumentException("The bandwidth must not be negative: " + bytesPerSecond);
+        this.latencyNanos = unit.toNanos(latency);
+        this.bytesPerSecond = bytesPerSecond;
+        this.codecFactory = codecFactory;
+    }
+
+    public long getLatencyNanos() {
+        return latencyNanos;
+    }
+
+    public long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    public RemoteCodec.Factory getCodecFactory() {
+        return codecFactory;
+    }
+
+    /**
+     * Connects the provider to all providers of the network
+     *
+     * @param provider The provider joining the network
+     */
+    synchronized void join(final LoopbackTransportProvider provider) {
+        for (final LoopbackTransportProvider peer : providers) {
+            LoopbackConnection.open(this, peer, provider);
+        }
+        providers.add(provider);
+    }
+
+    /**
+     * Prevents further connections to the provider, the provider itself closes its existing connections
+     *
+     * @param provider The provider leaving the network
+     */
+    synchronized void leave(final LoopbackTransportProvider provider) {
+        providers.remove(provider);
+    }
+
+    /**
+     * Calculates the time of arrival of a message
+     *
+     * @param length     The size of the encoded message
+     * @param linkFreeAt The time the link finishes transmitting the previous messages
+     * @param now        The current time
+     * @return The time the message transmission finishes followed by the time the message arrives
+     */
+    long[] schedule(final int length, final long linkFreeAt, final long now) {
+        final long start = Math.max(now, linkFreeAt);
+        final long transmitted = bytesPerSecond > 0L ? start + length * 1000000000L / bytesPerSecond : start;
+        return new long[]{transmitted, transmitted + latencyNanos};
+    }
+}
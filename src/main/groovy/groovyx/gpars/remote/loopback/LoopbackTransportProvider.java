@@ -0,0 +1,57 @@
+// GPars - Groovy Parallel Systems
+//
+// Copyright © 2008-10  The original author or authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package groovyx.gpars.remote.loopback;
+
+import groovyx.gpars.remote.FlowControl;
+import groovyx.gpars.remote.LocalHost;
+
+/**
+ * Transport provider connecting local hosts of the same JVM through in-memory pipes.
+ * Unlike the NettyTransportProvider it binds no sockets and performs no multicast discovery,
+ * it connects to all providers of its LoopbackNetwork as soon as it gets created.
+ */
+public class LoopbackTransportProvider extends LocalHost {
+
+    private final LoopbackNetwork network;
+
+    /**
+     * @param network The network to join
+     */
+    public LoopbackTransportProvider(final LoopbackNetwork network) {
+        this(network, FlowControl.DISABLED);
+    }
+
+    /**
+     * @param network     The network to join
+     * @param flowControl Flow control of actor messages over the connections to remote hosts
+     */
+    public LoopbackTransportProvider(final LoopbackNetwork network, final FlowControl flowControl) {
+        super(flowControl);
+        this.network = network;
+        network.join(this);
+    }
+
+    public LoopbackNetwork getNetwork() {
+        return network;
+    }
+
+    @Override
+    public void disconnect() {
+        network.leave(this);
+        super.disconnect();
+    }
+}
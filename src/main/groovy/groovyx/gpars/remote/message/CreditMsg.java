@@ -0,0 +1,45 @@
+// GPars - Groovy Parallel Systems
+//
+// Copyright © 2008-10  The original author or authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package groovyx.gpars.remote.message;
+
+import groovyx.gpars.remote.RemoteConnection;
+import groovyx.gpars.serial.SerialMsg;
+
+/**
+ * Returns credits for consumed actor messages to the sending host
+ */
+public class CreditMsg extends SerialMsg {
+    private static final long serialVersionUID = -1739542361425468722L;
+
+    private final int credits;
+
+    /**
+     * @param credits The number of actor messages consumed by the receiver
+     */
+    public CreditMsg(final int credits) {
+        this.credits = credits;
+    }
+
+    public int getCredits() {
+        return credits;
+    }
+
+    @Override
+    public void execute(final RemoteConnection conn) {
+        conn.addCredits(credits);
+    }
+}
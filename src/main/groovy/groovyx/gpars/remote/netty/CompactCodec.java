@@ -0,0 +1,334 @@
+// GPars - Groovy Parallel Systems
+//
+// Copyright © 2008-10  The original author or authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package groovyx.gpars.remote.netty;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInput;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutput;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A compact binary encoding of messages based on Java serialization, which avoids repeating information already known
+ * to the other side of the connection:
+ * <ul>
+ * <li>Class descriptors of the GPars messages, handles and common JDK types are replaced by registered numeric ids</li>
+ * <li>Other classes are sent by name the first time they appear on the connection and by a connection-specific id afterwards</li>
+ * <li>UUIDs, which identify the hosts and the remoted objects, are sent in full once and as a varint id afterwards</li>
+ * <li>The Java serialization stream header is omitted</li>
+ * </ul>
+ * Class descriptors are taken from the local classes when decoding, so both hosts must run the same versions of the transferred classes.
+ * Use the JavaSerializationCodec, if they may differ.
+ * Failing to decode a message leaves the connection unusable, since the codec state of the two sides no longer matches.
+ */
+public final class CompactCodec implements RemoteCodec {
+
+    public static final Factory FACTORY = new Factory() {
+        @Override
+        public RemoteCodec createCodec() {
+            return new CompactCodec();
+        }
+    };
+
+    /**
+     * The classes with pre-assigned ids, the order must never change
+     */
+    private static final String[] REGISTERED_NAMES = {
+            "groovyx.gpars.serial.SerialMsg",
+            "groovyx.gpars.remote.message.HostIdMsg",
+            "groovyx.gpars.remote.message.NodeConnectedMsg",
+            "groovyx.gpars.remote.message.NodeDisconnectedMsg",
+            "groovyx.gpars.actor.impl.MessageStream$SendTo",
+            "groovyx.gpars.dataflow.DataFlowExpression$BindDataFlow",
+            "groovyx.gpars.serial.SerialHandle$RemoteSerialHandle$ReleaseHandle",
+            "groovyx.gpars.actor.Actor$RemoteActor$StopActorMsg",
+            "groovyx.gpars.actor.Actor$RemoteActor$TerminateActorMsg",
+            "groovyx.gpars.actor.ActorMessage",
+            "groovyx.gpars.serial.LocalHandle",
+            "groovyx.gpars.serial.RemoteHandle",
+            "groovyx.gpars.serial.DefaultRemoteHandle",
+            "groovyx.gpars.actor.Actor$MyRemoteHandle",
+            "groovyx.gpars.remote.netty.CompactCodec$CompactUUID",
+            "java.lang.Number",
+            "java.lang.Integer",
+            "java.lang.Long",
+            "java.lang.Double",
+            "java.lang.Float",
+            "java.lang.Short",
+            "java.lang.Byte",
+            "java.lang.Boolean",
+            "java.lang.Character",
+            "java.lang.Enum",
+            "java.math.BigInteger",
+            "java.math.BigDecimal",
+            "java.util.ArrayList",
+            "java.util.LinkedList",
+            "java.util.HashMap",
+            "java.util.LinkedHashMap",
+            "java.util.HashSet",
+            "java.util.LinkedHashSet",
+            "java.util.Date",
+            "groovy.lang.GString",
+            "org.codehaus.groovy.runtime.GStringImpl",
+            "[Ljava.lang.Object;",
+            "[Ljava.lang.String;",
+            "[B",
+            "[I",
+            "[J",
+            "[D",
+            "groovyx.gpars.remote.message.CreditMsg"
+    };
+
+    private static final Map<String, Integer> REGISTERED_IDS = new HashMap<String, Integer>(REGISTERED_NAMES.length * 2);
+
+    static {
+        for (int i = 0; i < REGISTERED_NAMES.length; i++) REGISTERED_IDS.put(REGISTERED_NAMES[i], i + 1);
+    }
+
+    /**
+     * The maximum number of UUIDs remembered per connection and direction, further UUIDs are always sent in full
+     */
+    static final int MAX_CACHED_IDS = 4096;
+
+    private static final int NEW_CLASS = 0;
+    private static final int UNCACHED_ID = 0;
+    private static final int NEW_ID = 1;
+    private static final int CACHED_ID_OFFSET = 2;
+
+    private final Map<String, Integer> outboundClasses = new HashMap<String, Integer>();
+    private final Map<UUID, Integer> outboundIds = new HashMap<UUID, Integer>();
+    private final List<ObjectStreamClass> inboundClasses = new ArrayList<ObjectStreamClass>();
+    private final List<UUID> inboundIds = new ArrayList<UUID>();
+    private final ObjectStreamClass[] registeredClasses = new ObjectStreamClass[REGISTERED_NAMES.length];
+
+    @Override
+    public synchronized void encode(final Object message, final OutputStream out) throws IOException {
+        final Output stream = new Output(out);
+        boolean encoded = false;
+        try {
+            stream.writeObject(message);
+            stream.flush();
+            encoded = true;
+        } finally {
+            //the other side will never see the message, so forget the classes and ids first sent with it
+            if (!encoded) stream.rollback();
+        }
+    }
+
+    @Override
+    public Object decode(final InputStream in) throws IOException, ClassNotFoundException {
+        return new Input(in).readObject();
+    }
+
+    static Class<?> loadClass(final String name) throws ClassNotFoundException {
+        final ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        return Class.forName(name, false, loader != null ? loader : CompactCodec.class.getClassLoader());
+    }
+
+    static void writeVarint(final OutputStream out, final int value) throws IOException {
+        int remaining = value;
+        while ((remaining & ~0x7F) != 0) {
+            out.write((remaining & 0x7F) | 0x80);
+            remaining >>>= 7;
+        }
+        out.write(remaining);
+    }
+
+    static int readVarint(final InputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            final int b = in.read();
+            if (b < 0) throw new StreamCorruptedException("Unexpected end of a varint");
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new StreamCorruptedException("Malformed varint");
+    }
+
+    private ObjectStreamClass registeredClass(final int index) throws IOException, ClassNotFoundException {
+        ObjectStreamClass desc = registeredClasses[index];
+        if (desc == null) {
+            desc = lookup(REGISTERED_NAMES[index]);
+            registeredClasses[index] = desc;
+        }
+        return desc;
+    }
+
+    private static ObjectStreamClass lookup(final String name) throws IOException, ClassNotFoundException {
+        final ObjectStreamClass desc = ObjectStreamClass.lookup(loadClass(name));
+        if (desc == null) throw new InvalidClassException(name, "The class is not serializable");
+        return desc;
+    }
+
+    /**
+     * Writes messages with the class descriptors and UUIDs abbreviated
+     */
+    private final class Output extends ObjectOutputStream {
+        private final List<String> newClasses = new ArrayList<String>(2);
+        private final List<UUID> newIds = new ArrayList<UUID>(2);
+
+        private Output(final OutputStream out) throws IOException {
+            super(out);
+            enableReplaceObject(true);
+        }
+
+        @Override
+        protected void writeStreamHeader() {
+        }
+
+        @Override
+        protected void writeClassDescriptor(final ObjectStreamClass desc) throws IOException {
+            final String name = desc.getName();
+            Integer id = REGISTERED_IDS.get(name);
+            if (id == null) {
+                id = outboundClasses.get(name);
+                if (id == null) {
+                    outboundClasses.put(name, REGISTERED_NAMES.length + outboundClasses.size() + 1);
+                    newClasses.add(name);
+                    writeVarint(this, NEW_CLASS);
+                    writeUTF(name);
+                    return;
+                }
+            }
+            writeVarint(this, id);
+        }
+
+        @Override
+        protected Object replaceObject(final Object obj) {
+            return obj instanceof UUID ? new CompactUUID((UUID) obj) : obj;
+        }
+
+        private void writeUuid(final UUID uuid) throws IOException {
+            final Integer id = outboundIds.get(uuid);
+            if (id != null) {
+                writeVarint(this, id + CACHED_ID_OFFSET);
+                return;
+            }
+            if (outboundIds.size() < MAX_CACHED_IDS) {
+                outboundIds.put(uuid, outboundIds.size());
+                newIds.add(uuid);
+                writeVarint(this, NEW_ID);
+            } else {
+                writeVarint(this, UNCACHED_ID);
+            }
+            writeLong(uuid.getMostSignificantBits());
+            writeLong(uuid.getLeastSignificantBits());
+        }
+
+        private void rollback() {
+            for (final String name : newClasses) outboundClasses.remove(name);
+            for (final UUID uuid : newIds) outboundIds.remove(uuid);
+        }
+    }
+
+    /**
+     * Reads messages written by the Output, restoring the abbreviated class descriptors and UUIDs
+     */
+    private final class Input extends ObjectInputStream {
+        private Input(final InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected void readStreamHeader() {
+        }
+
+        @Override
+        protected ObjectStreamClass readClassDescriptor() throws IOException, ClassNotFoundException {
+            final int id = readVarint(this);
+            if (id == NEW_CLASS) {
+                final ObjectStreamClass desc = lookup(readUTF());
+                inboundClasses.add(desc);
+                return desc;
+            }
+            if (id <= REGISTERED_NAMES.length) return registeredClass(id - 1);
+            final int index = id - REGISTERED_NAMES.length - 1;
+            if (index >= inboundClasses.size()) throw new StreamCorruptedException("Unknown class id " + id);
+            return inboundClasses.get(index);
+        }
+
+        @Override
+        protected Class<?> resolveClass(final ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            final Class<?> clazz = desc.forClass();
+            return clazz != null ? clazz : loadClass(desc.getName());
+        }
+
+        private UUID readUuid() throws IOException {
+            final int id = readVarint(this);
+            if (id >= CACHED_ID_OFFSET) {
+                final int index = id - CACHED_ID_OFFSET;
+                if (index >= inboundIds.size()) throw new StreamCorruptedException("Unknown UUID id " + index);
+                return inboundIds.get(index);
+            }
+            final UUID uuid = new UUID(readLong(), readLong());
+            if (id == NEW_ID) inboundIds.add(uuid);
+            return uuid;
+        }
+    }
+
+    /**
+     * Stands in for UUIDs in the stream, writing them through the connection's UUID cache
+     */
+    public static final class CompactUUID implements Externalizable {
+        private static final long serialVersionUID = 4870623546093152297L;
+        private UUID uuid;
+
+        /**
+         * Required by deserialization
+         */
+        public CompactUUID() {
+        }
+
+        CompactUUID(final UUID uuid) {
+            this.uuid = uuid;
+        }
+
+        @Override
+        public void writeExternal(final ObjectOutput out) throws IOException {
+            ((Output) out).writeUuid(uuid);
+        }
+
+        @Override
+        public void readExternal(final ObjectInput in) throws IOException {
+            uuid = ((Input) in).readUuid();
+        }
+
+        private Object readResolve() {
+            return uuid;
+        }
+    }
+
+    /**
+     * @return The names of the classes with pre-assigned ids
+     */
+    static List<String> registeredNames() {
+        return Collections.unmodifiableList(Arrays.asList(REGISTERED_NAMES));
+    }
+}
@@ -0,0 +1,60 @@
+// GPars - Groovy Parallel Systems
+//
+// Copyright © 2008-10  The original author or authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package groovyx.gpars.remote.netty;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+
+/**
+ * Encodes each message as a standalone Java serialization stream with full class descriptors.
+ * Tolerates different versions of classes on the two hosts to the extent Java serialization does,
+ * at the price of larger messages compared to the CompactCodec.
+ */
+public final class JavaSerializationCodec implements RemoteCodec {
+
+    public static final Factory FACTORY = new Factory() {
+        @Override
+        public RemoteCodec createCodec() {
+            return new JavaSerializationCodec();
+        }
+    };
+
+    @Override
+    public void encode(final Object message, final OutputStream out) throws IOException {
+        final ObjectOutputStream stream = new ObjectOutputStream(out);
+        stream.writeObject(message);
+        stream.flush();
+    }
+
+    @Override
+    public Object decode(final InputStream in) throws IOException, ClassNotFoundException {
+        return new ObjectInputStream(in) {
+            @Override
+            protected Class<?> resolveClass(final ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+                try {
+                    return CompactCodec.loadClass(desc.getName());
+                } catch (ClassNotFoundException ignore) {
+                    return super.resolveClass(desc);
+                }
+            }
+        }.readObject();
+    }
+}
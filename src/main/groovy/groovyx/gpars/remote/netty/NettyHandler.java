@@ -36,15 +36,21 @@ public class NettyHandler extends SimpleChannelHandler {
 
     private final RemoteConnection connection;
 
+    private final RemoteCodec codec;
+
+    private RemoteObjectEncoder encoder;
+
     public NettyHandler(final NettyTransportProvider provider) {
         connection = new NettyRemoteConnection(provider, this);
+        codec = provider.getCodecFactory().createCodec();
     }
 
     @Override
     public void channelOpen(final ChannelHandlerContext ctx, final ChannelStateEvent e) throws Exception {
         channel = e.getChannel();
-        channel.getPipeline().addFirst("encoder", new RemoteObjectEncoder(connection));
-        channel.getPipeline().addFirst("decoder", new RemoteObjectDecoder(connection));
+        encoder = new RemoteObjectEncoder(connection, codec);
+        channel.getPipeline().addFirst("encoder", encoder);
+        channel.getPipeline().addFirst("decoder", new RemoteObjectDecoder(connection, codec));
     }
 
     @Override
@@ -73,4 +79,8 @@ public class NettyHandler extends SimpleChannelHandler {
     public Channel getChannel() {
         return channel;
     }
+
+    public RemoteObjectEncoder getEncoder() {
+        return encoder;
+    }
 }
@@ -18,36 +18,119 @@ package groovyx.gpars.remote.netty;
 
 import groovyx.gpars.remote.RemoteConnection;
 import groovyx.gpars.serial.SerialMsg;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
 import org.jboss.netty.channel.ChannelFuture;
 import org.jboss.netty.channel.ChannelFutureListener;
+import org.jboss.netty.channel.Channels;
 
+import java.io.IOException;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * Connection using Netty
+ * Connection using Netty.
+ * Depending on the provider's write policy messages are either written to the channel immediately
+ * or aggregated in a batch buffer, which gets written once full, once its linger time elapses or on explicit flush.
  *
  * @author Alex Tkachman
  */
 public class NettyRemoteConnection extends RemoteConnection {
     private final NettyHandler handler;
     private final MyChannelFutureListener writeListener = new MyChannelFutureListener();
+    private final WritePolicy writePolicy;
+
+    /**
+     * Frames waiting to be written, guarded by the writeListener
+     */
+    private ChannelBuffer batch;
+    private ScheduledFuture<?> scheduledFlush;
+
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            synchronized (writeListener) {
+                scheduledFlush = null;
+                writeBatch();
+            }
+        }
+    };
 
     public NettyRemoteConnection(final NettyTransportProvider provider, final NettyHandler netHandler) {
         super(provider);
         this.handler = netHandler;
+        this.writePolicy = provider.getWritePolicy();
     }
 
     @Override
     public void write(final SerialMsg msg) {
         if (handler.getChannel().isConnected() && handler.getChannel().isOpen()) {
+            if (writePolicy.isBatching()) {
+                addToBatch(msg);
+                return;
+            }
             writeListener.incrementAndGet();
-            handler.getChannel().write(msg).addListener(writeListener);
+            //the codec caches require messages to be encoded in the order they are written to the channel
+            synchronized (writeListener) {
+                handler.getChannel().write(msg).addListener(writeListener);
+            }
+        }
+    }
+
+    /**
+     * Writes out the batched messages
+     */
+    @Override
+    public void flush() {
+        synchronized (writeListener) {
+            cancelScheduledFlush();
+            writeBatch();
+        }
+    }
+
+    private void addToBatch(final SerialMsg msg) {
+        synchronized (writeListener) {
+            if (batch == null) {
+                batch = ChannelBuffers.dynamicBuffer(writePolicy.getMaxBatchSize(), handler.getChannel().getConfig().getBufferFactory());
+            }
+            try {
+                handler.getEncoder().writeFrame(msg, batch);
+            } catch (IOException e) {
+                Channels.fireExceptionCaught(handler.getChannel(), e);
+                return;
+            }
+            if (batch.readableBytes() >= writePolicy.getMaxBatchSize()) {
+                cancelScheduledFlush();
+                writeBatch();
+            } else if (scheduledFlush == null) {
+                scheduledFlush = FlushTimer.INSTANCE.schedule(flushTask, writePolicy.getLingerNanos(), TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private void cancelScheduledFlush() {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
         }
     }
 
+    private void writeBatch() {
+        if (batch == null || !batch.readable()) return;
+        final ChannelBuffer frames = batch;
+        batch = null;
+        writeListener.incrementAndGet();
+        handler.getChannel().write(frames).addListener(writeListener);
+    }
+
     @Override
     public void disconnect() {
+        flush();
         writeListener.incrementAndGet();
         writeListener.handler = handler;
         try {
@@ -56,6 +139,20 @@ public class NettyRemoteConnection extends RemoteConnection {
         }
     }
 
+    /**
+     * Holds the timer thread shared by all connections for the linger time of the batches
+     */
+    private static final class FlushTimer {
+        private static final ScheduledExecutorService INSTANCE = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable r) {
+                final Thread thread = new Thread(r, "GPars Remote Flush Timer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
     private static class MyChannelFutureListener extends AtomicInteger implements ChannelFutureListener {
         private static final long serialVersionUID = -3054880716233778157L;
         public volatile NettyHandler handler;
@@ -17,6 +17,8 @@
 package groovyx.gpars.remote.netty;
 
 import groovyx.gpars.remote.BroadcastDiscovery;
+import groovyx.gpars.remote.Discovery;
+import groovyx.gpars.remote.FlowControl;
 import groovyx.gpars.remote.LocalHost;
 import org.jboss.netty.bootstrap.ClientBootstrap;
 import org.jboss.netty.bootstrap.ServerBootstrap;
@@ -37,7 +39,9 @@ import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.CountDownLatch;
@@ -51,43 +55,190 @@ import java.util.concurrent.ThreadFactory;
  */
 public class NettyTransportProvider extends LocalHost {
 
-    private final Map<UUID, Client> clients = new HashMap<UUID, Client>();
+    private final Map<SocketAddress, List<Client>> clients = new HashMap<SocketAddress, List<Client>>();
 
     final Server server = new Server();
 
-    final BroadcastDiscovery broadcastDiscovery;
+    final Discovery discovery;
 
+    private final RemoteCodec.Factory codecFactory;
+
+    private final WritePolicy writePolicy;
+
+    private final int connectionsPerHost;
+
+    /**
+     * Creates a provider encoding messages with the CompactCodec and writing them immediately
+     */
     public NettyTransportProvider() {
-        server.start(this);
+        this(CompactCodec.FACTORY);
+    }
+
+    /**
+     * Creates a provider encoding messages with codecs from the given factory.
+     * All hosts, which connect to each other, must use the same kind of codec.
+     *
+     * @param codecFactory Creates a codec for each connection
+     */
+    public NettyTransportProvider(final RemoteCodec.Factory codecFactory) {
+        this(codecFactory, WritePolicy.IMMEDIATE);
+    }
 
-        this.broadcastDiscovery = new BroadcastDiscovery(getId(), server.getAddress()) {
+    /**
+     * Creates a provider encoding messages with the CompactCodec and writing them according to the given policy
+     *
+     * @param writePolicy Decides, whether messages get batched before being written to the network
+     */
+    public NettyTransportProvider(final WritePolicy writePolicy) {
+        this(CompactCodec.FACTORY, writePolicy);
+    }
+
+    /**
+     * Creates a provider encoding messages with codecs from the given factory.
+     * All hosts, which connect to each other, must use the same kind of codec.
+     *
+     * @param codecFactory Creates a codec for each connection
+     * @param writePolicy  Decides, whether messages get batched before being written to the network
+     */
+    public NettyTransportProvider(final RemoteCodec.Factory codecFactory, final WritePolicy writePolicy) {
+        this(codecFactory, writePolicy, 1);
+    }
+
+    /**
+     * Creates a provider, which opens several connections to each discovered host.
+     * Messages to a host are spread over its connections by their ordering key, e.g. the target actor,
+     * so that encoding and network I/O of messages to different actors may proceed in parallel.
+     * The order of messages to the same actor is only guaranteed once all the connections to the host have been established.
+     *
+     * @param codecFactory       Creates a codec for each connection
+     * @param writePolicy        Decides, whether messages get batched before being written to the network
+     * @param connectionsPerHost The number of connections to open to each discovered host
+     */
+    public NettyTransportProvider(final RemoteCodec.Factory codecFactory, final WritePolicy writePolicy, final int connectionsPerHost) {
+        this(codecFactory, writePolicy, connectionsPerHost, FlowControl.DISABLED);
+    }
+
+    /**
+     * Creates a provider with credit-based flow control of actor messages.
+     * All hosts, which connect to each other, must use the same flow control.
+     *
+     * @param codecFactory       Creates a codec for each connection
+     * @param writePolicy        Decides, whether messages get batched before being written to the network
+     * @param connectionsPerHost The number of connections to open to each discovered host
+     * @param flowControl        Limits the number of unconsumed actor messages per connection
+     */
+    public NettyTransportProvider(final RemoteCodec.Factory codecFactory, final WritePolicy writePolicy, final int connectionsPerHost, final FlowControl flowControl) {
+        this(codecFactory, writePolicy, connectionsPerHost, flowControl, 0, new BroadcastDiscovery());
+    }
+
+    /**
+     * Creates a provider listening at a random port, which finds remote hosts through the given discovery
+     *
+     * @param discovery Finds the remote hosts to connect to
+     */
+    public NettyTransportProvider(final Discovery discovery) {
+        this(0, discovery);
+    }
+
+    /**
+     * Creates a provider listening at the given port, which finds remote hosts through the given discovery.
+     * A fixed port allows the host to be listed in the static seed lists or membership files of other hosts.
+     *
+     * @param port      The port to accept connections at, zero for a random port
+     * @param discovery Finds the remote hosts to connect to
+     */
+    public NettyTransportProvider(final int port, final Discovery discovery) {
+        this(CompactCodec.FACTORY, WritePolicy.IMMEDIATE, 1, FlowControl.DISABLED, port, discovery);
+    }
+
+    /**
+     * @param codecFactory       Creates a codec for each connection
+     * @param writePolicy        Decides, whether messages get batched before being written to the network
+     * @param connectionsPerHost The number of connections to open to each discovered host
+     * @param flowControl        Limits the number of unconsumed actor messages per connection
+     * @param port               The port to accept connections at, zero for a random port
+     * @param discovery          Finds the remote hosts to connect to
+     */
+    public NettyTransportProvider(final RemoteCodec.Factory codecFactory, final WritePolicy writePolicy, final int connectionsPerHost, final FlowControl flowControl,
+                                  final int port, final Discovery discovery) {
+        super(flowControl);
+        if (connectionsPerHost < 1) throw new IllegalArgumentException("At least one connection per host is required: " + connectionsPerHost);
+        this.codecFactory = codecFactory;
+        this.writePolicy = writePolicy;
+        this.connectionsPerHost = connectionsPerHost;
+        this.discovery = discovery;
+        server.start(this, port);
+
+        discovery.start(getId(), server.getAddress(), new Discovery.Listener() {
             @Override
-            protected void onDiscovery(final UUID uuid, final SocketAddress address) {
-                if (uuid.equals(getId())) {
-                    return;
-                }
+            public void onDiscovery(final UUID id, final SocketAddress address) {
+                connectTo(id, address);
+            }
+        });
+    }
 
-                synchronized (clients) {
-                    final Client client = clients.get(uuid);
-                    if (client == null) {
-                        clients.put(uuid, new Client(NettyTransportProvider.this, address, uuid));
-                    }
+    /**
+     * Opens the connections to a discovered host, unless they are open already
+     *
+     * @param id      The id of the host, or null if not known
+     * @param address The address of the host
+     */
+    private void connectTo(final UUID id, final SocketAddress address) {
+        if (getId().equals(id) || server.getAddress().equals(address)) {
+            return;
+        }
+
+        synchronized (clients) {
+            if (!clients.containsKey(address)) {
+                final List<Client> hostClients = new ArrayList<Client>(connectionsPerHost);
+                clients.put(address, hostClients);
+                for (int i = 0; i < connectionsPerHost; i++) {
+                    hostClients.add(new Client(this, address));
                 }
             }
-        };
+        }
+    }
+
+    public RemoteCodec.Factory getCodecFactory() {
+        return codecFactory;
+    }
 
-        broadcastDiscovery.start();
+    public WritePolicy getWritePolicy() {
+        return writePolicy;
+    }
+
+    public int getConnectionsPerHost() {
+        return connectionsPerHost;
+    }
+
+    public Discovery getDiscovery() {
+        return discovery;
+    }
+
+    /**
+     * @return The address the provider accepts connections at
+     */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
     }
 
     @Override
     public void disconnect() {
-        broadcastDiscovery.stop();
+        discovery.stop();
 
         super.disconnect();
 
         server.stop();
 
-        for (final Client client : clients.values()) {
+        final List<Client> toStop = new ArrayList<Client>();
+        synchronized (clients) {
+            for (final List<Client> hostClients : clients.values()) {
+                toStop.addAll(hostClients);
+            }
+            clients.clear();
+        }
+        //closing a client removes it from the clients map
+        for (final Client client : toStop) {
             client.stop();
         }
     }
@@ -113,14 +264,18 @@ public class NettyTransportProvider extends LocalHost {
             return address;
         }
 
-        @SuppressWarnings({"UnnecessaryBoxing"})
         public void start(final NettyTransportProvider provider) {
+            start(provider, 0);
+        }
+
+        @SuppressWarnings({"UnnecessaryBoxing"})
+        public void start(final NettyTransportProvider provider, final int port) {
             pipelineFactory = new ServerPipelineFactory(provider);
             bootstrap.setPipelineFactory(pipelineFactory);
             bootstrap.setOption("child.tcpNoDelay", Boolean.valueOf(true));
             bootstrap.setOption("child.keepAlive", Boolean.valueOf(true));
 
-            channel = bootstrap.bind(new InetSocketAddress(0));
+            channel = bootstrap.bind(new InetSocketAddress(port));
             InetAddress inetAddress;
             try {
                 inetAddress = InetAddress.getLocalHost();
@@ -156,7 +311,7 @@ public class NettyTransportProvider extends LocalHost {
         final ChannelFactory factory;
 
         @SuppressWarnings({"UnnecessaryBoxing"})
-        public Client(final NettyTransportProvider provider, final SocketAddress address, final UUID id) {
+        public Client(final NettyTransportProvider provider, final SocketAddress address) {
             this.provider = provider;
             factory = new NioClientSocketChannelFactory(
                     Executors.newCachedThreadPool(MyThreadFactory.instance),
@@ -164,7 +319,7 @@ public class NettyTransportProvider extends LocalHost {
 
             final ClientBootstrap bootstrap = new ClientBootstrap(factory);
 
-            final NettyHandler handler = new ClientHandler(this.provider, id);
+            final NettyHandler handler = new ClientHandler(this.provider, address, this);
 
             bootstrap.getPipeline().addLast("handler", handler);
             bootstrap.setOption("tcpNoDelay", Boolean.valueOf(true));
@@ -200,20 +355,29 @@ public class NettyTransportProvider extends LocalHost {
 
     @ChannelPipelineCoverage("one")
     public static class ClientHandler extends NettyHandler {
-        private final UUID id;
+        private final SocketAddress address;
 
         private final NettyTransportProvider provider;
 
-        public ClientHandler(final NettyTransportProvider provider, final UUID id) {
+        private final Client client;
+
+        public ClientHandler(final NettyTransportProvider provider, final SocketAddress address, final Client client) {
             super(provider);
-            this.id = id;
+            this.address = address;
             this.provider = provider;
+            this.client = client;
         }
 
         @Override
-        public void channelDisconnected(final ChannelHandlerContext ctx, final ChannelStateEvent e) throws Exception {
-            provider.clients.remove(id);
-            super.channelDisconnected(ctx, e);
+        public void channelClosed(final ChannelHandlerContext ctx, final ChannelStateEvent e) throws Exception {
+            synchronized (provider.clients) {
+                final List<Client> hostClients = provider.clients.get(address);
+                //the host gets rediscovered once all its connections are gone or have failed to connect
+                if (hostClients != null && hostClients.remove(client) && hostClients.isEmpty()) {
+                    provider.clients.remove(address);
+                }
+            }
+            super.channelClosed(ctx, e);
         }
     }
 
@@ -0,0 +1,57 @@
+// GPars - Groovy Parallel Systems
+//
+// Copyright © 2008-10  The original author or authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package groovyx.gpars.remote.netty;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Turns messages exchanged between hosts into bytes and back.
+ * Each connection gets its own codec instance from a factory, so codecs may keep per-connection state,
+ * like caches of already transferred class descriptors.
+ * Messages are encoded in the order they are sent over the connection and decoded in the order they arrive.
+ * Encoding and decoding always happen in the serialization context of the remote host.
+ */
+public interface RemoteCodec {
+
+    /**
+     * Writes a single message
+     *
+     * @param message The message to encode
+     * @param out     The stream to write the encoded message to
+     * @throws IOException If the message cannot be encoded
+     */
+    void encode(Object message, OutputStream out) throws IOException;
+
+    /**
+     * Reads a single message
+     *
+     * @param in The stream holding exactly one encoded message
+     * @return The decoded message
+     * @throws IOException            If the message cannot be decoded
+     * @throws ClassNotFoundException If the class of the message or its parts is not available
+     */
+    Object decode(InputStream in) throws IOException, ClassNotFoundException;
+
+    /**
+     * Creates codecs for new connections
+     */
+    interface Factory {
+        RemoteCodec createCodec();
+    }
+}
@@ -19,34 +19,58 @@ package groovyx.gpars.remote.netty;
 import groovyx.gpars.remote.RemoteConnection;
 import groovyx.gpars.remote.RemoteHost;
 import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBufferInputStream;
 import org.jboss.netty.channel.Channel;
 import org.jboss.netty.channel.ChannelHandlerContext;
 import org.jboss.netty.channel.ChannelPipelineCoverage;
-import org.jboss.netty.handler.codec.serialization.ObjectDecoder;
+import org.jboss.netty.handler.codec.frame.FrameDecoder;
+import org.jboss.netty.handler.codec.frame.TooLongFrameException;
 
+/**
+ * Reads frames written by the RemoteObjectEncoder and decodes the messages with the connection's codec
+ *
+ * @author Alex Tkachman, Vaclav Pech
+ */
 @ChannelPipelineCoverage("one")
-public class RemoteObjectDecoder extends ObjectDecoder {
+public class RemoteObjectDecoder extends FrameDecoder {
+    private static final int MAX_FRAME_LENGTH = 1048576;
+    private static final int MAX_VARINT_LENGTH = 5;
+
     private final RemoteConnection connection;
+    private final RemoteCodec codec;
 
     /**
-     * Creates a new encoder.
+     * Creates a new decoder.
      *
      * @param connection connection handling serialization details
+     * @param codec      The codec to decode the messages with
      */
-    public RemoteObjectDecoder(final RemoteConnection connection) {
-        super();
+    public RemoteObjectDecoder(final RemoteConnection connection, final RemoteCodec codec) {
         this.connection = connection;
+        this.codec = codec;
     }
 
     @Override
     protected Object decode(final ChannelHandlerContext ctx, final Channel channel, final ChannelBuffer buffer) throws Exception {
+        final int start = buffer.readerIndex();
+        final int length = readLength(buffer);
+        if (length < 0 || buffer.readableBytes() < length) {
+            buffer.readerIndex(start);
+            return null;
+        }
+
         final RemoteHost remoteHost = connection.getHost();
 
         if (remoteHost != null) {
             remoteHost.enter();
         }
         try {
-            return super.decode(ctx, channel, buffer);
+            final int end = buffer.readerIndex() + length;
+            try {
+                return codec.decode(new ChannelBufferInputStream(buffer, length));
+            } finally {
+                buffer.readerIndex(end);
+            }
         }
         finally {
             if (remoteHost != null) {
@@ -54,4 +78,25 @@ public class RemoteObjectDecoder extends ObjectDecoder {
             }
         }
     }
+
+    /**
+     * Reads the varint frame length
+     *
+     * @param buffer The buffer to read from
+     * @return The length or -1, if the whole length has not been received yet
+     * @throws TooLongFrameException If the frame exceeds the maximum length
+     */
+    private static int readLength(final ChannelBuffer buffer) throws TooLongFrameException {
+        int length = 0;
+        for (int i = 0; i < MAX_VARINT_LENGTH; i++) {
+            if (!buffer.readable()) return -1;
+            final int b = buffer.readUnsignedByte();
+            length |= (b & 0x7F) << (7 * i);
+            if ((b & 0x80) == 0) {
+                if (length < 0 || length > MAX_FRAME_LENGTH) throw new TooLongFrameException("Frame length exceeds " + MAX_FRAME_LENGTH + ": " + length);
+                return length;
+            }
+        }
+        throw new TooLongFrameException("Malformed frame length");
+    }
 }
@@ -18,34 +18,76 @@ package groovyx.gpars.remote.netty;
 
 import groovyx.gpars.remote.RemoteConnection;
 import groovyx.gpars.remote.RemoteHost;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBufferFactory;
+import org.jboss.netty.buffer.ChannelBufferOutputStream;
+import org.jboss.netty.buffer.ChannelBuffers;
 import org.jboss.netty.channel.Channel;
 import org.jboss.netty.channel.ChannelHandlerContext;
 import org.jboss.netty.channel.ChannelPipelineCoverage;
-import org.jboss.netty.handler.codec.serialization.ObjectEncoder;
+import org.jboss.netty.handler.codec.oneone.OneToOneEncoder;
 
+import java.io.IOException;
+
+/**
+ * Turns messages into frames consisting of a varint length followed by the message encoded with the connection's codec.
+ * Buffers of frames batched by the connection are passed on untouched.
+ *
+ * @author Alex Tkachman, Vaclav Pech
+ */
 @ChannelPipelineCoverage("one")
-public class RemoteObjectEncoder extends ObjectEncoder {
+public class RemoteObjectEncoder extends OneToOneEncoder {
+    private static final int ESTIMATED_LENGTH = 512;
+    private static final int MAX_VARINT_LENGTH = 5;
+
     private final RemoteConnection connection;
+    private final RemoteCodec codec;
 
     /**
      * Creates a new encoder.
      *
      * @param connection connection handling serialization details
+     * @param codec      The codec to encode the messages with
      */
-    public RemoteObjectEncoder(final RemoteConnection connection) {
-        super();
+    public RemoteObjectEncoder(final RemoteConnection connection, final RemoteCodec codec) {
         this.connection = connection;
+        this.codec = codec;
     }
 
     @Override
     protected Object encode(final ChannelHandlerContext ctx, final Channel channel, final Object msg) throws Exception {
+        if (msg instanceof ChannelBuffer) {
+            //frames already batched by the connection
+            return msg;
+        }
+        return frame(msg, channel.getConfig().getBufferFactory());
+    }
+
+    /**
+     * Appends the frame of the message to a buffer holding a batch of frames
+     *
+     * @param msg   The message to encode
+     * @param batch The buffer to append the frame to, left untouched if the message cannot be encoded
+     * @throws IOException If the message cannot be encoded
+     */
+    public void writeFrame(final Object msg, final ChannelBuffer batch) throws IOException {
+        batch.writeBytes(frame(msg, batch.factory()));
+    }
+
+    private ChannelBuffer frame(final Object msg, final ChannelBufferFactory bufferFactory) throws IOException {
         final RemoteHost remoteHost = connection.getHost();
 
         if (remoteHost != null) {
             remoteHost.enter();
         }
         try {
-            return super.encode(ctx, channel, msg);
+            final ChannelBufferOutputStream body = new ChannelBufferOutputStream(ChannelBuffers.dynamicBuffer(ESTIMATED_LENGTH, bufferFactory));
+            codec.encode(msg, body);
+            final ChannelBuffer encoded = body.buffer();
+
+            final ChannelBufferOutputStream header = new ChannelBufferOutputStream(ChannelBuffers.buffer(MAX_VARINT_LENGTH));
+            CompactCodec.writeVarint(header, encoded.readableBytes());
+            return ChannelBuffers.wrappedBuffer(header.buffer(), encoded);
         }
         finally {
             if (remoteHost != null) {
@@ -0,0 +1,73 @@
+// GPars - Groovy Parallel Systems
+//
+// Copyright © 2008-10  The original author or authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package groovyx.gpars.remote.netty;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides how messages sent over a connection are written to the network.
+ * The IMMEDIATE policy writes each message to the channel straight away, which gives the lowest latency.
+ * Batching policies aggregate messages into a connection buffer, which gets written out once it reaches the size threshold,
+ * once the linger time of the first buffered message elapses or once the host gets flushed explicitly.
+ * Batching trades a little latency for fewer, larger network writes under bursts of small messages.
+ */
+public final class WritePolicy {
+
+    /**
+     * Writes every message immediately
+     */
+    public static final WritePolicy IMMEDIATE = new WritePolicy(0, 0L);
+
+    /**
+     * Batches up to 16kB of messages for at most 50 microseconds
+     */
+    public static final WritePolicy BATCHING = batching(16384, 50L, TimeUnit.MICROSECONDS);
+
+    private final int maxBatchSize;
+    private final long lingerNanos;
+
+    private WritePolicy(final int maxBatchSize, final long lingerNanos) {
+        this.maxBatchSize = maxBatchSize;
+        this.lingerNanos = lingerNanos;
+    }
+
+    /**
+     * Creates a batching policy
+     *
+     * @param maxBatchSize The number of buffered bytes, which triggers a write
+     * @param linger       The maximum time a message waits in the buffer, zero writes the buffer as soon as the flushing thread gets to it
+     * @param unit         The unit of the linger time
+     * @return The policy
+     */
+    public static WritePolicy batching(final int maxBatchSize, final long linger, final TimeUnit unit) {
+        if (maxBatchSize <= 0) throw new IllegalArgumentException("The batch size must be positive: " + maxBatchSize);
+        if (linger < 0L) throw new IllegalArgumentException("The linger time must not be negative: " + linger);
+        return new WritePolicy(maxBatchSize, unit.toNanos(linger));
+    }
+
+    public boolean isBatching() {
+        return maxBatchSize > 0;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public long getLingerNanos() {
+        return lingerNanos;
+    }
+}
@@ -40,4 +40,14 @@ public abstract class SerialMsg implements Serializable {
     public void execute(final RemoteConnection conn) {
         conn.onMessage(this);
     }
+
+    /**
+     * Messages with the same ordering key are always sent over the same connection to a host and so arrive in the order they were sent.
+     * Messages without an ordering key all share the first connection to the host.
+     *
+     * @return The object, whose messages must be kept in order, or null
+     */
+    public Object getOrderingKey() {
+        return null;
+    }
 }
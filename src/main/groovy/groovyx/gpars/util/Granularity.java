@@ -0,0 +1,135 @@
+// GPars - Groovy Parallel Systems
+//
+// Copyright © 2008-10  The original author or authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package groovyx.gpars.util;
+
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Decides how many elements a single parallel task should process.
+ * Unless the user specifies the grain explicitly, the per-element cost of the closure gets measured on the first few elements
+ * and the leaf size is chosen so that each task runs for roughly TARGET_LEAF_NANOS.
+ * Cheap closures over large collections thus get big leaves with little task overhead,
+ * while expensive closures over small collections get split into many small tasks.
+ */
+@SuppressWarnings({"UtilityClass"})
+public final class Granularity {
+
+    /**
+     * Indicates that the grain should be calculated from the measured cost of the closure
+     */
+    public static final int AUTO = 0;
+
+    /**
+     * The name of the per-call option to specify the grain explicitly, e.g. collectParallel(grain: 1000) {...}
+     */
+    public static final String GRAIN = "grain";
+
+    /**
+     * The desired running time of a single leaf task, in the middle of the 50-100 microseconds range
+     */
+    public static final long TARGET_LEAF_NANOS = 75000L;
+
+    /**
+     * The maximum number of elements to measure the closure on
+     */
+    public static final int MAX_SAMPLE_SIZE = 64;
+
+    /**
+     * The maximum number of tasks per thread a collection gets split into for pools without work-stealing
+     */
+    public static final int OVERSUBSCRIPTION = 4;
+
+    private Granularity() {
+    }
+
+    /**
+     * Retrieves the grain from the options passed to a parallel method
+     *
+     * @param options The named parameters of the call
+     * @return The requested number of elements per task or AUTO, if not specified
+     */
+    public static int grain(final Map<?, ?> options) {
+        for (final Object key : options.keySet()) {
+            if (!GRAIN.equals(key)) throw new IllegalArgumentException("Unknown option " + key + ". Only the " + GRAIN + " option is supported.");
+        }
+        final Object value = options.get(GRAIN);
+        if (value == null) return AUTO;
+        if (!(value instanceof Number) || ((Number) value).intValue() <= 0) throw new IllegalArgumentException("The " + GRAIN + " option must be a positive number, but was " + value);
+        return ((Number) value).intValue();
+    }
+
+    /**
+     * Indicates whether more elements should be processed to measure the cost of the closure
+     *
+     * @param sampled The number of elements measured so far
+     * @param size    The total number of elements
+     * @param start   The System.nanoTime() value when the measurement started
+     * @return True, if another element should be processed sequentially as part of the sample
+     */
+    public static boolean keepSampling(final int sampled, final int size, final long start) {
+        return sampled < size && sampled < MAX_SAMPLE_SIZE && System.nanoTime() - start < TARGET_LEAF_NANOS;
+    }
+
+    /**
+     * Calculates the number of elements per task from the measured cost of the closure.
+     * The leaf size never exceeds the fair share of a single thread, so that all threads get some work.
+     *
+     * @param sampleNanos The time it took to process the sample
+     * @param sampleSize  The number of elements in the sample
+     * @param remaining   The number of elements left to process
+     * @param parallelism The number of threads available
+     * @return The number of elements to process by a single task
+     */
+    public static int leafSize(final long sampleNanos, final int sampleSize, final int remaining, final int parallelism) {
+        if (remaining <= 0) return 1;
+        final int fairShare = (remaining + parallelism - 1) / parallelism;
+        if (sampleSize == 0) return fairShare;
+        final long perElement = Math.max(1L, sampleNanos / (long) sampleSize);
+        return (int) Math.max(1L, Math.min((long) fairShare, TARGET_LEAF_NANOS / perElement));
+    }
+
+    /**
+     * Enlarges the chunks so that no more than parallelism * OVERSUBSCRIPTION chunks get created.
+     * Pools without work-stealing pay for a queue operation and a Future per task, so the task count must stay bounded
+     * regardless of the collection size, while the few extra chunks per thread still balance uneven elements.
+     *
+     * @param chunkSize   The desired number of elements per chunk
+     * @param remaining   The number of elements left to process
+     * @param parallelism The number of threads available
+     * @return The number of elements to process by a single task
+     */
+    public static int boundedChunkSize(final int chunkSize, final int remaining, final int parallelism) {
+        final long maxChunks = (long) parallelism * (long) OVERSUBSCRIPTION;
+        return (int) Math.max((long) chunkSize, ((long) remaining + maxChunks - 1L) / maxChunks);
+    }
+
+    /**
+     * Estimates the number of threads of an executor service
+     *
+     * @param executor The executor service
+     * @return The maximum number of threads for thread pool executors, the number of processors otherwise
+     */
+    public static int parallelismOf(final ExecutorService executor) {
+        if (executor instanceof ThreadPoolExecutor) {
+            final ThreadPoolExecutor pool = (ThreadPoolExecutor) executor;
+            return Math.max(1, Math.min(pool.getMaximumPoolSize(), Math.max(pool.getCorePoolSize(), Runtime.getRuntime().availableProcessors())));
+        }
+        return Runtime.getRuntime().availableProcessors();
+    }
+}
@@ -17,16 +17,16 @@
 package groovyx.gpars.util;
 
 import groovy.lang.Closure;
+import jsr166y.forkjoin.ForkJoinExecutor;
+import jsr166y.forkjoin.Ops;
+import jsr166y.forkjoin.ParallelLongArray;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
-import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentMap;
 
 /**
  * Handy methods build PA from different types
@@ -60,6 +60,24 @@ public abstract class PAUtils {
         return chars;
     }
 
+    /**
+     * Widens the elements of an int array into a new ParallelLongArray in parallel
+     *
+     * @param array The array to copy
+     * @param pool  The pool to perform the copying and further operations on the created array
+     * @return A new ParallelLongArray holding the values of the original array
+     */
+    public static ParallelLongArray createParallelLongArray(final int[] array, final ForkJoinExecutor pool) {
+        final ParallelLongArray result = ParallelLongArray.create(array.length, pool);
+        result.replaceWithMappedIndex(new Ops.MapperFromIntToLong() {
+            @Override
+            public long map(final int index) {
+                return (long) array[index];
+            }
+        });
+        return result;
+    }
+
     public static Map.Entry<Object, Object>[] createArray(final Map<Object, Object> map) {
         @SuppressWarnings({"unchecked"})
         final Map.Entry<Object, Object>[] result = new Map.Entry[map.size()];
@@ -169,28 +187,4 @@ public abstract class PAUtils {
             }
         };
     }
-
-    /**
-     * Creates a closure that will insert elements in the appropriate group
-     *
-     * @param cl  The distinction closure
-     * @param map The map of groups to contribute to
-     * @return null
-     */
-    public static Closure createGroupByClosure(final Closure cl, final ConcurrentMap<Object, List<Object>> map) {
-        return new Closure(cl.getOwner(), cl.getDelegate()) {
-            private static final long serialVersionUID = 5495474569312257163L;
-
-            @Override
-            public Object call(final Object arguments) {
-                final Object result = cl.call(arguments);
-                final List<Object> localList = new ArrayList<Object>();
-                localList.add(arguments);
-                final List<Object> myList = Collections.synchronizedList(localList);
-                final Collection<Object> list = map.putIfAbsent(result, myList);
-                if (list != null) list.add(arguments);
-                return null;
-            }
-        };
-    }
 }
@@ -0,0 +1,120 @@
+// GPars - Groovy Parallel Systems
+//
+// Copyright © 2008-10  The original author or authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package groovyx.gpars
+
+import java.util.concurrent.atomic.AtomicInteger
+
+public class FusedPipelineTest extends GroovyTestCase {
+
+    public void testStagesAreLazy() {
+        final AtomicInteger counter = new AtomicInteger(0)
+        GParsPool.withPool(5) {
+            final def pipeline = (1..1000).parallel.map {counter.incrementAndGet(); it * 2}.filter {counter.incrementAndGet(); it % 3 == 0}.map {counter.incrementAndGet(); it + 1}
+            assertEquals 0, counter.get()
+            assertEquals 333, pipeline.size()
+            assertEquals 1000 + 1000 + 333, counter.get()
+        }
+    }
+
+    public void testSinglePassPerElement() {
+        final AtomicInteger counter = new AtomicInteger(0)
+        GParsPool.withPool(5) {
+            final def result = (1..1000).parallel.map {counter.incrementAndGet(); it}.map {it * 2}.filter {it > 10}.collection
+            assertEquals 1000, counter.get()
+            assertEquals((1..1000).collect {it * 2}.findAll {it > 10}, result)
+        }
+    }
+
+    public void testOrderIsPreserved() {
+        GParsPool.withPool(5) {
+            final List source = (1..10000).toList()
+            assertEquals source.findAll {it % 7 == 0}.collect {it.toString()}, source.parallel.filter {it % 7 == 0}.map {it.toString()}.collection
+            assertEquals source.collect {it.toString()}.join(''), source.parallel.map {it.toString()}.reduce {a, b -> a + b}
+        }
+    }
+
+    public void testTerminals() {
+        GParsPool.withPool(5) {
+            final def pipeline = (1..100).parallel.filter {it % 2 == 0}.map {it * 10}
+            assertEquals 25500, pipeline.sum()
+            assertEquals 20, pipeline.min()
+            assertEquals 1000, pipeline.max()
+            assertEquals 1000, pipeline.min {-it}
+            assertEquals 20, pipeline.max {a, b -> b <=> a}
+            assertEquals 25501, pipeline.reduce(1) {a, b -> a + b}
+            assertEquals([1000, 980, 960], pipeline.sort {-it}.collection[0..2])
+            assertEquals 4, pipeline.sort {-it}.map {it / 10}.filter {it > 93}.size()
+        }
+    }
+
+    public void testEmptyPipeline() {
+        GParsPool.withPool(5) {
+            final def pipeline = (1..100).parallel.filter {false}.map {it * 10}
+            assertEquals 0, pipeline.size()
+            assertNull pipeline.min()
+            assertNull pipeline.reduce {a, b -> a + b}
+            assertEquals 10, pipeline.reduce(10) {a, b -> a + b}
+            assertEquals([], pipeline.collection)
+            assertEquals([:], pipeline.groupBy {it})
+        }
+    }
+
+    public void testGroupBy() {
+        GParsPool.withPool(5) {
+            final List source = (1..10000).toList()
+            final Map groups = source.parallel.map {it * 2}.filter {it % 3 != 0}.groupBy {it % 10}
+            final Map expected = source.collect {it * 2}.findAll {it % 3 != 0}.groupBy {it % 10}
+            assertEquals expected.keySet(), groups.keySet()
+            expected.each {key, value -> assertEquals value.sort(), groups[key].sort()}
+            assertEquals([(null): [1, 3], (true): [2]], [1, 2, 3].parallel.map {it}.groupBy {it % 2 == 0 ? true : null})
+        }
+    }
+
+    public void testCombine() {
+        GParsPool.withPool(5) {
+            final List words = (['a', 'b', 'c'] * 1000)
+            assertEquals([a: 1000, b: 1000, c: 1000], words.parallel.map {[it, 1]}.combine(0) {a, b -> a + b})
+            final Map lists = words.parallel.filter {it != 'b'}.map {[it, it]}.combine([]) {list, item -> list << item}
+            assertEquals 2, lists.size()
+            assertEquals(['a'] * 1000, lists.a)
+            assertEquals(['c'] * 1000, lists.c)
+        }
+    }
+
+    public void testManyKeys() {
+        GParsPool.withPool(5) {
+            final List source = (0..<100000).toList()
+            final Map groups = source.groupByParallel {it % 30000}
+            assertEquals source.groupBy {it % 30000}, groups
+            assertEquals((0..<30000).toList(), groups.keySet().toList())
+            assertEquals source.groupBy {it % 30000}, source.parallel.groupBy {it % 30000}
+
+            final Map sums = source.parallel.map {[it % 30000, it]}.combine(0, {sum, value -> sum + value}, {a, b -> a + b})
+            assertEquals source.groupBy {it % 30000}.inject([:]) {map, entry -> map[entry.key] = entry.value.sum(); map}, sums
+            assertEquals sums, source.parallel.map {[it % 30000, it]}.combine(0) {sum, value -> sum + value}
+            assertEquals groups, source.parallel.map {[it % 30000, it]}.combine([]) {list, value -> list << value}
+        }
+    }
+
+    public void testExceptionInStage() {
+        GParsPool.withPool(5) {
+            shouldFail(IllegalStateException) {
+                (1..1000).parallel.map {if (it == 500) throw new IllegalStateException('test'); it}.collection
+            }
+        }
+    }
+}
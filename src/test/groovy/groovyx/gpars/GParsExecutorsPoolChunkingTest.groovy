@@ -0,0 +1,111 @@
+// GPars - Groovy Parallel Systems
+//
+// Copyright © 2008-10  The original author or authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package groovyx.gpars
+
+import groovyx.gpars.util.Granularity
+import java.util.concurrent.Executors
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.ThreadPoolExecutor
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+public class GParsExecutorsPoolChunkingTest extends GroovyTestCase {
+
+    public void testBoundedChunkSize() {
+        assertEquals 10, Granularity.boundedChunkSize(10, 100, 4)
+        assertEquals 62500, Granularity.boundedChunkSize(1, 1000000, 4)
+        assertEquals 1, Granularity.boundedChunkSize(1, 10, 4)
+        assertEquals 1, Granularity.boundedChunkSize(1, 0, 4)
+    }
+
+    public void testNumberOfTasksIsBounded() {
+        final CountingThreadPoolExecutor pool = new CountingThreadPoolExecutor(4)
+        final List<Integer> list = (1..10000).toList()
+        GParsExecutorsPool.withExistingPool(pool) {
+            assertEquals list.collect {it * 2}, list.collectParallel {Thread.sleep 0, 100000; it * 2}
+        }
+        pool.shutdown()
+        assertTrue pool.submitted.get() <= 4 * Granularity.OVERSUBSCRIPTION
+    }
+
+    public void testOrderIsPreserved() {
+        final List<Integer> list = (1..10000).toList()
+        GParsExecutorsPool.withPool(5) {
+            assertEquals list.collect {it * 2}, list.collectParallel {it * 2}
+            assertEquals list.findAll {it % 3 == 0}, list.findAllParallel {it % 3 == 0}
+            assertEquals list.grep(100..200), list.grepParallel(100..200)
+        }
+    }
+
+    public void testFindReturnsTheFirstMatch() {
+        final List<Integer> list = (1..10000).toList()
+        GParsExecutorsPool.withPool(5) {
+            assertEquals 5001, list.findParallel {it > 5000}
+            assertEquals 1, list.findParallel {it > 0}
+            assertNull list.findParallel {it < 0}
+        }
+    }
+
+    public void testShortCircuitingSkipsRemainingElements() {
+        final List<Integer> list = (1..1000).toList()
+        final AtomicInteger counter = new AtomicInteger(0)
+        GParsExecutorsPool.withPool(5) {
+            assertTrue list.anyParallel {counter.incrementAndGet(); Thread.sleep 1; it == 1}
+            assertTrue counter.get() < list.size()
+
+            counter.set(0)
+            assertFalse list.everyParallel {counter.incrementAndGet(); Thread.sleep 1; it > 1}
+            assertTrue counter.get() < list.size()
+
+            counter.set(0)
+            assertEquals 1, list.findAnyParallel {counter.incrementAndGet(); Thread.sleep 1; it == 1}
+            assertTrue counter.get() < list.size()
+
+            counter.set(0)
+            assertEquals 2, list.findParallel {counter.incrementAndGet(); Thread.sleep 1; it > 1}
+            assertTrue counter.get() < list.size()
+        }
+    }
+
+    public void testShortCircuitingWithoutMatch() {
+        final List<Integer> list = (1..1000).toList()
+        final AtomicInteger counter = new AtomicInteger(0)
+        GParsExecutorsPool.withPool(5) {
+            assertFalse list.anyParallel {counter.incrementAndGet(); it < 0}
+            assertEquals list.size(), counter.get()
+            assertTrue list.everyParallel {it > 0}
+            assertNull list.findAnyParallel {it < 0}
+        }
+    }
+}
+
+/**
+ * Counts the tasks submitted to the pool
+ */
+class CountingThreadPoolExecutor extends ThreadPoolExecutor {
+    final AtomicInteger submitted = new AtomicInteger(0)
+
+    CountingThreadPoolExecutor(final int poolSize) {
+        super(poolSize, poolSize, 10, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), Executors.defaultThreadFactory())
+    }
+
+    @Override
+    void execute(final Runnable command) {
+        submitted.incrementAndGet()
+        super.execute(command)
+    }
+}
@@ -0,0 +1,107 @@
+// GPars - Groovy Parallel Systems
+//
+// Copyright © 2008-10  The original author or authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package groovyx.gpars
+
+import groovyx.gpars.util.Granularity
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicInteger
+
+public class GranularityTest extends GroovyTestCase {
+
+    public void testLeafSize() {
+        assertEquals 25, Granularity.leafSize(640, 64, 100, 4)
+        assertEquals 750, Granularity.leafSize(6400, 64, 1000000, 4)
+        assertEquals 1, Granularity.leafSize(64000000, 64, 1000000, 4)
+        assertEquals 250000, Granularity.leafSize(0, 0, 1000000, 4)
+        assertEquals 1, Granularity.leafSize(100, 10, 0, 4)
+    }
+
+    public void testGrainOption() {
+        assertEquals Granularity.AUTO, Granularity.grain([:])
+        assertEquals 100, Granularity.grain(grain: 100)
+        shouldFail(IllegalArgumentException) {Granularity.grain(grain: 0)}
+        shouldFail(IllegalArgumentException) {Granularity.grain(grain: 'a')}
+        shouldFail(IllegalArgumentException) {Granularity.grain(size: 10)}
+    }
+
+    public void testExplicitGrain() {
+        final List<Integer> list = (1..1000).toList()
+        GParsPool.withPool(5) {
+            assertEquals list.collect {it * 2}, list.collectParallel(grain: 7) {it * 2}
+            assertEquals list.collect {it * 2}, list.toArray().collectParallel(grain: 1) {it * 2}
+            assertEquals list.collect {it * 2}, new LinkedHashSet(list).collectParallel(grain: 100) {it * 2}
+            final AtomicInteger sum = new AtomicInteger(0)
+            list.eachParallel(grain: 3) {sum.addAndGet it}
+            assertEquals 500500, sum.get()
+            assertEquals([2, 4], [a: 1, b: 2].collectParallel(grain: 1) {k, v -> v * 2}.sort())
+            shouldFail(IllegalArgumentException) {list.collectParallel(grains: 1) {it}}
+        }
+    }
+
+    public void testExpensiveClosuresGetSplit() {
+        final def threads = new ConcurrentHashMap()
+        GParsPool.withPool(5) {
+            (1..20).toList().eachParallel {
+                threads[Thread.currentThread()] = true
+                Thread.sleep 20
+            }
+        }
+        assertTrue threads.size() > 1
+    }
+
+    public void testCheapClosuresProcessAllElements() {
+        final List<Integer> list = (1..100000).toList()
+        GParsPool.withPool(5) {
+            assertEquals list.collect {it + 1}, list.collectParallel {it + 1}
+            assertEquals 5000050000, list.parallel.map {it as long}.sum()
+        }
+    }
+
+    public void testExecutorsGrain() {
+        final List<Integer> list = (1..1000).toList()
+        GParsExecutorsPool.withPool(5) {
+            assertEquals list.collect {it * 2}, list.collectParallel(grain: 7) {it * 2}
+            assertEquals list.collect {it * 2}, list.collectParallel {it * 2}
+            final AtomicInteger sum = new AtomicInteger(0)
+            list.eachParallel(grain: 10) {sum.addAndGet it}
+            assertEquals 500500, sum.get()
+            final def threads = new ConcurrentHashMap()
+            (1..20).toList().eachParallel {
+                threads[Thread.currentThread()] = true
+                Thread.sleep 20
+            }
+            assertTrue threads.size() > 1
+        }
+    }
+
+    public void testExecutorsExceptions() {
+        GParsExecutorsPool.withPool(5) {
+            final AsyncException e = shouldFailWith(AsyncException) {(1..100).toList().collectParallel(grain: 10) {if (it % 10 == 0) throw new IllegalStateException('test'); it}}
+            assertEquals 10, e.concurrentExceptions.size()
+        }
+    }
+
+    private Throwable shouldFailWith(final Class type, final Closure code) {
+        try {
+            code()
+        } catch (Throwable e) {
+            assertTrue "Expected $type.name but was $e", type.isInstance(e)
+            return e
+        }
+        fail "Closure should have thrown $type.name"
+    }
+}
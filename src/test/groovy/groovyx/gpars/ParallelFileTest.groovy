@@ -0,0 +1,114 @@
+// GPars - Groovy Parallel Systems
+//
+// Copyright © 2008-10  The original author or authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package groovyx.gpars
+
+import groovyx.gpars.pa.ParallelFile
+import java.nio.charset.Charset
+import jsr166y.forkjoin.ForkJoinPool
+
+public class ParallelFileTest extends GroovyTestCase {
+
+    private ForkJoinPool pool
+    private File file
+
+    protected void setUp() {
+        super.setUp()
+        pool = new ForkJoinPool(4)
+        file = File.createTempFile('gpars', '.txt')
+        file.deleteOnExit()
+    }
+
+    protected void tearDown() {
+        pool.shutdown()
+        file.delete()
+        super.tearDown()
+    }
+
+    private ParallelFile lines(final int rangeSize) {
+        new ParallelFile(file, Charset.forName('UTF-8'), pool, rangeSize)
+    }
+
+    public void testLinesAreSplitAtLineBoundaries() {
+        final List<String> content = (1..1000).collect {"line number $it".toString()}
+        file.text = content.join('\n') + '\n'
+        [1, 7, 100, 4096, 0].each {rangeSize ->
+            assertEquals content, lines(rangeSize).collect()
+            assertEquals 1000L, lines(rangeSize).count()
+        }
+    }
+
+    public void testLineSeparators() {
+        file.text = 'a\r\nb\n\nc'
+        assertEquals(['a', 'b', '', 'c'], lines(1).collect())
+        assertEquals(['a', 'b', '', 'c'], lines(0).collect())
+        file.text = ''
+        assertEquals([], lines(1).collect())
+        assertEquals 0L, lines(0).count()
+        assertNull lines(0).reduce {a, b -> a + b}
+    }
+
+    public void testMultiByteCharacters() {
+        final List<String> content = (1..200).collect {"žluťoučký kůň $it".toString()}
+        file.withWriter('UTF-8') {it << content.join('\n')}
+        assertEquals content, lines(5).collect()
+        shouldFail(IllegalArgumentException) {new ParallelFile(file, Charset.forName('UTF-16'), pool)}
+    }
+
+    public void testGroupBy() {
+        final List<String> content = (1..1000).collect {"${it % 7}:$it".toString()}
+        file.text = content.join('\n')
+        final Map groups = lines(50).groupBy {it.split(':')[0]}
+        assertEquals content.groupBy {it.split(':')[0]}, groups
+        assertEquals(['1', '2', '3', '4', '5', '6', '0'], groups.keySet().toList())
+        assertEquals content.groupBy {it.size()}, lines(50).filter {it.size() > 0}.groupBy {it.size()}
+    }
+
+    public void testCombine() {
+        file.text = (1..1000).collect {"word${it % 10} $it"}.join('\n')
+        final Map expected = (1..1000).groupBy {"word${it % 10}".toString()}.inject([:]) {map, entry -> map[entry.key] = entry.value.sum(); map}
+        final def words = lines(64).map {it.split(' ')}.map {[it[0], it[1] as int]}
+        assertEquals expected, words.combine(0, {sum, value -> sum + value}, {a, b -> a + b})
+        assertEquals expected, words.combine(0) {sum, value -> sum + value}
+        assertEquals((1..10).collect {"word${it % 10}".toString()}, words.combine(0) {sum, value -> sum + value}.keySet().toList())
+        assertEquals((1..1000).findAll {it % 10 == 3}, words.combine([], {list, value -> list << value}, {a, b -> a + b})['word3'])
+    }
+
+    public void testFoldAndReduce() {
+        file.text = (1..1000).join('\n')
+        assertEquals 500500, lines(16).map {it as int}.reduce {a, b -> a + b}
+        assertEquals 500500, lines(16).fold({0}, {acc, line -> acc + (line as int)}, {a, b -> a + b})
+        assertEquals 500, lines(16).filter {(it as int) % 2 == 0}.count()
+    }
+
+    public void testClosureExceptionsPropagate() {
+        file.text = (1..100).join('\n')
+        shouldFail(IllegalStateException) {
+            lines(10).map {if (it == '50') throw new IllegalStateException('test'); it}.collect()
+        }
+        shouldFail(IllegalArgumentException) {
+            new ParallelFile(new File(file.path + '.missing'), Charset.forName('UTF-8'), pool).count()
+        }
+    }
+
+    public void testPoolIntegration() {
+        file.text = ['a 1', 'b 2', 'a 3'].join('\n')
+        GParsPool.withPool(3) {
+            assertEquals([a: ['a 1', 'a 3'], b: ['b 2']], file.parallelLines.groupBy {it[0]})
+            assertEquals([a: 4, b: 2], file.parallelLines('UTF-8').map {it.split(' ')}.map {[it[0], it[1] as int]}.combine(0) {a, b -> a + b})
+        }
+    }
+}
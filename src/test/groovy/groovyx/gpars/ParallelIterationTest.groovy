@@ -0,0 +1,91 @@
+// GPars - Groovy Parallel Systems
+//
+// Copyright © 2008-10  The original author or authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package groovyx.gpars
+
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.atomic.AtomicInteger
+
+public class ParallelIterationTest extends GroovyTestCase {
+
+    public void testEachOnRandomAccessList() {
+        final List<Integer> list = (1..10000).toList()
+        final AtomicInteger sum = new AtomicInteger(0)
+        GParsPool.withPool(5) {
+            assertSame list, list.eachParallel {sum.addAndGet it}
+        }
+        assertEquals 50005000, sum.get()
+    }
+
+    public void testCollectOnRandomAccessListKeepsOrder() {
+        final List<Integer> list = (1..10000).toList()
+        GParsPool.withPool(5) {
+            assertEquals list.collect {it * 2}, list.collectParallel {it * 2}
+            assertEquals([], [].collectParallel {it * 2})
+        }
+    }
+
+    public void testArrays() {
+        final Object[] array = (1..1000).toArray()
+        final def threads = new ConcurrentHashMap()
+        GParsPool.withPool(5) {
+            array.eachParallel {threads[Thread.currentThread()] = true}
+            assertEquals((1..1000).collect {it + 1}, array.collectParallel {it + 1})
+            final def pa = array.parallelArray
+            pa.replaceWithValue(0)
+            assertEquals 1, array[0]
+            assertEquals 5000, array.foldParallel(5000) {a, b -> Math.max(a, b)}
+            assertEquals 1000, array.size()
+        }
+        assertFalse threads.isEmpty()
+    }
+
+    public void testStreamingIterator() {
+        final Iterator iterator = (1..5000).iterator()
+        final def result = new CopyOnWriteArrayList()
+        GParsPool.withPool(5) {
+            iterator.eachParallel {result << it}
+        }
+        assertFalse iterator.hasNext()
+        assertEquals((1..5000).toList(), result.sort())
+    }
+
+    public void testStreamingIterable() {
+        final Iterable iterable = [iterator: {(1..3000).iterator()}] as Iterable
+        final AtomicInteger counter = new AtomicInteger(0)
+        GParsPool.withPool(5) {
+            iterable.eachParallel {counter.incrementAndGet()}
+        }
+        assertEquals 3000, counter.get()
+    }
+
+    public void testStreamingFailure() {
+        final Iterator iterator = (1..5000).iterator()
+        GParsPool.withPool(5) {
+            shouldFail(IllegalStateException) {
+                iterator.eachParallel {if (it == 2500) throw new IllegalStateException('test')}
+            }
+        }
+    }
+
+    public void testNonRandomAccessCollection() {
+        final LinkedList<Integer> list = new LinkedList<Integer>((1..1000).toList())
+        GParsPool.withPool(5) {
+            assertEquals list.collect {it * 2}, list.collectParallel {it * 2}
+        }
+    }
+}
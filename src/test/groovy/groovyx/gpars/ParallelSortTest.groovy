@@ -0,0 +1,106 @@
+// GPars - Groovy Parallel Systems
+//
+// Copyright © 2008-10  The original author or authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package groovyx.gpars
+
+import java.util.concurrent.atomic.AtomicInteger
+
+public class ParallelSortTest extends GroovyTestCase {
+
+    private final Random random = new Random(10)
+
+    public void testSort() {
+        final List<Integer> list = (1..10000).collect {random.nextInt(1000)}
+        GParsPool.withPool(5) {
+            assertEquals new ArrayList(list).sort {it}, list.sortParallel()
+            assertEquals new ArrayList(list).sort {-it}, list.sortParallel {-it}
+            assertEquals new ArrayList(list).sort {a, b -> b <=> a}, list.sortParallel {a, b -> b <=> a}
+            assertEquals new ArrayList(list).sort {a, b -> b <=> a}, list.sortParallel([compare: {a, b -> b <=> a}] as Comparator)
+            assertEquals([], [].sortParallel())
+            assertEquals([1], [1].sortParallel())
+        }
+    }
+
+    public void testSortDoesNotModifyOriginal() {
+        final List<Integer> list = [5, 3, 4, 1, 2]
+        final Object[] array = [5, 3, 4, 1, 2] as Object[]
+        GParsPool.withPool(5) {
+            assertEquals([1, 2, 3, 4, 5], list.sortParallel())
+            assertEquals([1, 2, 3, 4, 5], array.sortParallel())
+            assertEquals(['a', 'b', 'c'], 'cab'.sortParallel())
+        }
+        assertEquals([5, 3, 4, 1, 2], list)
+        assertEquals([5, 3, 4, 1, 2], array as List)
+    }
+
+    public void testSortIsStable() {
+        final List<List<Integer>> list = (0..<10000).collect {[random.nextInt(10), it]}
+        GParsPool.withPool(5) {
+            final List sorted = list.sortParallel {it[0]}
+            assertEquals new ArrayList(list).sort {a, b -> a[0] <=> b[0] ?: a[1] <=> b[1]}, sorted
+        }
+    }
+
+    public void testKeysExtractedOncePerElement() {
+        final AtomicInteger counter = new AtomicInteger(0)
+        final List<Integer> list = (1..10000).collect {random.nextInt(1000)}
+        GParsPool.withPool(5) {
+            list.sortParallel {counter.incrementAndGet(); it}
+            assertEquals 10000, counter.get()
+            counter.set 0
+            list.topKParallel(10) {counter.incrementAndGet(); it}
+            assertEquals 10000, counter.get()
+        }
+    }
+
+    public void testTopAndBottomK() {
+        final List<Integer> list = (1..10000).collect {random.nextInt(100000)}
+        GParsPool.withPool(5) {
+            assertEquals new ArrayList(list).sort().reverse()[0..<10], list.topKParallel(10)
+            assertEquals new ArrayList(list).sort()[0..<10], list.bottomKParallel(10)
+            assertEquals new ArrayList(list).sort()[0..<10], list.topKParallel(10) {-it}
+            assertEquals new ArrayList(list).sort()[0..<10], list.topKParallel(10) {a, b -> b <=> a}
+            assertEquals new ArrayList(list).sort().reverse()[0..<5], list.bottomKParallel(5, [compare: {a, b -> b <=> a}] as Comparator)
+            assertEquals new ArrayList(list).sort().reverse(), list.topKParallel(20000)
+            assertEquals([], list.topKParallel(0))
+            assertEquals([], [].bottomKParallel(3))
+        }
+    }
+
+    public void testTopKKeepsOriginalOrderOfTies() {
+        final List<String> words = ['bb', 'a', 'cc', 'dd', 'e', 'ff']
+        GParsPool.withPool(5) {
+            assertEquals(['bb', 'cc', 'dd'], words.topKParallel(3) {it.size()})
+            assertEquals(['a', 'e', 'bb'], words.bottomKParallel(3) {it.size()})
+        }
+    }
+
+    public void testWrapperSort() {
+        final List<Integer> list = (1..10000).collect {random.nextInt(1000)}
+        GParsPool.withPool(5) {
+            assertEquals new ArrayList(list).sort {-it}, list.parallel.sort {-it}.collection
+            assertEquals new ArrayList(list).sort(), list.parallel.map {it}.sort().collection
+        }
+    }
+
+    public void testEnhancer() {
+        final List<Integer> list = [3, 1, 2]
+        ParallelEnhancer.enhanceInstance list
+        assertEquals([1, 2, 3], list.sortParallel())
+        assertEquals([3, 2], list.topKParallel(2))
+        assertEquals([1], list.bottomKParallel(1) {it})
+    }
+}
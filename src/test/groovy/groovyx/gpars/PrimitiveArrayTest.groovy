@@ -0,0 +1,102 @@
+// GPars - Groovy Parallel Systems
+//
+// Copyright © 2008-10  The original author or authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package groovyx.gpars
+
+import groovyx.gpars.pa.DoublePAWrapper
+import groovyx.gpars.pa.LongPAWrapper
+import jsr166y.forkjoin.ParallelArray
+
+public class PrimitiveArrayTest extends GroovyTestCase {
+
+    public void testSumMinMax() {
+        final int[] ints = (1..10000).toList() as int[]
+        final long[] longs = (1..10000).toList() as long[]
+        final double[] doubles = (1..4).collect {it / 2} as double[]
+        GParsPool.withPool(5) {
+            assertEquals 50005000L, ints.sumParallel()
+            assertEquals 1, ints.minParallel()
+            assertEquals 10000, ints.maxParallel()
+            assertEquals 50005000L, longs.sumParallel()
+            assertEquals 1L, longs.minParallel()
+            assertEquals 10000L, longs.maxParallel()
+            assertEquals 5.0d, doubles.sumParallel(), 0.0001d
+            assertEquals 0.5d, doubles.minParallel(), 0.0001d
+            assertEquals 2.0d, doubles.maxParallel(), 0.0001d
+        }
+    }
+
+    public void testIntSumDoesNotOverflow() {
+        final int[] ints = [Integer.MAX_VALUE, Integer.MAX_VALUE] as int[]
+        GParsPool.withPool(2) {
+            assertEquals 2L * Integer.MAX_VALUE, ints.sumParallel()
+        }
+    }
+
+    public void testMapFilterReduce() {
+        final int[] ints = (1..10).toList() as int[]
+        GParsPool.withPool(5) {
+            final LongPAWrapper parallel = ints.getParallel()
+            assertEquals 10, parallel.size()
+            assertEquals([2L, 4L, 6L, 8L, 10L, 12L, 14L, 16L, 18L, 20L], parallel.map {it * 2}.collection)
+            assertEquals([6L, 12L, 18L], parallel.map {it * 2}.filter {it % 3 == 0}.collection)
+            assertEquals([9L, 25L], parallel.filter {it % 2}.filter {it > 1}.map {it * it}.filter {it < 40}.collection)
+            assertEquals 55L, parallel.reduce {a, b -> a + b}
+            assertEquals 65L, parallel.reduce(10) {a, b -> a + b}
+            assertNull parallel.filter {false}.reduce {a, b -> a + b}
+            assertEquals 10L, parallel.filter {false}.reduce(10) {a, b -> a + b}
+            assertEquals 110L, parallel.map {it * 2}.sum()
+        }
+    }
+
+    public void testDoubles() {
+        final double[] doubles = [1.5d, 2.5d, 0.5d] as double[]
+        GParsPool.withPool(5) {
+            final DoublePAWrapper parallel = doubles.getParallel()
+            assertEquals 9.0d, parallel.map {it * 2}.sum(), 0.0001d
+            assertEquals([2.5d], parallel.filter {it > 2}.collection)
+            assertEquals 4.5d, parallel.reduce {a, b -> a + b}, 0.0001d
+            assertEquals([0.5d, 1.5d, 2.5d] as double[], parallel.sort().array)
+            assertEquals 1.5d, doubles[0], 0.0001d
+        }
+    }
+
+    public void testSort() {
+        final long[] longs = [5, 3, 9, 1] as long[]
+        GParsPool.withPool(5) {
+            assertEquals([1L, 3L, 5L, 9L] as long[], longs.getParallel().sort().array)
+            assertEquals([9L, 5L, 3L, 1L] as long[], longs.getParallel().sort {a, b -> b <=> a}.array)
+            assertEquals([5L, 3L, 9L, 1L] as long[], longs)
+        }
+    }
+
+    public void testParallelArray() {
+        final int[] ints = [3, 1, 2] as int[]
+        GParsPool.withPool(5) {
+            assertEquals 3, ints.getParallelArray().size()
+            assertEquals 6L, ints.getParallelArray().sum()
+        }
+    }
+
+    public void testPropertiesKeepBoxedResults() {
+        final int[] ints = [3, 1, 2] as int[]
+        GParsPool.withPool(5) {
+            assertTrue ints.parallel instanceof PAWrapper
+            assertEquals([3, 1, 2], ints.parallel.collection)
+            assertTrue ints.parallelArray instanceof ParallelArray
+        }
+    }
+}
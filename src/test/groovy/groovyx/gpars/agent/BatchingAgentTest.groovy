@@ -0,0 +1,102 @@
+// GPars - Groovy Parallel Systems
+//
+// Copyright © 2008-10  The original author or authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package groovyx.gpars.agent
+
+import groovyx.gpars.dataflow.DataFlowVariable
+import groovyx.gpars.group.DefaultPGroup
+import java.util.concurrent.CountDownLatch
+
+public class BatchingAgentTest extends GroovyTestCase {
+    public void testBatchRunsListenersOnce() {
+        final DefaultPGroup group = new DefaultPGroup(1)
+        final BatchingAgent<Integer> counter = group.batchingAgent(0)
+        final def updates = []
+        counter.addListener {oldValue, newValue -> updates << [oldValue, newValue]}
+        final CountDownLatch release = blockPool(group)
+        100.times {counter << {updateValue it + 1}}
+        release.countDown()
+        assertEquals 100, counter.val
+        assertEquals([[0, 100]], updates)
+        group.shutdown()
+    }
+
+    public void testRejectedBatchIsReverted() {
+        final DefaultPGroup group = new DefaultPGroup(1)
+        final BatchingAgent<Integer> counter = group.batchingAgent(0)
+        counter.addValidator {oldValue, newValue -> if (newValue > 10) throw new IllegalStateException('Too big')}
+        final CountDownLatch release = blockPool(group)
+        20.times {counter << {updateValue it + 1}}
+        final DataFlowVariable seen = new DataFlowVariable()
+        counter.valAsync {seen << it}
+        release.countDown()
+        assertEquals 0, seen.val
+        assertEquals 0, counter.val
+        assertEquals 1, counter.errors.size()
+        counter << 5
+        assertEquals 5, counter.val
+        group.shutdown()
+    }
+
+    public void testFailingMessageDoesNotStopBatch() {
+        final DefaultPGroup group = new DefaultPGroup(1)
+        final BatchingAgent<String> agent = group.batchingAgent('')
+        final CountDownLatch release = blockPool(group)
+        agent << {updateValue it + 'a'}
+        agent << {throw new IllegalArgumentException('test')}
+        agent << null
+        agent << {updateValue it + 'b'}
+        release.countDown()
+        assertEquals 'nullb', agent.val
+        assertTrue agent.errors[0] instanceof IllegalArgumentException
+        group.shutdown()
+    }
+
+    public void testCoalescing() {
+        final DefaultPGroup group = new DefaultPGroup(1)
+        int merges = 0
+        final BatchingAgent<Integer> agent = group.batchingAgent(0) {a, b ->
+            if (a instanceof Closure || b instanceof Closure) return null
+            merges++
+            return b
+        }
+        final def updates = []
+        agent.addListener {oldValue, newValue -> updates << newValue}
+        final CountDownLatch release = blockPool(group)
+        (1..10).each {agent << it}
+        agent << {updateValue it * 2}
+        release.countDown()
+        assertEquals 20, agent.val
+        assertEquals 9, merges
+        assertEquals([20], updates)
+        group.shutdown()
+    }
+
+    public void testCoalescingClosureMustTakeTwoArguments() {
+        shouldFail(IllegalArgumentException) {
+            new BatchingAgent(0, null, {it})
+        }
+    }
+
+    /**
+     * Occupies the only thread of the group so that messages queue up in the agent
+     */
+    private CountDownLatch blockPool(final DefaultPGroup group) {
+        final CountDownLatch release = new CountDownLatch(1)
+        group.threadPool.execute {release.await()}
+        return release
+    }
+}
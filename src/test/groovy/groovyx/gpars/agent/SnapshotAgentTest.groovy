@@ -0,0 +1,80 @@
+// GPars - Groovy Parallel Systems
+//
+// Copyright © 2008-10  The original author or authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package groovyx.gpars.agent
+
+import groovyx.gpars.group.DefaultPGroup
+import java.util.concurrent.CountDownLatch
+
+public class SnapshotAgentTest extends GroovyTestCase {
+    public void testSnapshotUpdates() {
+        final Agent<Integer> counter = Agent.snapshotAgent(0)
+        assertTrue counter.snapshotting
+        assertEquals 0, counter.instantVal
+        100.times {counter << {updateValue it + 1}}
+        counter << null
+        counter << 5
+        assertEquals 5, counter.val
+        assertEquals 5, counter.instantVal
+        assertFalse new Agent(0).snapshotting
+    }
+
+    public void testReadsDoNotBlockDuringUpdate() {
+        final Agent<String> agent = Agent.snapshotAgent('initial')
+        final CountDownLatch started = new CountDownLatch(1)
+        final CountDownLatch release = new CountDownLatch(1)
+        agent << {
+            updateValue 'intermediate'
+            started.countDown()
+            release.await()
+            updateValue 'final'
+        }
+        started.await()
+        assertEquals 'initial', agent.instantVal
+        release.countDown()
+        assertEquals 'final', agent.val
+        assertEquals 'final', agent.instantVal
+    }
+
+    public void testCopyCreatesSnapshotOncePerMessage() {
+        int copies = 0
+        final def group = new DefaultPGroup(1)
+        final Agent<List> agent = group.snapshotAgent(['Me'], {copies++; new ArrayList(it)})
+        assertEquals 1, copies
+        agent << {updateValue(it + 'Joe')}
+        agent.await()
+        final int copiesAfterUpdate = copies
+        final List snapshot = agent.instantVal
+        assertEquals(['Me', 'Joe'], snapshot)
+        assertSame snapshot, agent.instantVal
+        assertEquals copiesAfterUpdate, copies
+        group.shutdown()
+    }
+
+    public void testValidatorsAndListeners() {
+        final Agent<Integer> agent = Agent.snapshotAgent(0)
+        final def updates = []
+        agent.addValidator {oldValue, newValue -> if (newValue < 0) throw new IllegalArgumentException('negative')}
+        agent.addListener {oldValue, newValue -> updates << newValue}
+        agent << 1
+        agent << -1
+        agent << 2
+        agent.await()
+        assertEquals 2, agent.instantVal
+        assertEquals([1, 2], updates)
+        assertEquals 1, agent.errors.size()
+    }
+}
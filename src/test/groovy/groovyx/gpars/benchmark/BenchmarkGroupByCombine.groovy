@@ -0,0 +1,59 @@
+// GPars - Groovy Parallel Systems
+//
+// Copyright © 2008-10  The original author or authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package groovyx.gpars.benchmark
+
+import groovyx.gpars.GParsPoolUtil
+import jsr166y.forkjoin.ForkJoinPool
+import static groovyx.gpars.GParsPool.withExistingPool
+
+/**
+ * Measures groupBy and combine over 10M elements with low and high numbers of distinct keys.
+ * Each thread groups into its own hash map and the maps get merged in a parallel tree reduction.
+ */
+
+final int size = 10000000
+final List<Integer> nums = new ArrayList<Integer>(size)
+for (int i = 0; i < size; i++) nums << i
+
+final def pool = new ForkJoinPool()
+
+def measure = {String title, Closure code ->
+    sleep 1000
+    final long start = System.currentTimeMillis()
+    final def result = code()
+    println "$title: ${result.size()} keys, time: ${System.currentTimeMillis() - start}ms"
+}
+
+[1000, 1000000].each {int keys ->
+    println ""
+    println "$keys distinct keys"
+    withExistingPool(pool) {
+        println "Warming up"
+        3.times {
+            GParsPoolUtil.groupByParallel(nums) {it % keys}
+            GParsPoolUtil.getParallel(nums).map {[it % keys, 1]}.combine(0, {sum, value -> sum + value}, {a, b -> a + b})
+        }
+
+        measure("serial groupBy") {nums.groupBy {it % keys}}
+        measure("groupByParallel") {GParsPoolUtil.groupByParallel(nums) {it % keys}}
+        measure("parallel.groupBy") {GParsPoolUtil.getParallel(nums).groupBy {it % keys}}
+        measure("parallel.combine") {GParsPoolUtil.getParallel(nums).map {[it % keys, 1]}.combine(0) {sum, value -> sum + value}}
+        measure("parallel.combine with merge") {GParsPoolUtil.getParallel(nums).map {[it % keys, 1]}.combine(0, {sum, value -> sum + value}, {a, b -> a + b})}
+    }
+}
+
+pool.shutdown()
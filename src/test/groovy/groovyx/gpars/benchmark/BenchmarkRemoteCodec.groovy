@@ -0,0 +1,64 @@
+// GPars - Groovy Parallel Systems
+//
+// Copyright © 2008-10  The original author or authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package groovyx.gpars.benchmark
+
+import groovyx.gpars.remote.LocalHost
+import groovyx.gpars.remote.RemoteHost
+import groovyx.gpars.remote.message.HostIdMsg
+import groovyx.gpars.remote.netty.CompactCodec
+import groovyx.gpars.remote.netty.JavaSerializationCodec
+import groovyx.gpars.remote.netty.RemoteCodec
+
+/**
+ * Encodes and decodes a stream of typical remote messages in-process, reporting the encoded size and the throughput of each codec
+ */
+
+final int iterations = 100000
+final def localA = new LocalHost()
+final def localB = new LocalHost()
+final def hostB = new RemoteHost(localA, localB.id)
+final def hostA = new RemoteHost(localB, localA.id)
+final def payload = [UUID.randomUUID(), 'text', 10, 2.5, new Date(0)]
+
+3.times {[compact: CompactCodec.FACTORY, java: JavaSerializationCodec.FACTORY].each {name, factory ->
+    final RemoteCodec sender = factory.createCodec()
+    final RemoteCodec receiver = factory.createCodec()
+    final def out = new ByteArrayOutputStream(512)
+    long bytes = 0
+
+    final def t1 = System.nanoTime()
+    for (int i = 0; i < iterations; i++) {
+        final def message = i % 2 == 0 ? new HostIdMsg(localA.id) : payload
+        out.reset()
+        hostB.enter()
+        try {
+            sender.encode(message, out)
+        } finally {
+            hostB.leave()
+        }
+        bytes += out.size()
+        hostA.enter()
+        try {
+            receiver.decode(new ByteArrayInputStream(out.toByteArray()))
+        } finally {
+            hostA.leave()
+        }
+    }
+    final def t2 = System.nanoTime()
+    println "$name: ${bytes / iterations} bytes/message, ${(long) (iterations * 1000000000L / (t2 - t1))} messages/s"
+}}
+System.exit 0
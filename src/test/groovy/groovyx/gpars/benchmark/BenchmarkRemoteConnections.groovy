@@ -0,0 +1,93 @@
+// GPars - Groovy Parallel Systems
+//
+// Copyright © 2008-10  The original author or authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package groovyx.gpars.benchmark
+
+import groovyx.gpars.actor.Actors
+import groovyx.gpars.dataflow.DataFlowVariable
+import groovyx.gpars.remote.LocalNode
+import groovyx.gpars.remote.netty.CompactCodec
+import groovyx.gpars.remote.netty.NettyTransportProvider
+import groovyx.gpars.remote.netty.WritePolicy
+
+/**
+ * Measures the throughput of several actors streaming messages to their remote counterparts over loopback
+ * with one and with several connections between the two hosts
+ */
+
+final int workers = 8
+final int messagesPerWorker = 5000
+
+/**
+ * Connects a client node to a server node, whose main actor hands out remote workers confirming each completed stream of numbers
+ */
+def connect(final int connections, final int workers, final int streamLength) {
+    final def serverProvider = new NettyTransportProvider(CompactCodec.FACTORY, WritePolicy.BATCHING, connections)
+    final def server = new LocalNode(serverProvider, {
+        final def workerActors = (1..workers).collect {
+            Actors.actor {
+                int received = 0
+                loop {
+                    react {
+                        if (++received == streamLength) {
+                            received = 0
+                            reply 'done'
+                        }
+                    }
+                }
+            }
+        }
+        loop {
+            react {
+                reply workerActors
+            }
+        }
+    })
+    final def client = new LocalNode(new NettyTransportProvider(CompactCodec.FACTORY, WritePolicy.BATCHING, connections))
+    final def remoteMain = new DataFlowVariable()
+    client.addDiscoveryListener {node, op ->
+        if (op == 'connected' && node.id == server.id) remoteMain << node.mainActor
+    }
+    client.connect()
+    final def remoteWorkers = new DataFlowVariable()
+    Actors.actor {
+        remoteMain.val << 'workers'
+        react {remoteWorkers << it}
+    }
+    return [remoteWorkers.val, client, server]
+}
+
+def stream(final remoteWorkers, final int messagesPerWorker) {
+    final def t1 = System.nanoTime()
+    remoteWorkers.collect {worker ->
+        Actors.actor {
+            for (int i = 0; i < messagesPerWorker; i++) worker << i
+            react {}
+        }
+    }*.join()
+    return (long) (remoteWorkers.size() * messagesPerWorker * 1000000000L / (System.nanoTime() - t1))
+}
+
+[1, 4].each {connections ->
+    final def (remoteWorkers, client, server) = connect(connections, workers, messagesPerWorker)
+    //let all connections get established
+    Thread.sleep 2000
+    stream(remoteWorkers, messagesPerWorker)
+    println "$connections connection(s): ${stream(remoteWorkers, messagesPerWorker)} messages/s"
+    client.localHost.disconnect()
+    server.localHost.disconnect()
+}
+System.exit 0
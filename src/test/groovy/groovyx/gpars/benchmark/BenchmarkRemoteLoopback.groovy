@@ -0,0 +1,109 @@
+// GPars - Groovy Parallel Systems
+//
+// Copyright © 2008-10  The original author or authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package groovyx.gpars.benchmark
+
+import groovyx.gpars.actor.Actors
+import groovyx.gpars.dataflow.DataFlowVariable
+import groovyx.gpars.remote.LocalNode
+import groovyx.gpars.remote.loopback.LoopbackNetwork
+import groovyx.gpars.remote.loopback.LoopbackTransportProvider
+import java.util.concurrent.TimeUnit
+
+/**
+ * Measures remote sends, remote sendAndWait round trips and remote dataflow variable binding
+ * over the in-process loopback transport, without and with injected latency and bandwidth limits
+ */
+
+final int messages = 20000
+final int roundTrips = 2000
+final int variables = 2000
+
+/**
+ * Connects a client node to a server node, whose main actor counts, echoes or binds the messages it receives
+ */
+def connect(final LoopbackNetwork network) {
+    final def server = new LocalNode(new LoopbackTransportProvider(network), {
+        int received = 0
+        loop {
+            react {msg ->
+                switch (msg) {
+                    case DataFlowVariable: msg << 'bound'; break
+                    case Integer: if (++received == msg) {received = 0; reply 'done'}; break
+                    default: reply msg
+                }
+            }
+        }
+    })
+    final def client = new LocalNode(new LoopbackTransportProvider(network))
+    final def remoteMain = new DataFlowVariable()
+    client.addDiscoveryListener {node, op ->
+        if (op == 'connected' && node.id == server.id) remoteMain << node.mainActor
+    }
+    client.connect()
+    return [remoteMain.val, client, server]
+}
+
+def rate(final int count, final Closure code) {
+    final def t1 = System.nanoTime()
+    code()
+    return (long) (count * 1000000000L / (System.nanoTime() - t1))
+}
+
+def send(final remoteMain, final int messages) {
+    rate(messages) {
+        final def result = new DataFlowVariable()
+        Actors.actor {
+            for (int i = 0; i < messages; i++) remoteMain << messages
+            react {result << it}
+        }
+        result.val
+    }
+}
+
+def sendAndWait(final remoteMain, final int roundTrips) {
+    rate(roundTrips) {
+        for (int i = 0; i < roundTrips; i++) remoteMain.sendAndWait('ping')
+    }
+}
+
+def bind(final remoteMain, final int variables) {
+    rate(variables) {
+        for (int i = 0; i < variables; i++) {
+            final def variable = new DataFlowVariable()
+            remoteMain << variable
+            variable.val
+        }
+    }
+}
+
+[
+        'no limits': new LoopbackNetwork(),
+        '1ms latency, 10MB/s': new LoopbackNetwork(1, TimeUnit.MILLISECONDS, 10000000)
+].each {name, network ->
+    final def (remoteMain, client, server) = connect(network)
+    //warm up
+    send(remoteMain, messages)
+    sendAndWait(remoteMain, 100)
+    bind(remoteMain, 100)
+    println "$name: send ${send(remoteMain, messages)} messages/s, " +
+            "sendAndWait ${sendAndWait(remoteMain, roundTrips)} round trips/s, " +
+            "DataFlowVariable binding ${bind(remoteMain, variables)} variables/s"
+    client.localHost.disconnect()
+    server.localHost.disconnect()
+}
+System.exit 0
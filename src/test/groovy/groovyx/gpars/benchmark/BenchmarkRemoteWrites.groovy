@@ -0,0 +1,90 @@
+// GPars - Groovy Parallel Systems
+//
+// Copyright © 2008-10  The original author or authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package groovyx.gpars.benchmark
+
+import groovyx.gpars.actor.Actors
+import groovyx.gpars.dataflow.DataFlowVariable
+import groovyx.gpars.remote.LocalNode
+import groovyx.gpars.remote.netty.NettyTransportProvider
+import groovyx.gpars.remote.netty.WritePolicy
+
+/**
+ * Measures remote ping-pong and one-way message throughput over loopback with immediate and batched writes
+ */
+
+final int iterations = 20000
+
+/**
+ * Connects a client node to a server node, whose main actor replies to each 'ping' and confirms each completed stream of numbers
+ */
+def connect(final WritePolicy policy, final int streamLength) {
+    final def server = new LocalNode(new NettyTransportProvider(policy), {
+        int received = 0
+        loop {
+            react {msg ->
+                if (msg == 'ping') {
+                    reply msg
+                } else if (++received == streamLength) {
+                    received = 0
+                    reply 'done'
+                }
+            }
+        }
+    })
+    final def client = new LocalNode(new NettyTransportProvider(policy))
+    final def remoteActor = new DataFlowVariable()
+    client.addDiscoveryListener {node, op ->
+        if (op == 'connected' && node.id == server.id) remoteActor << node.mainActor
+    }
+    client.connect()
+    return [remoteActor.val, client, server]
+}
+
+def pingPong(final remoteActor, final int roundTrips) {
+    final def t1 = System.nanoTime()
+    Actors.actor {
+        int remaining = roundTrips
+        remoteActor << 'ping'
+        loop {
+            react {
+                if (--remaining == 0) stop()
+                else remoteActor << 'ping'
+            }
+        }
+    }.join()
+    return (long) (roundTrips * 1000000000L / (System.nanoTime() - t1))
+}
+
+def oneWay(final remoteActor, final int messages) {
+    final def t1 = System.nanoTime()
+    Actors.actor {
+        for (int i = 0; i < messages; i++) remoteActor << i
+        react {}
+    }.join()
+    return (long) (messages * 1000000000L / (System.nanoTime() - t1))
+}
+
+[immediate: WritePolicy.IMMEDIATE, batching: WritePolicy.BATCHING].each {name, policy ->
+    final def (remoteActor, client, server) = connect(policy, iterations)
+    pingPong(remoteActor, iterations / 10 as int)
+    oneWay(remoteActor, iterations)
+    println "$name ping-pong: ${pingPong(remoteActor, iterations / 10 as int)} round trips/s"
+    println "$name one-way: ${oneWay(remoteActor, iterations)} messages/s"
+    client.localHost.disconnect()
+    server.localHost.disconnect()
+}
+System.exit 0
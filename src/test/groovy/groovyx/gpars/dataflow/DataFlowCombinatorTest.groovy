@@ -0,0 +1,105 @@
+// GPars - Groovy Parallel Systems
+//
+// Copyright © 2008-10  The original author or authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package groovyx.gpars.dataflow
+
+import groovyx.gpars.group.DefaultPGroup
+import java.util.concurrent.TimeUnit
+
+public class DataFlowCombinatorTest extends GroovyTestCase {
+
+    public void testThen() {
+        final DataFlowVariable<Integer> variable = new DataFlowVariable<Integer>()
+        final def result = variable.then {it * 2}.then {it + 1}
+        assertFalse result.bound
+        variable << 10
+        assertEquals 21, result.val
+    }
+
+    public void testThenOnBoundVariable() {
+        final DataFlowVariable<Integer> variable = new DataFlowVariable<Integer>()
+        variable << 10
+        final def result = variable.then {it * 2}
+        assertTrue result.bound
+        assertEquals 20, result.val
+    }
+
+    public void testThenRunsInBindingThread() {
+        final DataFlowVariable variable = new DataFlowVariable()
+        final def result = variable.then {Thread.currentThread()}
+        variable << 1
+        assertSame Thread.currentThread(), result.val
+    }
+
+    public void testThenInGroup() {
+        final DefaultPGroup group = new DefaultPGroup(2)
+        final DataFlowVariable variable = new DataFlowVariable()
+        final def result = variable.then(group) {[it, DataFlow.retrieveCurrentDFPGroup()]}
+        variable << 1
+        assertEquals([1, group], result.val)
+        group.shutdown()
+    }
+
+    public void testFlatMap() {
+        final DataFlowVariable<Integer> variable = new DataFlowVariable<Integer>()
+        final DataFlowVariable<Integer> other = new DataFlowVariable<Integer>()
+        final def result = variable.flatMap {value -> other.then {it + value}}
+        variable << 10
+        assertFalse result.bound
+        other << 5
+        assertEquals 15, result.val
+        assertEquals 20, variable.flatMap {it * 2}.val
+    }
+
+    public void testAllOf() {
+        final def variables = (1..5).collect {new DataFlowVariable()}
+        final def result = DataFlow.allOf(variables)
+        variables.reverse().eachWithIndex {v, i -> v << 5 - i}
+        assertEquals([1, 2, 3, 4, 5], result.val)
+        assertEquals([], DataFlow.allOf([]).val)
+    }
+
+    public void testLargeAllOf() {
+        final def variables = (1..10000).collect {new DataFlowVariable()}
+        final def result = DataFlow.allOf(variables)
+        DataFlow.task {
+            variables.eachWithIndex {v, i -> v << i}
+        }
+        assertEquals((0..<10000).toList(), result.val)
+    }
+
+    public void testAnyOf() {
+        final def variables = (1..5).collect {new DataFlowVariable()}
+        final def result = DataFlow.anyOf(variables)
+        assertFalse result.bound
+        variables[3] << 4
+        variables[1] << 2
+        assertEquals 4, result.val
+        shouldFail(IllegalArgumentException) {
+            DataFlow.anyOf([])
+        }
+    }
+
+    public void testOrTimeout() {
+        final DataFlowVariable variable = new DataFlowVariable()
+        final def timedOut = variable.orTimeout(100, TimeUnit.MILLISECONDS, 'timeout')
+        assertEquals 'timeout', timedOut.val
+        final def inTime = variable.orTimeout(10, TimeUnit.SECONDS, 'timeout')
+        variable << 'value'
+        assertEquals 'value', inTime.val
+        assertEquals 'value', variable.orTimeout(10, TimeUnit.SECONDS, 'timeout').val
+    }
+}
@@ -0,0 +1,145 @@
+// GPars - Groovy Parallel Systems
+//
+// Copyright © 2008-10  The original author or authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package groovyx.gpars.dataflow
+
+import groovyx.gpars.group.DefaultPGroup
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.TimeoutException
+
+public class DataFlowErrorTest extends GroovyTestCase {
+
+    public void testBindError() {
+        final DataFlowVariable variable = new DataFlowVariable()
+        final def cause = new IllegalArgumentException('test')
+        variable.bindError(cause)
+        assertTrue variable.bound
+        assertTrue variable.isError()
+        final DataFlowException e = shouldFailWith(DataFlowException) {variable.val}
+        assertSame cause, e.cause
+        shouldFailWith(DataFlowException) {variable.getVal(10, TimeUnit.SECONDS)}
+        shouldFail(IllegalStateException) {variable << 10}
+        shouldFail(IllegalStateException) {variable.bindError(cause)}
+        variable.bindErrorSafely(cause)
+        variable.bindSafely(10)
+    }
+
+    public void testBlockedReaderGetsError() {
+        final DataFlowVariable variable = new DataFlowVariable()
+        final def result = new DataFlowVariable()
+        Thread.start {
+            try {
+                variable.val
+            } catch (DataFlowException e) {
+                result << e.cause.message
+            }
+        }
+        Thread.sleep 100
+        variable.bindError(new RuntimeException('test'))
+        assertEquals 'test', result.val
+    }
+
+    public void testWhenBoundReceivesError() {
+        final DataFlowVariable variable = new DataFlowVariable()
+        final def result = new DataFlowVariable()
+        variable.whenBound {result << it}
+        variable.bindError(new RuntimeException('test'))
+        assertTrue result.val instanceof DataFlowException
+    }
+
+    public void testFailedTask() {
+        final def task = DataFlow.task {throw new IllegalStateException('test')}
+        final DataFlowException e = shouldFailWith(DataFlowException) {task.val}
+        assertTrue e.cause instanceof IllegalStateException
+
+        final def runnableTask = DataFlow.task({throw new IllegalStateException('test')} as Runnable)
+        shouldFailWith(DataFlowException) {runnableTask.val}
+    }
+
+    public void testErrorPropagatesThroughCombinators() {
+        final DataFlowVariable variable = new DataFlowVariable()
+        final DataFlowVariable other = new DataFlowVariable()
+        final def transformed = variable.then {it * 2}
+        final def all = DataFlow.allOf([variable, other])
+        final def recovered = transformed.recover {it.message}
+        variable.bindError(new RuntimeException('test'))
+        assertTrue transformed.isError()
+        assertTrue all.isError()
+        assertEquals 'test', recovered.val
+        assertFalse other.bound
+
+        final def failingClosure = other.then {throw new IllegalArgumentException('closure')}
+        other << 1
+        assertTrue failingClosure.getError().cause instanceof IllegalArgumentException
+        assertEquals 1, other.recover {-1}.val
+    }
+
+    public void testOrTimeoutError() {
+        final DataFlowVariable variable = new DataFlowVariable()
+        final DataFlowException e = shouldFailWith(DataFlowException) {variable.orTimeout(100, TimeUnit.MILLISECONDS).val}
+        assertTrue e.cause instanceof TimeoutException
+    }
+
+    public void testErrorInExpression() {
+        final DataFlowVariable a = new DataFlowVariable()
+        final DataFlowVariable b = new DataFlowVariable()
+        final def sum = a + b
+        a.bindError(new RuntimeException('test'))
+        shouldFailWith(DataFlowException) {sum.val}
+        b << 1
+    }
+
+    public void testErrorPropagatesThroughOperator() {
+        final DefaultPGroup group = new DefaultPGroup(2)
+        final DataFlowStream input = new DataFlowStream()
+        final DataFlowStream output = new DataFlowStream()
+        final def op = group.operator(inputs: [input], outputs: [output]) {
+            bindOutput it * 2
+        }
+        input << 1
+        input.bindError(new RuntimeException('test'))
+        input << 3
+        assertEquals 2, output.val
+        shouldFailWith(DataFlowException) {output.val}
+        assertEquals 6, output.val
+        op.stop()
+        group.shutdown()
+    }
+
+    public void testOperatorBodyFailureReachesOutputs() {
+        final DefaultPGroup group = new DefaultPGroup(2)
+        final DataFlowStream input = new DataFlowStream()
+        final DataFlowStream output = new DataFlowStream()
+        final def op = group.operator(inputs: [input], outputs: [output]) {
+            throw new IllegalStateException('test')
+        }
+        input << 1
+        final DataFlowException e = shouldFailWith(DataFlowException) {output.val}
+        assertTrue e.cause instanceof IllegalStateException
+        op.join()
+        group.shutdown()
+    }
+
+    private Throwable shouldFailWith(final Class type, final Closure code) {
+        try {
+            code()
+        } catch (Throwable e) {
+            assertTrue "Expected $type.name but was $e", type.isInstance(e)
+            return e
+        }
+        fail "Closure should have thrown $type.name"
+    }
+}
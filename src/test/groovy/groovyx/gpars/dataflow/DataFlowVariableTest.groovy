@@ -231,4 +231,28 @@ public class DataFlowVariableTest extends GroovyTestCase {
             variable.bindUnique(30)
         }
     }
+
+    public void testListenersNotifiedInRegistrationOrder() {
+        final DataFlowVariable variable = new DataFlowVariable()
+        final List order = Collections.synchronizedList([])
+        (1..100).each {index -> variable.then {order << index}}
+        variable << 1
+        assertEquals((1..100).toList(), order)
+    }
+
+    public void testTimedOutReadersAreRemoved() {
+        final DataFlowVariable variable = new DataFlowVariable()
+        variable.whenBound {}
+        100.times {
+            assertNull variable.getVal(1, TimeUnit.MILLISECONDS)
+        }
+        final def field = DataFlowExpression.getDeclaredField('waiting')
+        field.accessible = true
+        int length = 0
+        for (def current = field.get(variable); current != null; current = current.previous) length++
+        assertEquals 1, length
+
+        variable << 10
+        assertEquals 10, variable.getVal(1, TimeUnit.MILLISECONDS)
+    }
 }
@@ -0,0 +1,96 @@
+// GPars - Groovy Parallel Systems
+//
+// Copyright © 2008-10  The original author or authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package groovyx.gpars.memoize
+
+import groovyx.gpars.GParsPool
+import groovyx.gpars.dataflow.DataFlowException
+import groovyx.gpars.dataflow.DataFlowVariable
+import groovyx.gpars.group.DefaultPGroup
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.atomic.AtomicInteger
+
+public class MemoizeAsyncTest extends GroovyTestCase {
+
+    public void testReturnsImmediately() {
+        final CountDownLatch release = new CountDownLatch(1)
+        GParsPool.withPool {
+            final Closure mem = {release.await(); it * 2}.memoizeAsync()
+            final DataFlowVariable result = mem(10)
+            assertFalse result.bound
+            release.countDown()
+            assertEquals 20, result.val
+            assertEquals 20, mem(10).val
+        }
+    }
+
+    public void testConcurrentCallersSharePendingVariable() {
+        final AtomicInteger counter = new AtomicInteger(0)
+        final CountDownLatch release = new CountDownLatch(1)
+        final DefaultPGroup group = new DefaultPGroup(2)
+        GParsPool.withPool {
+            final Closure mem = {counter.incrementAndGet(); release.await(); it * 2}.memoizeAsyncAtMost(10, group)
+            final def results = (1..5).collect {mem(3)}
+            results.each {assertSame results[0], it}
+            release.countDown()
+            assertEquals 6, results[0].val
+            assertEquals 1, counter.get()
+        }
+        group.shutdown()
+    }
+
+    public void testFailuresAreEvicted() {
+        final AtomicInteger counter = new AtomicInteger(0)
+        GParsPool.withPool {
+            final Closure mem = {
+                if (counter.incrementAndGet() == 1) throw new IllegalStateException('test')
+                it * 2
+            }.memoizeAsyncBetween(1, 10)
+            final DataFlowVariable failed = mem(3)
+            final DataFlowException e = shouldFailWith(DataFlowException) {failed.val}
+            assertTrue e.cause instanceof IllegalStateException
+            final DataFlowVariable second = mem(3)
+            assertNotSame failed, second
+            assertEquals 6, second.val
+            assertEquals 6, mem(3).val
+            assertEquals 2, counter.get()
+        }
+    }
+
+    public void testVariants() {
+        GParsPool.withPool {
+            final Closure cl = {a, b -> a + b}
+            [cl.memoizeAsync(), cl.memoizeAsyncAtMost(5), cl.memoizeAsyncAtLeast(5), cl.memoizeAsyncBetween(2, 5)].each {Closure mem ->
+                assertEquals 3, mem(1, 2).val
+                assertEquals 'ab', mem('a', 'b').val
+                assertEquals 3, mem(1, 2).val
+            }
+            shouldFail(IllegalArgumentException) {cl.memoizeAsyncAtMost(-1)}
+            shouldFail(IllegalArgumentException) {cl.memoizeAsyncBetween(5, 2)}
+        }
+    }
+
+    private Throwable shouldFailWith(final Class type, final Closure code) {
+        try {
+            code()
+        } catch (Throwable e) {
+            assertTrue "Expected $type.name but was $e", type.isInstance(e)
+            return e
+        }
+        fail "Closure should have thrown $type.name"
+    }
+}
@@ -0,0 +1,113 @@
+// GPars - Groovy Parallel Systems
+//
+// Copyright © 2008-10  The original author or authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package groovyx.gpars.memoize
+
+import groovyx.gpars.GParsPool
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.atomic.AtomicInteger
+
+public class MemoizeCacheTest extends GroovyTestCase {
+
+    public void testConcurrentCallersShareCalculation() {
+        final AtomicInteger counter = new AtomicInteger(0)
+        final CountDownLatch started = new CountDownLatch(1)
+        final CountDownLatch release = new CountDownLatch(1)
+        GParsPool.withPool {
+            final Closure mem = {
+                counter.incrementAndGet()
+                started.countDown()
+                release.await()
+                it * 2
+            }.memoize()
+            final def first = Thread.start {assertEquals 20, mem(10)}
+            started.await()
+            final def others = (1..5).collect {Thread.start {assertEquals 20, mem(10)}}
+            Thread.sleep 100
+            release.countDown()
+            first.join()
+            others*.join()
+            assertEquals 1, counter.get()
+        }
+    }
+
+    public void testFailuresAreNotCached() {
+        int counter = 0
+        final MemoizeCache cache = new MemoizeCache(10)
+        final Closure cl = {
+            counter++
+            if (counter == 1) throw new IllegalStateException('test')
+            it * 2
+        }
+        shouldFail(IllegalStateException) {cache.get([1], cl, [1] as Object[])}
+        assertEquals 0, cache.size()
+        assertEquals 2, cache.get([1], cl, [1] as Object[])
+        assertEquals 2, cache.get([1], cl, [1] as Object[])
+        assertEquals 2, counter
+    }
+
+    public void testRecursiveCallWithSameArguments() {
+        final MemoizeCache cache = new MemoizeCache(MemoizeCache.UNBOUNDED)
+        int depth = 0
+        Closure cl
+        cl = {depth++ < 3 ? cache.get([it], cl, [it] as Object[]) + 1 : it}
+        assertEquals 13, cache.get([10], cl, [10] as Object[])
+        assertEquals 13, cache.get([10], cl, [10] as Object[])
+        assertEquals 4, depth
+    }
+
+    public void testBoundedSize() {
+        final MemoizeCache cache = new MemoizeCache(50)
+        final Closure cl = {it * 2}
+        (1..1000).each {
+            assertEquals it * 2, cache.get([it], cl, [it] as Object[])
+            assertTrue cache.size() <= 50
+        }
+    }
+
+    public void testProtectedSoftValues() {
+        final MemoizeCache cache = new MemoizeCache(MemoizeCache.UNBOUNDED, true, 5)
+        int counter = 0
+        final Closure cl = {counter++; it * 2}
+        (1..100).each {cache.get([it], cl, [it] as Object[])}
+        assertEquals 100, counter
+        (96..100).each {assertEquals it * 2, cache.get([it], cl, [it] as Object[])}
+        assertEquals 100, counter
+        assertNull cache.get([null], {null}, [null] as Object[])
+        assertNull cache.get([null], {fail 'Should have been cached'}, [null] as Object[])
+    }
+
+    public void testClearedValuesRemovedInSlices() {
+        final MemoizeCache cache = new MemoizeCache(MemoizeCache.UNBOUNDED, true, 0)
+        final Closure cl = {it * 2}
+        (1..100).each {cache.get(it, cl, [it] as Object[])}
+        assertEquals 100, cache.size()
+        //simulate the garbage collector clearing the soft references
+        cache.entries.values().each {
+            it.value.clear()
+            it.value.enqueue()
+        }
+        assertEquals 2, cache.get(1, cl, [1] as Object[])
+        assertEquals 100 - 64, cache.size()
+        assertEquals 4, cache.get(2, cl, [2] as Object[])
+        assertEquals 2, cache.size()
+    }
+
+    public void testInvalidSize() {
+        shouldFail(IllegalArgumentException) {new MemoizeCache(-2)}
+    }
+}
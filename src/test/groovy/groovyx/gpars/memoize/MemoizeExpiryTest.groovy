@@ -0,0 +1,96 @@
+// GPars - Groovy Parallel Systems
+//
+// Copyright © 2008-10  The original author or authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package groovyx.gpars.memoize
+
+import groovyx.gpars.GParsPool
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import static groovy.time.TimeCategory.getMilliseconds
+
+public class MemoizeExpiryTest extends GroovyTestCase {
+
+    public void testExpireAfterWrite() {
+        final AtomicInteger counter = new AtomicInteger(0)
+        GParsPool.withPool {
+            final Closure mem = {counter.incrementAndGet(); it * 2}.memoize(expireAfterWrite: 200)
+            assertEquals 4, mem(2)
+            assertEquals 4, mem(2)
+            assertEquals 1, counter.get()
+            Thread.sleep 300
+            assertEquals 4, mem(2)
+            assertEquals 2, counter.get()
+        }
+    }
+
+    public void testExpireAfterAccess() {
+        final AtomicInteger counter = new AtomicInteger(0)
+        GParsPool.withPool {
+            final Closure mem = {counter.incrementAndGet(); it * 2}.memoizeAtMost(10, expireAfterAccess: 300)
+            assertEquals 4, mem(2)
+            5.times {
+                Thread.sleep 100
+                assertEquals 4, mem(2)
+            }
+            assertEquals 1, counter.get()
+            Thread.sleep 400
+            assertEquals 4, mem(2)
+            assertEquals 2, counter.get()
+        }
+    }
+
+    public void testRefreshAfter() {
+        final AtomicInteger counter = new AtomicInteger(0)
+        GParsPool.withPool {
+            final Closure mem = {counter.incrementAndGet()}.memoizeBetween(1, 10, refreshAfter: getMilliseconds(100), expireAfterWrite: 60000)
+            assertEquals 1, mem(1)
+            Thread.sleep 200
+            assertEquals 1, mem(1)
+            for (int i = 0; i < 100 && mem(1) == 1; i++) Thread.sleep 20
+            assertEquals 2, mem(1)
+            assertEquals 2, counter.get()
+        }
+    }
+
+    public void testTimerRemovesExpiredEntries() {
+        final MemoizeCache cache = new MemoizeCache(MemoizeCache.UNBOUNDED, false, 0, 100L, 0L, 0L, TimeUnit.MILLISECONDS)
+        (1..10).each {cache.get(it, {it}, [it] as Object[])}
+        assertEquals 10, cache.size()
+        for (int i = 0; i < 100 && cache.size() > 0; i++) Thread.sleep 20
+        assertEquals 0, cache.size()
+    }
+
+    public void testRingStaysBoundedBelowCapacity() {
+        final MemoizeCache cache = new MemoizeCache(100, false, 0, 1L, 0L, 0L, TimeUnit.MILLISECONDS)
+        final Closure cl = {it * 2}
+        (0..<40).each {round ->
+            (1..50).each {cache.get(round * 50 + it, cl, [it] as Object[])}
+            for (int i = 0; i < 100 && cache.size() > 0; i++) Thread.sleep 10
+            assertEquals 0, cache.size()
+            assertTrue cache.cached.queue.size() <= 2 * 100 + 1
+        }
+        assertEquals 0, cache.cached.count.get()
+    }
+
+    public void testInvalidOptions() {
+        GParsPool.withPool {
+            shouldFail(IllegalArgumentException) {{x -> x}.memoize(expireAfter: 100)}
+            shouldFail(IllegalArgumentException) {{x -> x}.memoize(expireAfterWrite: 0)}
+            shouldFail(IllegalArgumentException) {{x -> x}.memoizeAtMost(-1, expireAfterWrite: 100)}
+        }
+    }
+}
@@ -0,0 +1,51 @@
+// GPars - Groovy Parallel Systems
+//
+// Copyright © 2008-10  The original author or authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package groovyx.gpars.memoize
+
+public class MemoizeKeyTest extends GroovyTestCase {
+    public void testSingleArgumentIsTheKey() {
+        final def arg = 'value'
+        assertSame arg, MemoizeKey.of([arg] as Object[])
+        assertEquals MemoizeKey.of([null] as Object[]), MemoizeKey.of([null] as Object[])
+        assertFalse MemoizeKey.of([null] as Object[]) == MemoizeKey.of([] as Object[])
+    }
+
+    public void testEquals() {
+        [[], [1, 2], [1, null, 3], [1, 2, 3, 4, 5], [[1, 2], 'a']].each {List args ->
+            final def key = MemoizeKey.of(args as Object[])
+            assert key == MemoizeKey.of(new ArrayList(args) as Object[])
+            assert key.hashCode() == MemoizeKey.of(new ArrayList(args) as Object[]).hashCode()
+        }
+        assert MemoizeKey.of([1, 2] as Object[]) != MemoizeKey.of([2, 1] as Object[])
+        assert MemoizeKey.of([1, 2, 3] as Object[]) != MemoizeKey.of([1, 2, 4] as Object[])
+        assert MemoizeKey.of([1, 2, 3, 4] as Object[]) != MemoizeKey.of([1, 2, 3, 5] as Object[])
+    }
+
+    public void testDifferentArgumentCountsDiffer() {
+        assert MemoizeKey.of([[1, 2]] as Object[]) != MemoizeKey.of([1, 2] as Object[])
+        assert MemoizeKey.of([1, 2] as Object[]) != MemoizeKey.of([1, 2, null] as Object[])
+        assert MemoizeKey.of([1, 2, 3] as Object[]) != MemoizeKey.of([1, 2, 3, null] as Object[])
+    }
+
+    public void testArgumentsAreCopied() {
+        final Object[] args = [1, 2, 3, 4]
+        final def key = MemoizeKey.of(args)
+        args[0] = 10
+        assert key == MemoizeKey.of([1, 2, 3, 4] as Object[])
+    }
+}
@@ -0,0 +1,78 @@
+// GPars - Groovy Parallel Systems
+//
+// Copyright © 2008-10  The original author or authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package groovyx.gpars.memoize
+
+import groovyx.gpars.GParsPool
+import java.lang.management.ManagementFactory
+import javax.management.ObjectName
+
+public class MemoizeStatsTest extends GroovyTestCase {
+
+    public void testCounters() {
+        GParsPool.withPool {
+            final Closure mem = {
+                if (it < 0) throw new IllegalArgumentException('test')
+                it * 2
+            }.memoizeAtMost(2, recordStats: true)
+            [1, 2, 1, 2, 3, 1].each {mem(it)}
+            shouldFail(IllegalArgumentException) {mem(-1)}
+            final MemoizeStats stats = mem.stats()
+            assertEquals 2, stats.hitCount
+            assertEquals 5, stats.missCount
+            assertEquals 4, stats.loadSuccessCount
+            assertEquals 1, stats.loadFailureCount
+            assertEquals 2, stats.evictionCount
+            assertEquals 2, stats.size
+            assertEquals 2 / 7, stats.hitRate, 0.0001
+            assertTrue stats.totalLoadTime > 0
+            assertTrue stats.averageLoadPenalty > 0
+        }
+    }
+
+    public void testConcurrentCounting() {
+        GParsPool.withPool(4) {
+            final Closure mem = {it}.memoize(recordStats: true)
+            (1..10000).eachParallel {mem(it % 100)}
+            assertEquals 10000, mem.stats().hitCount + mem.stats().missCount
+            assertEquals 100, mem.stats().missCount
+        }
+    }
+
+    public void testDisabledStats() {
+        GParsPool.withPool {
+            final Closure mem = {it}.memoize()
+            mem(1)
+            shouldFail(IllegalStateException) {mem.stats()}
+        }
+    }
+
+    public void testJmx() {
+        GParsPool.withPool {
+            final Closure mem = {it}.memoize(jmxName: 'MemoizeStatsTest')
+            mem(1)
+            mem(1)
+            final def name = new ObjectName('groovyx.gpars:type=Memoize,name="MemoizeStatsTest"')
+            final def server = ManagementFactory.platformMBeanServer
+            assertEquals 1L, server.getAttribute(name, 'HitCount')
+            assertEquals 1, server.getAttribute(name, 'Size')
+            shouldFail(IllegalArgumentException) {{x -> x}.memoize(jmxName: 'MemoizeStatsTest')}
+            mem.stats().unregister()
+            assertFalse server.isRegistered(name)
+        }
+    }
+}
@@ -0,0 +1,84 @@
+// GPars - Groovy Parallel Systems
+//
+// Copyright © 2008-10  The original author or authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package groovyx.gpars.remote
+
+import groovyx.gpars.dataflow.DataFlowVariable
+import groovyx.gpars.remote.netty.NettyTransportProvider
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.TimeUnit
+
+public class DiscoveryTest extends GroovyTestCase {
+
+    public void testParseStaticPeers() {
+        final def discovery = StaticDiscovery.parse(' localhost:9000, 127.0.0.1:9001,')
+        assertEquals([new InetSocketAddress('localhost', 9000), new InetSocketAddress('127.0.0.1', 9001)], discovery.peers)
+        shouldFail(IllegalArgumentException) {StaticDiscovery.parse('localhost')}
+        shouldFail(IllegalArgumentException) {StaticDiscovery.parse('localhost:port')}
+    }
+
+    public void testStaticPeersReportedAtStart() {
+        final def discovered = []
+        final def discovery = new StaticDiscovery(new InetSocketAddress('localhost', 9000), new InetSocketAddress('localhost', 9001))
+        discovery.start(UUID.randomUUID(), new InetSocketAddress('localhost', 8000), {id, address -> discovered << address} as Discovery.Listener)
+        assertEquals discovery.peers, discovered
+        discovery.stop()
+    }
+
+    public void testMembershipFile() {
+        final File file = File.createTempFile('members', '.txt')
+        file.deleteOnExit()
+        file.text = '# members\nlocalhost:9000\n\n  localhost:9001  \n'
+
+        final def discovered = new LinkedBlockingQueue()
+        final def discovery = new FileDiscovery(file, 50, TimeUnit.MILLISECONDS)
+        discovery.start(UUID.randomUUID(), new InetSocketAddress('localhost', 8000), {id, address -> discovered << address.port} as Discovery.Listener)
+        assertEquals([9000, 9001], [discovered.poll(), discovered.poll()])
+
+        file.text = 'localhost:9002\n'
+        file.lastModified = System.currentTimeMillis() + 1000
+        assertEquals 9002, discovered.poll(10, TimeUnit.SECONDS)
+        discovery.stop()
+        file.delete()
+    }
+
+    public void testStaticPeersConnectEagerly() {
+        final int port = freePort()
+        final def seeds = StaticDiscovery.parse("localhost:$port")
+        //the first host finds itself among the seeds and ignores it
+        final def server = new LocalNode(new NettyTransportProvider(port, seeds))
+        final def client = new LocalNode(new NettyTransportProvider(seeds))
+        final def connected = new DataFlowVariable()
+        client.addDiscoveryListener {node, op ->
+            if (op == 'connected') connected << node.id
+        }
+        server.connect()
+        client.connect()
+        assertEquals server.id, connected.getVal(10, TimeUnit.SECONDS)
+        client.localHost.disconnect()
+        server.localHost.disconnect()
+    }
+
+    private static int freePort() {
+        final def socket = new ServerSocket(0)
+        try {
+            return socket.localPort
+        } finally {
+            socket.close()
+        }
+    }
+}
@@ -0,0 +1,123 @@
+// GPars - Groovy Parallel Systems
+//
+// Copyright © 2008-10  The original author or authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package groovyx.gpars.remote
+
+import groovyx.gpars.actor.ActorMessage
+import groovyx.gpars.actor.impl.MessageStream
+import groovyx.gpars.dataflow.DataFlowVariable
+import groovyx.gpars.remote.message.CreditMsg
+import groovyx.gpars.remote.message.HostIdMsg
+
+public class FlowControlTest extends GroovyTestCase {
+
+    public void testPauseHoldsMessagesBackUntilCredits() {
+        final def (host, connection) = connect(FlowControl.credits(4, FlowControl.Overflow.PAUSE))
+        final def target = new TargetStream()
+        (1..10).each {host.write(sendTo(target, it))}
+        assertEquals 4, connection.written.size()
+        assertEquals 6, connection.backlogSize
+
+        host.write(new HostIdMsg(UUID.randomUUID()))
+        assertEquals 5, connection.written.size()
+
+        new CreditMsg(3).execute(connection)
+        assertEquals 8, connection.written.size()
+        new CreditMsg(5).execute(connection)
+        assertEquals 0, connection.backlogSize
+        assertEquals((1..10).toList(), connection.written.findAll {it instanceof MessageStream.SendTo}.collect {it.message.payLoad})
+    }
+
+    public void testFailWithoutCredits() {
+        final def (host, connection) = connect(FlowControl.credits(2, FlowControl.Overflow.FAIL))
+        final def target = new TargetStream()
+        host.write(sendTo(target, 1))
+        host.write(sendTo(target, 2))
+        shouldFail(IllegalStateException) {
+            host.write(sendTo(target, 3))
+        }
+        connection.addCredits(1)
+        host.write(sendTo(target, 3))
+        assertEquals 3, connection.written.size()
+    }
+
+    public void testBlockWaitsForCredits() {
+        final def (host, connection) = connect(FlowControl.credits(1, FlowControl.Overflow.BLOCK))
+        final def target = new TargetStream()
+        host.write(sendTo(target, 1))
+        final def sent = new DataFlowVariable()
+        final def sender = Thread.start {
+            host.write(sendTo(target, 2))
+            sent << true
+        }
+        Thread.sleep 200
+        assertFalse sent.bound
+        connection.addCredits(1)
+        assertTrue sent.val
+        sender.join()
+        assertEquals 2, connection.written.size()
+    }
+
+    public void testDisabledFlowControl() {
+        final def (host, connection) = connect(FlowControl.DISABLED)
+        final def target = new TargetStream()
+        (1..100).each {host.write(sendTo(target, it))}
+        assertEquals 100, connection.written.size()
+
+        connection.deliver(target, ActorMessage.build('message'))
+        target.received[0].payLoad
+        assertEquals 100, connection.written.size()
+    }
+
+    public void testCreditsReturnedOnConsumption() {
+        final def (host, connection) = connect(FlowControl.credits(8, FlowControl.Overflow.PAUSE))
+        final def target = new TargetStream()
+        (1..8).each {connection.deliver(target, ActorMessage.build(it))}
+        assertEquals 8, target.received.size()
+        assertTrue connection.written.isEmpty()
+
+        target.received[0].payLoad
+        assertTrue connection.written.isEmpty()
+        target.received[1].payLoad
+        target.received[1].payLoad
+        assertEquals([2], connection.written*.credits)
+
+        target.received[2..7]*.payLoad
+        assertEquals([2, 2, 2, 2], connection.written*.credits)
+    }
+
+    public void testCreditReturnedOnRejectedDelivery() {
+        final def (host, connection) = connect(FlowControl.credits(1, FlowControl.Overflow.PAUSE))
+        final def target = new TargetStream(rejecting: true)
+        shouldFail(IllegalStateException) {
+            connection.deliver(target, ActorMessage.build(1))
+        }
+        assertEquals([1], connection.written*.credits)
+    }
+
+    private static List connect(final FlowControl flowControl) {
+        final def localHost = new LocalHost(flowControl)
+        final def host = new RemoteHost(localHost, UUID.randomUUID())
+        final def connection = new TestConnection(localHost)
+        connection.host = host
+        host.addConnection connection
+        return [host, connection]
+    }
+
+    private static MessageStream.SendTo sendTo(final MessageStream target, final Object payload) {
+        return new MessageStream.SendTo(target, ActorMessage.build(payload))
+    }
+}
@@ -0,0 +1,108 @@
+// GPars - Groovy Parallel Systems
+//
+// Copyright © 2008-10  The original author or authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package groovyx.gpars.remote
+
+import groovyx.gpars.dataflow.DataFlowVariable
+import groovyx.gpars.remote.loopback.LoopbackNetwork
+import groovyx.gpars.remote.loopback.LoopbackTransportProvider
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+public class LoopbackTest extends GroovyTestCase {
+
+    final LoopbackNetwork network = new LoopbackNetwork()
+
+    public void testDiscovery() {
+        final def nodes = (1..3).collect {new LocalNode(new LoopbackTransportProvider(network))}
+        final def connected = [:]
+        final def latch = new CountDownLatch(nodes.size() * (nodes.size() - 1))
+        nodes.each {node ->
+            final def ids = connected[node.id] = []
+            node.addDiscoveryListener {anotherNode, op ->
+                if (op == 'connected') {
+                    synchronized (ids) {ids << anotherNode.id}
+                    latch.countDown()
+                }
+            }
+            node.connect()
+        }
+        assertTrue latch.await(10, TimeUnit.SECONDS)
+        nodes.each {node ->
+            assertEquals((nodes*.id - node.id) as SortedSet, connected[node.id] as SortedSet)
+        }
+        disconnect(*nodes)
+    }
+
+    public void testSendAndWait() {
+        final def (server, client, remote) = connect(network) {
+            loop {
+                react {reply it * 2}
+            }
+        }
+        assertEquals 20, remote.mainActor.sendAndWait(10)
+        assertEquals((1..100).collect {it * 2}, (1..100).collect {remote.mainActor.sendAndWait(it)})
+        disconnect server, client
+    }
+
+    public void testRemoteDataFlowVariableBinding() {
+        final def (server, client, remote) = connect(network) {
+            loop {
+                react {variable -> variable << 'bound remotely'}
+            }
+        }
+        final def variable = new DataFlowVariable()
+        remote.mainActor << variable
+        assertEquals 'bound remotely', variable.val
+        disconnect server, client
+    }
+
+    public void testLatency() {
+        final def slowNetwork = new LoopbackNetwork(200, TimeUnit.MILLISECONDS, 0)
+        final def (server, client, remote) = connect(slowNetwork) {
+            loop {
+                react {reply it}
+            }
+        }
+        final long start = System.nanoTime()
+        assertEquals 1, remote.mainActor.sendAndWait(1)
+        assertTrue TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 400
+        disconnect server, client
+    }
+
+    public void testBandwidth() {
+        final def network = new LoopbackNetwork(0, TimeUnit.MILLISECONDS, 1000)
+        assertEquals([1000000000L, 1000000000L], network.schedule(1000, 0L, 0L) as List)
+        assertEquals([1500000000L, 1500000000L], network.schedule(500, 1000000000L, 0L) as List)
+        assertEquals([2000000000L, 2000000000L], network.schedule(0, 1000000000L, 2000000000L) as List)
+    }
+
+    private static List connect(final LoopbackNetwork network, final Closure serverCode) {
+        final def server = new LocalNode(new LoopbackTransportProvider(network), serverCode)
+        final def found = new DataFlowVariable()
+        final def client = new LocalNode(new LoopbackTransportProvider(network))
+        client.addDiscoveryListener {node, op ->
+            if (op == 'connected' && node.id == server.id) found << node
+        }
+        client.connect()
+        return [server, client, found.val]
+    }
+
+    private static void disconnect(final LocalNode... nodes) {
+        nodes*.localHost*.disconnect()
+    }
+}
@@ -0,0 +1,183 @@
+// GPars - Groovy Parallel Systems
+//
+// Copyright © 2008-10  The original author or authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package groovyx.gpars.remote
+
+import groovyx.gpars.dataflow.DataFlowExpression
+import groovyx.gpars.dataflow.DataFlowVariable
+import groovyx.gpars.remote.message.HostIdMsg
+import groovyx.gpars.remote.netty.CompactCodec
+import groovyx.gpars.remote.netty.JavaSerializationCodec
+import groovyx.gpars.remote.netty.RemoteCodec
+import groovyx.gpars.remote.netty.RemoteObjectDecoder
+import groovyx.gpars.remote.netty.RemoteObjectEncoder
+import groovyx.gpars.serial.SerialMsg
+import org.jboss.netty.buffer.ChannelBuffer
+import org.jboss.netty.buffer.ChannelBuffers
+import org.jboss.netty.handler.codec.embedder.DecoderEmbedder
+import org.jboss.netty.handler.codec.embedder.EncoderEmbedder
+
+public class RemoteCodecTest extends GroovyTestCase {
+    LocalHost localA
+    LocalHost localB
+    RemoteHost hostB
+    RemoteHost hostA
+
+    protected void setUp() {
+        super.setUp()
+        localA = new LocalHost()
+        localB = new LocalHost()
+        hostB = new RemoteHost(localA, localB.id)
+        hostA = new RemoteHost(localB, localA.id)
+    }
+
+    public void testCompactRoundTrip() {
+        checkRoundTrip CompactCodec.FACTORY
+    }
+
+    public void testJavaSerializationRoundTrip() {
+        checkRoundTrip JavaSerializationCodec.FACTORY
+    }
+
+    public void testCompactMessagesAreSmaller() {
+        final def message = new HostIdMsg(localA.id)
+        final RemoteCodec compact = CompactCodec.FACTORY.createCodec()
+        final RemoteCodec java = JavaSerializationCodec.FACTORY.createCodec()
+        final int first = encode(compact, message).length
+        assert first < encode(java, message).length
+        assert encode(compact, message).length < first
+    }
+
+    public void testRepeatedClassesAndIdsGetShorter() {
+        final RemoteCodec sender = CompactCodec.FACTORY.createCodec()
+        final RemoteCodec receiver = CompactCodec.FACTORY.createCodec()
+        final def payload = [UUID.randomUUID(), new Date(0), 'text', 10G]
+        final byte[] first = encode(sender, new Payload(items: payload))
+        final byte[] second = encode(sender, new Payload(items: payload))
+        assert second.length < first.length
+        assertEquals payload, decode(receiver, first).items
+        assertEquals payload, decode(receiver, second).items
+    }
+
+    public void testFailedEncodingLeavesCodecUsable() {
+        final RemoteCodec sender = CompactCodec.FACTORY.createCodec()
+        final RemoteCodec receiver = CompactCodec.FACTORY.createCodec()
+        final def id = UUID.randomUUID()
+        shouldFail(NotSerializableException) {
+            encode(sender, new Payload(items: [id, new Object()]))
+        }
+        assertEquals([id], decode(receiver, encode(sender, new Payload(items: [id]))).items)
+    }
+
+    public void testFramesSplitAcrossBuffers() {
+        final def connection = new TestConnection(localA)
+        connection.host = hostB
+        final def encoder = new EncoderEmbedder<ChannelBuffer>(new RemoteObjectEncoder(connection, CompactCodec.FACTORY.createCodec()))
+        final def ids = (1..20).collect {UUID.randomUUID()}
+        ids.each {encoder.offer(new HostIdMsg(it))}
+        encoder.finish()
+        final ChannelBuffer all = ChannelBuffers.dynamicBuffer()
+        for (ChannelBuffer frame = encoder.poll(); frame != null; frame = encoder.poll()) all.writeBytes(frame)
+
+        final def receiving = new TestConnection(localB)
+        receiving.host = hostA
+        final def decoder = new DecoderEmbedder<HostIdMsg>(new RemoteObjectDecoder(receiving, CompactCodec.FACTORY.createCodec()))
+        while (all.readable()) decoder.offer(all.readBytes(Math.min(3, all.readableBytes())))
+        decoder.finish()
+        assertEquals ids, (1..20).collect {decoder.poll().hostId}
+        assertNull decoder.poll()
+    }
+
+    public void testBatchedFramesPassThroughEncoder() {
+        final def connection = new TestConnection(localA)
+        connection.host = hostB
+        final def frameEncoder = new RemoteObjectEncoder(connection, CompactCodec.FACTORY.createCodec())
+        final ChannelBuffer batch = ChannelBuffers.dynamicBuffer()
+        final def ids = (1..5).collect {UUID.randomUUID()}
+        ids.each {frameEncoder.writeFrame(new HostIdMsg(it), batch)}
+        final int batchSize = batch.readableBytes()
+        shouldFail(NotSerializableException) {
+            frameEncoder.writeFrame(new Payload(items: [new Object()]), batch)
+        }
+        assertEquals batchSize, batch.readableBytes()
+
+        final def encoder = new EncoderEmbedder<ChannelBuffer>(frameEncoder)
+        encoder.offer(batch)
+        encoder.finish()
+        final ChannelBuffer written = encoder.poll()
+        assertSame batch, written
+
+        final def receiving = new TestConnection(localB)
+        receiving.host = hostA
+        final def decoder = new DecoderEmbedder<HostIdMsg>(new RemoteObjectDecoder(receiving, CompactCodec.FACTORY.createCodec()))
+        decoder.offer(written)
+        decoder.finish()
+        assertEquals ids, (1..5).collect {decoder.poll().hostId}
+    }
+
+    private void checkRoundTrip(final RemoteCodec.Factory factory) {
+        final RemoteCodec sender = factory.createCodec()
+        final RemoteCodec receiver = factory.createCodec()
+
+        final HostIdMsg hostIdMsg = decode(receiver, encode(sender, new HostIdMsg(localA.id)))
+        assertEquals localA.id, hostIdMsg.hostId
+
+        final def variable = new DataFlowVariable()
+        final def bytes = encode(sender, new DataFlowExpression.BindDataFlow(variable, [1, 'a', 2.5], localA.id))
+        final DataFlowExpression.BindDataFlow bind = decode(receiver, bytes)
+        assertEquals([1, 'a', 2.5], bind.message)
+        assertEquals localA.id, bind.hostId
+        assertEquals hostIdMsg.getClass(), decode(receiver, encode(sender, new HostIdMsg(localB.id))).getClass()
+    }
+
+    private byte[] encode(final RemoteCodec codec, final Object message) {
+        final def out = new ByteArrayOutputStream()
+        hostB.enter()
+        try {
+            codec.encode(message, out)
+        } finally {
+            hostB.leave()
+        }
+        return out.toByteArray()
+    }
+
+    private Object decode(final RemoteCodec codec, final byte[] bytes) {
+        hostA.enter()
+        try {
+            return codec.decode(new ByteArrayInputStream(bytes))
+        } finally {
+            hostA.leave()
+        }
+    }
+}
+
+class Payload implements Serializable {
+    List items
+}
+
+class TestConnection extends RemoteConnection {
+    final List<SerialMsg> written = []
+
+    TestConnection(final LocalHost provider) {
+        super(provider)
+    }
+
+    void write(SerialMsg msg) {
+        written << msg
+    }
+
+    void disconnect() {}
+}
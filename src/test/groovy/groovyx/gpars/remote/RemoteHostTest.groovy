@@ -0,0 +1,111 @@
+// GPars - Groovy Parallel Systems
+//
+// Copyright © 2008-10  The original author or authors
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//       http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package groovyx.gpars.remote
+
+import groovyx.gpars.actor.ActorMessage
+import groovyx.gpars.actor.impl.MessageStream
+import groovyx.gpars.remote.message.HostIdMsg
+
+public class RemoteHostTest extends GroovyTestCase {
+    LocalHost localHost
+    RemoteHost host
+
+    protected void setUp() {
+        super.setUp()
+        localHost = new LocalHost()
+        host = new RemoteHost(localHost, UUID.randomUUID())
+    }
+
+    public void testNotConnected() {
+        assertFalse host.connected
+        shouldFail(IllegalStateException) {
+            host.write(new HostIdMsg(localHost.id))
+        }
+    }
+
+    public void testSingleConnection() {
+        final def connection = new TestConnection(localHost)
+        host.addConnection connection
+        assertTrue host.connected
+        host.write(new HostIdMsg(localHost.id))
+        host.write(sendTo(new TargetStream()))
+        assertEquals 2, connection.written.size()
+        assertEquals localHost.id, connection.written[0].hostId
+    }
+
+    public void testMessagesSpreadByTarget() {
+        final def connections = (1..4).collect {new TestConnection(localHost)}
+        connections.each {host.addConnection it}
+
+        final def targets = (1..40).collect {new TargetStream()}
+        3.times {
+            targets.each {host.write(sendTo(it))}
+            host.write(new HostIdMsg(localHost.id))
+        }
+
+        connections.each {connection ->
+            connection.written.findAll {it instanceof MessageStream.SendTo}.groupBy {it.to}.each {target, messages ->
+                assertEquals 3, messages.size()
+                assertTrue connections.findAll {it != connection}.every {other -> other.written.every {it.orderingKey != target}}
+            }
+        }
+        assertEquals 3, connections[0].written.findAll {it instanceof HostIdMsg}.size()
+        assertTrue connections.every {it.written.size() > 3}
+    }
+
+    public void testRemovedConnectionIsNotUsed() {
+        final def first = new TestConnection(localHost)
+        final def second = new TestConnection(localHost)
+        host.addConnection first
+        host.addConnection second
+        host.removeConnection first
+        (1..10).each {host.write(sendTo(new TargetStream()))}
+        assertEquals 0, first.written.size()
+        assertEquals 10, second.written.size()
+    }
+
+    public void testDisconnectedConnectionIsRemoved() {
+        final def first = new TestConnection(localHost)
+        final def second = new TestConnection(localHost)
+        [first, second].each {
+            it.host = host
+            host.addConnection it
+        }
+        first.onDisconnect()
+        assertTrue host.connected
+        (1..10).each {host.write(sendTo(new TargetStream()))}
+        assertEquals 0, first.written.size()
+        assertEquals 10, second.written.size()
+        second.onDisconnect()
+        assertFalse host.connected
+    }
+
+    private static MessageStream.SendTo sendTo(final MessageStream target) {
+        return new MessageStream.SendTo(target, ActorMessage.build('message'))
+    }
+}
+
+class TargetStream extends MessageStream {
+    final List received = []
+    boolean rejecting = false
+
+    MessageStream send(Object message) {
+        if (rejecting) throw new IllegalStateException('Rejected')
+        received << message
+        return this
+    }
+}